@@ -9,12 +9,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Student;
 import model.MentorAssignment;
 import service.ProjectService;
 import dao.StudentDAO;
 import dao.MentorAssignmentDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling mentor assignment acceptance
@@ -44,7 +45,7 @@ public class AcceptMentorServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get student profile
         Student student = studentDAO.getStudentByUserId(user.getUserId());
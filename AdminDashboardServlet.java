@@ -1,7 +1,6 @@
 package servlet;
 
 import java.io.IOException;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -9,11 +8,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import model.ProjectProposal;
-import model.MentorAssignment;
-import model.User;
+import model.DashboardStats;
 import service.ProjectService;
-import dao.UserDAO;
 
 /**
  * Servlet for handling admin dashboard
@@ -22,7 +18,6 @@ import dao.UserDAO;
 public class AdminDashboardServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
     private ProjectService projectService;
-    private UserDAO userDAO;
     
     /**
      * Initialize the servlet
@@ -30,7 +25,6 @@ public class AdminDashboardServlet extends HttpServlet {
     @Override
     public void init() throws ServletException {
         projectService = new ProjectService();
-        userDAO = new UserDAO();
     }
     
     /**
@@ -40,42 +34,22 @@ public class AdminDashboardServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         // Get counts for dashboard
-        List<ProjectProposal> pendingProposals = projectService.getProposalsByStatus("pending");
-        List<ProjectProposal> approvedProposals = projectService.getProposalsByStatus("approved");
-        List<ProjectProposal> inProgressProposals = projectService.getProposalsByStatus("in_progress");
-        List<ProjectProposal> completedProposals = projectService.getProposalsByStatus("completed");
-        
-        List<MentorAssignment> pendingAssignments = projectService.getAssignmentsByStatus("pending");
-        List<MentorAssignment> acceptedAssignments = projectService.getAssignmentsByStatus("accepted");
-        List<MentorAssignment> completedAssignments = projectService.getAssignmentsByStatus("completed");
-        
-        List<User> students = userDAO.getUsersByRole("student");
-        List<User> mentors = userDAO.getUsersByRole("mentor");
+        DashboardStats stats = projectService.getDashboardStats();
         
         // Set attributes for the view
-        request.setAttribute("pendingProposals", pendingProposals);
-        request.setAttribute("approvedProposals", approvedProposals);
-        request.setAttribute("inProgressProposals", inProgressProposals);
-        request.setAttribute("completedProposals", completedProposals);
-        
-        request.setAttribute("pendingAssignments", pendingAssignments);
-        request.setAttribute("acceptedAssignments", acceptedAssignments);
-        request.setAttribute("completedAssignments", completedAssignments);
-        
-        request.setAttribute("students", students);
-        request.setAttribute("mentors", mentors);
+        request.setAttribute("stats", stats);
         
-        request.setAttribute("pendingProposalCount", pendingProposals.size());
-        request.setAttribute("approvedProposalCount", approvedProposals.size());
-        request.setAttribute("inProgressProposalCount", inProgressProposals.size());
-        request.setAttribute("completedProposalCount", completedProposals.size());
+        request.setAttribute("pendingProposalCount", stats.getPendingProposalCount());
+        request.setAttribute("approvedProposalCount", stats.getApprovedProposalCount());
+        request.setAttribute("inProgressProposalCount", stats.getInProgressProposalCount());
+        request.setAttribute("completedProposalCount", stats.getCompletedProposalCount());
         
-        request.setAttribute("pendingAssignmentCount", pendingAssignments.size());
-        request.setAttribute("acceptedAssignmentCount", acceptedAssignments.size());
-        request.setAttribute("completedAssignmentCount", completedAssignments.size());
+        request.setAttribute("pendingAssignmentCount", stats.getPendingAssignmentCount());
+        request.setAttribute("acceptedAssignmentCount", stats.getAcceptedAssignmentCount());
+        request.setAttribute("completedAssignmentCount", stats.getCompletedAssignmentCount());
         
-        request.setAttribute("studentCount", students.size());
-        request.setAttribute("mentorCount", mentors.size());
+        request.setAttribute("studentCount", stats.getStudentCount());
+        request.setAttribute("mentorCount", stats.getMentorCount());
         
         // Forward to dashboard page
         request.getRequestDispatcher("/WEB-INF/views/admin/dashboard.jsp").forward(request, response);
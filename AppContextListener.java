@@ -0,0 +1,95 @@
+package listener;
+
+import java.sql.SQLException;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import dao.MentorDAO;
+import dao.ProjectProposalDAO;
+import dao.StudentDAO;
+import dao.UserDAO;
+import service.ParallelLoader;
+import service.ProjectService;
+import service.TokenService;
+import util.DBUtil;
+import util.LoginThrottle;
+import util.PasswordUtil;
+
+/**
+ * Listener for application startup and shutdown
+ */
+@WebListener
+public class AppContextListener implements ServletContextListener {
+    // Search index scans before giving up; rows kept from a failed scan are skipped by the next one
+    private static final int INDEX_ATTEMPTS = 5;
+    private static final long INDEX_RETRY_MILLIS = 30000;
+    
+    /**
+     * Initialize application resources
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Size the password hashing cost for this machine
+        PasswordUtil.calibrate();
+        
+        // Scan existing usernames and emails in the background; checks hit the database until it is done
+        Thread loader = new Thread(() -> {
+            try {
+                long scanned = new UserDAO().buildExistenceFilter();
+                System.out.println("Username/email existence filter built from " + scanned + " users");
+            } catch (SQLException e) {
+                System.err.println("Username/email existence filter not built: " + e.getMessage());
+            }
+        }, "user-existence-filter");
+        loader.setDaemon(true);
+        loader.start();
+        
+        // Index every proposal for full-text search; searches report "starting up" until a scan completes
+        Thread indexer = new Thread(() -> {
+            for (int attempt = 1; attempt <= INDEX_ATTEMPTS; attempt++) {
+                long started = System.currentTimeMillis();
+                try {
+                    long scanned = new ProjectProposalDAO().buildSearchIndex();
+                    System.out.println("Proposal search index built from " + scanned + " proposals in "
+                            + (System.currentTimeMillis() - started) + " ms");
+                    return;
+                } catch (SQLException e) {
+                    System.err.println("Proposal search index scan " + attempt + " of " + INDEX_ATTEMPTS
+                            + " failed: " + e.getMessage());
+                }
+                if (attempt == INDEX_ATTEMPTS) {
+                    System.err.println("Proposal search stays unavailable until the next restart");
+                    return;
+                }
+                try {
+                    Thread.sleep(INDEX_RETRY_MILLIS * attempt);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "proposal-search-index");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+    
+    /**
+     * Release application resources
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        LoginThrottle throttle = LoginThrottle.getInstance();
+        System.out.println("Shutting down: " + (UserDAO.getUserCache().getHitCount()
+                + StudentDAO.getStudentCache().getHitCount() + MentorDAO.getMentorCache().getHitCount())
+                + " entity cache hits, " + ProjectService.getReadCoalescer().getCoalescedCount()
+                + " coalesced reads, " + (throttle.getRejectedByUsernameCount() + throttle.getRejectedByAddressCount())
+                + " throttled logins");
+        
+        // Stop background workers and close pooled database connections
+        ParallelLoader.shutdown();
+        TokenService.getInstance().shutdown();
+        PasswordUtil.shutdown();
+        DBUtil.shutdown();
+    }
+}
@@ -14,8 +14,9 @@ import model.ProjectProposal;
 import model.Mentor;
 import model.Student;
 import model.MentorInterest;
+import model.Page;
+import service.MentorRecommender;
 import service.ProjectService;
-import dao.MentorDAO;
 import dao.StudentDAO;
 
 /**
@@ -24,8 +25,8 @@ import dao.StudentDAO;
 @WebServlet("/admin/assign-mentor")
 public class AssignMentorServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final int RECOMMENDATIONS = 5;
     private ProjectService projectService;
-    private MentorDAO mentorDAO;
     private StudentDAO studentDAO;
     
     /**
@@ -34,7 +35,6 @@ public class AssignMentorServlet extends HttpServlet {
     @Override
     public void init() throws ServletException {
         projectService = new ProjectService();
-        mentorDAO = new MentorDAO();
         studentDAO = new StudentDAO();
     }
     
@@ -70,17 +70,26 @@ public class AssignMentorServlet extends HttpServlet {
             // Get student for the proposal
             Student student = studentDAO.getStudentById(proposal.getStudentId());
             
-            // Get all mentors
-            List<Mentor> mentors = mentorDAO.getAllMentors();
+            // Get one page of mentors
+            String mentorCursor = request.getParameter("mentorCursor");
+            int pageSize = Page.parseSize(request.getParameter("size"));
+            Page<Mentor> mentorPage = projectService.getMentorsPage(mentorCursor, pageSize);
             
             // Get mentor interests for the proposal
             List<MentorInterest> interests = projectService.getInterestsForProposal(proposalId);
             
+            // Get mentors whose skills match the proposal
+            List<MentorRecommender.Recommendation> recommendations =
+                    projectService.recommendMentors(proposal, RECOMMENDATIONS);
+            
             // Set attributes for the view
             request.setAttribute("proposal", proposal);
             request.setAttribute("student", student);
-            request.setAttribute("mentors", mentors);
+            request.setAttribute("mentors", mentorPage.getItems());
+            request.setAttribute("mentorPage", mentorPage);
+            request.setAttribute("nextMentorCursor", mentorPage.getNextCursor());
             request.setAttribute("interests", interests);
+            request.setAttribute("recommendations", recommendations);
             
             // Forward to assignment form
             request.getRequestDispatcher("/WEB-INF/views/admin/assign-mentor.jsp").forward(request, response);
@@ -128,9 +137,11 @@ public class AssignMentorServlet extends HttpServlet {
             }
             
             // Assign mentor
-            projectService.assignMentor(mentorId, proposal.getStudentId(), proposalId);
-            
-            session.setAttribute("message", "Mentor assigned successfully");
+            if (projectService.assignMentor(mentorId, proposal.getStudentId(), proposalId) != null) {
+                session.setAttribute("message", "Mentor assigned successfully");
+            } else {
+                session.setAttribute("error", "Mentor could not be assigned. The mentor may already have the maximum number of mentees.");
+            }
             
             // Redirect to review page
             response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/admin/review-proposals"));
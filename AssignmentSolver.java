@@ -0,0 +1,517 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import dao.MentorAssignmentDAO;
+import dao.MentorDAO;
+import dao.MentorInterestDAO;
+import dao.ProjectProposalDAO;
+import model.Mentor;
+import model.MentorAssignment;
+import model.ProjectProposal;
+
+/**
+ * Assigns mentors to every approved, unassigned proposal at once.
+ * The cohort is modelled as a min-cost flow: each proposal needs one mentor,
+ * each mentor can take as many proposals as their remaining capacity
+ * (maxMentees minus pending and accepted assignments), and each
+ * proposal-mentor edge costs less the stronger the mentor's expressed
+ * interest and skill match. The skill match is the absolute TF-IDF cosine
+ * similarity, not the per-proposal relative relevance, so costs mean the same
+ * across proposals. Candidate edges are the mentors who expressed
+ * interest plus the top skill matches from MentorRecommender, which keeps the
+ * graph sparse, plus fallback edges at the worst possible cost to the mentors
+ * with the most free places, so a proposal nobody matched can still be placed.
+ * Proposals are added one at a time, oldest submission first, and each is
+ * routed along a shortest augmenting path (Dijkstra with node potentials, so
+ * earlier choices can be moved to other mentors). A proposal that cannot be
+ * placed without unplacing an older one stays unassigned.
+ * The optimality is therefore priority-constrained: the placed proposals are
+ * the oldest-first set the candidate edges allow, which is as large as any
+ * other, and no other plan places exactly that set at a lower total cost. A
+ * different set of the same size, favouring newer proposals, may be cheaper.
+ * AssignmentSolverTest checks this against brute force on small networks.
+ */
+public class AssignmentSolver {
+    // Skill-matched mentors considered per proposal, in addition to interested ones
+    private static final int CANDIDATES_PER_PROPOSAL = 10;
+    // Mentors with the most free places, offered to every proposal as a last resort
+    private static final int FALLBACK_MENTORS = 5;
+    // Edge costs: interest level dominates, skill match breaks ties within a level
+    private static final int COST_HIGH_INTEREST = 0;
+    private static final int COST_MEDIUM_INTEREST = 150;
+    private static final int COST_LOW_INTEREST = 300;
+    private static final int COST_NO_INTEREST = 450;
+    private static final int COST_SKILL_MISMATCH = 400;
+
+    private final ProjectProposalDAO proposalDAO;
+    private final MentorDAO mentorDAO;
+    private final MentorAssignmentDAO assignmentDAO;
+    private final MentorInterestDAO interestDAO;
+    private final MentorRecommender recommender;
+
+    /**
+     * Constructor
+     */
+    public AssignmentSolver() {
+        proposalDAO = new ProjectProposalDAO();
+        mentorDAO = new MentorDAO();
+        assignmentDAO = new MentorAssignmentDAO();
+        interestDAO = new MentorInterestDAO();
+        recommender = MentorRecommender.getInstance();
+    }
+
+    /**
+     * Load the cohort and compute an assignment plan without writing anything
+     * @return Plan with the chosen assignments and its total cost
+     */
+    public Plan plan() {
+        long start = System.nanoTime();
+
+        Set<Integer> assigned = assignmentDAO.getAssignedProposalIds();
+        List<ProjectProposal> proposals = new ArrayList<>();
+        for (ProjectProposal proposal : proposalDAO.getProposalsByStatus("approved")) {
+            if (!assigned.contains(proposal.getProposalId())) {
+                proposals.add(proposal);
+            }
+        }
+        // Oldest submissions get first claim on scarce capacity
+        proposals.sort(Comparator.comparing(ProjectProposal::getSubmissionDate,
+                Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(ProjectProposal::getProposalId));
+
+        Map<Integer, Integer> load = MentorCapacity.getInstance().getLoads();
+        Map<Integer, Mentor> mentors = new LinkedHashMap<>();
+        Map<Integer, Integer> capacity = new HashMap<>();
+        for (Mentor mentor : mentorDAO.getAllMentors()) {
+            int free = mentor.getMaxMentees() - load.getOrDefault(mentor.getMentorId(), 0);
+            if (free > 0) {
+                mentors.put(mentor.getMentorId(), mentor);
+                capacity.put(mentor.getMentorId(), free);
+            }
+        }
+
+        Map<Integer, Map<Integer, String>> interests = interestDAO.getInterestLevelsByProposalStatus("approved");
+        Plan plan = solve(proposals, mentors, capacity, interests);
+        plan.elapsedMillis = (System.nanoTime() - start) / 1000000;
+        return plan;
+    }
+
+    /**
+     * Compute the plan for a loaded cohort
+     * @param proposals Proposals to place, in priority order
+     * @param mentors Mentors with free capacity by mentor ID
+     * @param capacity Free places by mentor ID
+     * @param interests Interest levels by proposal ID and mentor ID
+     * @return Plan
+     */
+    Plan solve(List<ProjectProposal> proposals, Map<Integer, Mentor> mentors,
+               Map<Integer, Integer> capacity, Map<Integer, Map<Integer, String>> interests) {
+        List<Mentor> mentorList = new ArrayList<>(mentors.values());
+        Map<Integer, Integer> mentorIndex = new HashMap<>();
+        int[] caps = new int[mentorList.size()];
+        for (int i = 0; i < mentorList.size(); i++) {
+            mentorIndex.put(mentorList.get(i).getMentorId(), i);
+            caps[i] = capacity.getOrDefault(mentorList.get(i).getMentorId(), 0);
+        }
+
+        List<Integer> roomiest = new ArrayList<>();
+        for (int i = 0; i < caps.length; i++) {
+            roomiest.add(i);
+        }
+        roomiest.sort((a, b) -> Integer.compare(caps[b], caps[a]));
+        roomiest = roomiest.subList(0, Math.min(FALLBACK_MENTORS, roomiest.size()));
+
+        // Candidate edges per proposal
+        FlowNetwork network = new FlowNetwork(proposals.size(), caps);
+        List<Map<Integer, Edge>> edges = new ArrayList<>();
+        for (int p = 0; p < proposals.size(); p++) {
+            ProjectProposal proposal = proposals.get(p);
+            Map<Integer, String> levels = interests.getOrDefault(proposal.getProposalId(), Collections.emptyMap());
+            Map<Integer, Edge> candidates = new HashMap<>();
+            for (MentorRecommender.Recommendation match : recommender.recommend(proposal, CANDIDATES_PER_PROPOSAL)) {
+                Integer m = mentorIndex.get(match.getMentor().getMentorId());
+                if (m != null) {
+                    candidates.put(m, new Edge(levels.get(match.getMentor().getMentorId()), match.getSimilarity()));
+                }
+            }
+            for (Map.Entry<Integer, String> interest : levels.entrySet()) {
+                Integer m = mentorIndex.get(interest.getKey());
+                if (m != null && !candidates.containsKey(m)) {
+                    candidates.put(m, new Edge(interest.getValue(), 0));
+                }
+            }
+            // No interest and no skill match: COST_NO_INTEREST + COST_SKILL_MISMATCH
+            for (int m : roomiest) {
+                if (!candidates.containsKey(m)) {
+                    candidates.put(m, new Edge(null, 0));
+                }
+            }
+            for (Map.Entry<Integer, Edge> candidate : candidates.entrySet()) {
+                network.addEdge(p, candidate.getKey(), candidate.getValue().cost);
+            }
+            edges.add(candidates);
+        }
+
+        network.solve();
+
+        Plan plan = new Plan();
+        for (int p = 0; p < proposals.size(); p++) {
+            ProjectProposal proposal = proposals.get(p);
+            int m = network.match[p];
+            if (m < 0) {
+                plan.unassigned.add(proposal);
+                continue;
+            }
+            Mentor mentor = mentorList.get(m);
+            Edge edge = edges.get(p).get(m);
+            MentorAssignment assignment = new MentorAssignment();
+            assignment.setMentorId(mentor.getMentorId());
+            assignment.setStudentId(proposal.getStudentId());
+            assignment.setProposalId(proposal.getProposalId());
+            assignment.setStatus("pending");
+            assignment.setMentor(mentor);
+            assignment.setProposal(proposal);
+            plan.matches.add(new Match(assignment, edge.cost, edge.interestLevel, edge.relevance));
+            plan.totalCost += edge.cost;
+        }
+        return plan;
+    }
+
+    /**
+     * Cost of assigning a mentor to a proposal
+     * @param interestLevel Interest the mentor expressed, or null
+     * @param relevance Skill similarity between 0 and 1
+     * @return Edge cost; lower is better
+     */
+    static int cost(String interestLevel, double relevance) {
+        int interestCost;
+        if ("high".equals(interestLevel)) {
+            interestCost = COST_HIGH_INTEREST;
+        } else if ("medium".equals(interestLevel)) {
+            interestCost = COST_MEDIUM_INTEREST;
+        } else if ("low".equals(interestLevel)) {
+            interestCost = COST_LOW_INTEREST;
+        } else {
+            interestCost = COST_NO_INTEREST;
+        }
+        double clamped = Math.max(0, Math.min(1, relevance));
+        return interestCost + (int) Math.round((1 - clamped) * COST_SKILL_MISMATCH);
+    }
+
+    /**
+     * Candidate edge with the inputs that produced its cost
+     */
+    private static class Edge {
+        private final String interestLevel;
+        private final double relevance;
+        private final int cost;
+
+        Edge(String interestLevel, double relevance) {
+            this.interestLevel = interestLevel;
+            this.relevance = relevance;
+            this.cost = cost(interestLevel, relevance);
+        }
+    }
+
+    /**
+     * Bipartite flow network: proposals (one unit each) to mentors (capacity) to a sink.
+     * Nodes are numbered proposals first, then mentors, then the sink.
+     */
+    static class FlowNetwork {
+        private final int proposals;
+        private final int sink;
+        private final int[] capacity;
+        private final int[] load;
+        private final List<int[]> edges = new ArrayList<>();
+        private int[] edgeStart;
+        private int[] edgeMentor;
+        private int[] edgeCost;
+        // Mentor index and edge cost of each proposal's current assignment
+        final int[] match;
+        private final int[] matchCost;
+        // Proposals currently assigned to each mentor
+        private final List<List<Integer>> assigned = new ArrayList<>();
+        private final long[] potential;
+        private final long[] dist;
+        private final int[] prev;
+        private final int[] prevCost;
+        private final int[] stamp;
+        private int round;
+
+        /**
+         * Constructor
+         * @param proposals Number of proposals
+         * @param capacity Free places per mentor
+         */
+        FlowNetwork(int proposals, int[] capacity) {
+            this.proposals = proposals;
+            this.capacity = capacity;
+            this.load = new int[capacity.length];
+            this.sink = proposals + capacity.length;
+            this.match = new int[proposals];
+            this.matchCost = new int[proposals];
+            Arrays.fill(match, -1);
+            for (int i = 0; i < capacity.length; i++) {
+                assigned.add(new ArrayList<>());
+            }
+            int nodes = sink + 1;
+            this.potential = new long[nodes];
+            this.dist = new long[nodes];
+            this.prev = new int[nodes];
+            this.prevCost = new int[nodes];
+            this.stamp = new int[nodes];
+        }
+
+        /**
+         * Add a candidate edge
+         * @param proposal Proposal index
+         * @param mentor Mentor index
+         * @param cost Non-negative edge cost
+         */
+        void addEdge(int proposal, int mentor, int cost) {
+            edges.add(new int[] { proposal, mentor, cost });
+        }
+
+        /**
+         * Place every proposal in order along a shortest augmenting path
+         */
+        void solve() {
+            // Compact the edges into arrays indexed by proposal
+            edgeStart = new int[proposals + 1];
+            for (int[] edge : edges) {
+                edgeStart[edge[0] + 1]++;
+            }
+            for (int p = 0; p < proposals; p++) {
+                edgeStart[p + 1] += edgeStart[p];
+            }
+            edgeMentor = new int[edges.size()];
+            edgeCost = new int[edges.size()];
+            int[] fill = Arrays.copyOf(edgeStart, proposals);
+            for (int[] edge : edges) {
+                int slot = fill[edge[0]]++;
+                edgeMentor[slot] = edge[1];
+                edgeCost[slot] = edge[2];
+            }
+            edges.clear();
+
+            for (int p = 0; p < proposals; p++) {
+                augment(p);
+            }
+        }
+
+        /**
+         * Route one new proposal to the sink along the cheapest residual path
+         * @param source Proposal index
+         */
+        private void augment(int source) {
+            if (edgeStart[source] == edgeStart[source + 1]) {
+                return;
+            }
+            // The new proposal has no incoming residual edges; pick a potential that
+            // keeps the reduced cost of all its outgoing edges non-negative
+            long start = Long.MIN_VALUE;
+            for (int e = edgeStart[source]; e < edgeStart[source + 1]; e++) {
+                start = Math.max(start, potential[proposals + edgeMentor[e]] - edgeCost[e]);
+            }
+            potential[source] = start;
+
+            round++;
+            PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            visit(source, 0, -1, 0, queue);
+            long sinkDist = -1;
+            boolean[] done = new boolean[sink + 1];
+
+            while (!queue.isEmpty()) {
+                long[] top = queue.poll();
+                int u = (int) top[1];
+                if (done[u] || top[0] > dist[u]) {
+                    continue;
+                }
+                done[u] = true;
+                if (u == sink) {
+                    sinkDist = dist[u];
+                    break;
+                }
+
+                if (u < proposals) {
+                    for (int e = edgeStart[u]; e < edgeStart[u + 1]; e++) {
+                        int m = edgeMentor[e];
+                        if (m == match[u]) {
+                            continue;
+                        }
+                        int v = proposals + m;
+                        visit(v, dist[u] + edgeCost[e] + potential[u] - potential[v], u, edgeCost[e], queue);
+                    }
+                } else {
+                    int m = u - proposals;
+                    if (load[m] < capacity[m]) {
+                        visit(sink, dist[u] + potential[u] - potential[sink], u, 0, queue);
+                    }
+                    for (int q : assigned.get(m)) {
+                        visit(q, dist[u] - matchCost[q] + potential[u] - potential[q], u, 0, queue);
+                    }
+                }
+            }
+
+            if (sinkDist < 0) {
+                // No free place is reachable; leave the proposal unassigned
+                return;
+            }
+
+            // Keep reduced costs non-negative for the next search
+            for (int v = 0; v <= sink; v++) {
+                potential[v] += done[v] ? dist[v] : sinkDist;
+            }
+
+            // Flip the path: the last mentor gains a mentee, every other proposal on it moves
+            int mentorNode = prev[sink];
+            load[mentorNode - proposals]++;
+            while (true) {
+                int proposal = prev[mentorNode];
+                int mentor = mentorNode - proposals;
+                int previous = match[proposal];
+                if (previous >= 0) {
+                    assigned.get(previous).remove(Integer.valueOf(proposal));
+                }
+                match[proposal] = mentor;
+                matchCost[proposal] = prevCost[mentorNode];
+                assigned.get(mentor).add(proposal);
+                if (proposal == source) {
+                    break;
+                }
+                mentorNode = proposals + previous;
+            }
+        }
+
+        private void visit(int v, long d, int from, int cost, PriorityQueue<long[]> queue) {
+            if (stamp[v] != round || d < dist[v]) {
+                stamp[v] = round;
+                dist[v] = d;
+                prev[v] = from;
+                prevCost[v] = cost;
+                queue.add(new long[] { d, v });
+            }
+        }
+    }
+
+    /**
+     * One planned assignment
+     */
+    public static class Match {
+        private final MentorAssignment assignment;
+        private final int cost;
+        private final String interestLevel;
+        private final double relevance;
+
+        Match(MentorAssignment assignment, int cost, String interestLevel, double relevance) {
+            this.assignment = assignment;
+            this.cost = cost;
+            this.interestLevel = interestLevel;
+            this.relevance = relevance;
+        }
+
+        /**
+         * Get the assignment to create, with its mentor and proposal set
+         * @return Assignment
+         */
+        public MentorAssignment getAssignment() {
+            return assignment;
+        }
+
+        /**
+         * Get the edge cost of this assignment
+         * @return Cost; lower is better
+         */
+        public int getCost() {
+            return cost;
+        }
+
+        /**
+         * Get the interest the mentor expressed in the proposal
+         * @return Interest level, or null if none
+         */
+        public String getInterestLevel() {
+            return interestLevel;
+        }
+
+        /**
+         * Get the skill similarity between mentor and proposal
+         * @return Cosine similarity between 0 and 1
+         */
+        public double getRelevance() {
+            return relevance;
+        }
+    }
+
+    /**
+     * Result of a solver run
+     */
+    public static class Plan {
+        private final List<Match> matches = new ArrayList<>();
+        private final List<ProjectProposal> unassigned = new ArrayList<>();
+        private long totalCost;
+        private long elapsedMillis;
+
+        /**
+         * Get the planned assignments
+         * @return Matches in proposal priority order
+         */
+        public List<Match> getMatches() {
+            return matches;
+        }
+
+        /**
+         * Get the proposals that could not be placed
+         * @return Unassigned proposals
+         */
+        public List<ProjectProposal> getUnassigned() {
+            return unassigned;
+        }
+
+        /**
+         * Get the objective value: the sum of the edge costs of all matches
+         * @return Total cost; lower is better
+         */
+        public long getTotalCost() {
+            return totalCost;
+        }
+
+        /**
+         * Get the average cost per assigned proposal
+         * @return Average cost, or 0 if nothing was assigned
+         */
+        public double getAverageCost() {
+            return matches.isEmpty() ? 0 : (double) totalCost / matches.size();
+        }
+
+        /**
+         * Get how long loading and solving took
+         * @return Elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Get the assignments to insert
+         * @return Assignments
+         */
+        public List<MentorAssignment> getAssignments() {
+            List<MentorAssignment> assignments = new ArrayList<>(matches.size());
+            for (Match match : matches) {
+                assignments.add(match.getAssignment());
+            }
+            return assignments;
+        }
+    }
+}
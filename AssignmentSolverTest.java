@@ -0,0 +1,137 @@
+package service;
+
+import java.util.Random;
+
+/**
+ * Brute-force check of the min-cost flow in AssignmentSolver.
+ * Builds small random networks and compares the solver with an exhaustive
+ * search: the placed proposals must be the oldest-first set that fits, and no
+ * other way of placing exactly that set may cost less.
+ */
+public class AssignmentSolverTest {
+
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.currentTimeMillis();
+        Random random = new Random(seed);
+        System.out.println("Checking " + ROUNDS + " random networks, seed " + seed);
+
+        int failures = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            if (!checkRandomNetwork(random, round)) {
+                failures++;
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("All " + ROUNDS + " networks match the brute-force result");
+        } else {
+            System.out.println(failures + " of " + ROUNDS + " networks differ from the brute-force result");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Solve one random network both ways and compare
+     * @param random Random source
+     * @param round Round number for the error message
+     * @return true if the results agree
+     */
+    private static boolean checkRandomNetwork(Random random, int round) {
+        int proposals = 1 + random.nextInt(7);
+        int mentors = 1 + random.nextInt(4);
+        int[] capacity = new int[mentors];
+        for (int m = 0; m < mentors; m++) {
+            capacity[m] = random.nextInt(3);
+        }
+        // cost[p][m] < 0 means no edge
+        int[][] cost = new int[proposals][mentors];
+        for (int p = 0; p < proposals; p++) {
+            for (int m = 0; m < mentors; m++) {
+                cost[p][m] = random.nextInt(3) == 0 ? -1 : AssignmentSolver.cost(
+                        new String[] { "high", "medium", "low", null }[random.nextInt(4)], random.nextDouble());
+            }
+        }
+
+        AssignmentSolver.FlowNetwork network = new AssignmentSolver.FlowNetwork(proposals, capacity.clone());
+        for (int p = 0; p < proposals; p++) {
+            for (int m = 0; m < mentors; m++) {
+                if (cost[p][m] >= 0) {
+                    network.addEdge(p, m, cost[p][m]);
+                }
+            }
+        }
+        network.solve();
+
+        int[] load = new int[mentors];
+        boolean[] placed = new boolean[proposals];
+        long solverCost = 0;
+        for (int p = 0; p < proposals; p++) {
+            int m = network.match[p];
+            if (m < 0) {
+                continue;
+            }
+            if (cost[p][m] < 0 || ++load[m] > capacity[m]) {
+                System.out.println("Round " + round + ": invalid match of proposal " + p + " to mentor " + m);
+                return false;
+            }
+            placed[p] = true;
+            solverCost += cost[p][m];
+        }
+
+        // Oldest first: keep a proposal if it fits together with those kept so far
+        boolean[] expected = new boolean[proposals];
+        for (int p = 0; p < proposals; p++) {
+            expected[p] = true;
+            if (cheapest(cost, capacity, expected, 0, new int[mentors]) < 0) {
+                expected[p] = false;
+            }
+        }
+        long bestCost = cheapest(cost, capacity, expected, 0, new int[mentors]);
+
+        for (int p = 0; p < proposals; p++) {
+            if (placed[p] != expected[p]) {
+                System.out.println("Round " + round + ": proposal " + p + " placed=" + placed[p]
+                        + ", expected " + expected[p]);
+                return false;
+            }
+        }
+        if (solverCost != bestCost) {
+            System.out.println("Round " + round + ": cost " + solverCost + ", brute force found " + bestCost);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the cheapest way to place exactly the chosen proposals
+     * @param cost Edge costs, negative for no edge
+     * @param capacity Places per mentor
+     * @param chosen Proposals that must be placed
+     * @param p First proposal still to place
+     * @param load Places used so far per mentor
+     * @return Lowest total cost, or -1 if the proposals do not fit
+     */
+    private static long cheapest(int[][] cost, int[] capacity, boolean[] chosen, int p, int[] load) {
+        if (p == chosen.length) {
+            return 0;
+        }
+        if (!chosen[p]) {
+            return cheapest(cost, capacity, chosen, p + 1, load);
+        }
+        long best = -1;
+        for (int m = 0; m < capacity.length; m++) {
+            if (cost[p][m] < 0 || load[m] == capacity[m]) {
+                continue;
+            }
+            load[m]++;
+            long rest = cheapest(cost, capacity, chosen, p + 1, load);
+            load[m]--;
+            if (rest >= 0 && (best < 0 || cost[p][m] + rest < best)) {
+                best = cost[p][m] + rest;
+            }
+        }
+        return best;
+    }
+}
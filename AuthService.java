@@ -3,9 +3,11 @@ package service;
 import dao.UserDAO;
 import dao.StudentDAO;
 import dao.MentorDAO;
+import dao.DuplicateValueException;
 import model.User;
 import model.Student;
 import model.Mentor;
+import util.ConnectionContext;
 import util.PasswordUtil;
 
 /**
@@ -33,14 +35,59 @@ public class AuthService {
      */
     public User authenticate(String username, String password) {
         User user = userDAO.getUserByUsername(username);
+        // Hashing may queue for seconds; do not keep a pooled connection meanwhile
+        ConnectionContext.release();
+        if (user == null) {
+            // Take as long as a wrong password would, so unknown usernames cannot be told apart by timing
+            PasswordUtil.verifyDummy(password);
+            return null;
+        }
         
-        if (user != null && PasswordUtil.verifyPassword(password, user.getPassword())) {
+        if (PasswordUtil.verifyPassword(password, user.getPassword())) {
+            if (PasswordUtil.needsRehash(user.getPassword())) {
+                upgradePassword(user, password);
+            }
             return user;
         }
         
         return null;
     }
     
+    /**
+     * Replace a plain text or outdated password hash after a successful login.
+     * Failures are only logged; the login itself has already succeeded.
+     * @param user Authenticated user
+     * @param password Plain text password that was just verified
+     */
+    private void upgradePassword(User user, String password) {
+        try {
+            String hash = PasswordUtil.hashPassword(password);
+            if (userDAO.updatePasswordHash(user.getUserId(), user.getPassword(), hash)) {
+                user.setPassword(hash);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not rehash password for user " + user.getUserId() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Check whether a username can still be registered
+     * @param username Username
+     * @return true if the username is free, false otherwise
+     */
+    public boolean isUsernameAvailable(String username) {
+        return !userDAO.isUsernameTaken(username);
+    }
+    
+    /**
+     * Check whether an email address can still be registered
+     * @param email Email address
+     * @return true if the email is free, false otherwise
+     */
+    public boolean isEmailAvailable(String email) {
+        return !userDAO.isEmailTaken(email);
+    }
+    
     /**
      * Register a new student
      * @param username Username
@@ -52,45 +99,45 @@ public class AuthService {
      * @param major Major
      * @param graduationYear Graduation year
      * @return User object if registration is successful, null otherwise
+     * @throws DuplicateValueException if a unique value is already in use; nothing is written
      */
     public User registerStudent(String username, String password, String email, String firstName, 
                                String lastName, String studentNumber, String major, int graduationYear) {
-        // Check if username or email already exists
-        if (userDAO.getUserByUsername(username) != null || userDAO.getUserByEmail(email) != null) {
-            return null;
-        }
-        
-        // Create user
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword(PasswordUtil.hashPassword(password));
-        user.setEmail(email);
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setRole("student");
-        
-        User createdUser = userDAO.createUser(user);
-        
-        if (createdUser != null) {
-            // Create student profile
-            Student student = new Student();
-            student.setUserId(createdUser.getUserId());
-            student.setStudentNumber(studentNumber);
-            student.setMajor(major);
-            student.setGraduationYear(graduationYear);
+        // Hash before opening the transaction so no connection is held while it runs
+        String passwordHash = PasswordUtil.hashPassword(password);
+        // One transaction; the unique constraints on username, email and student
+        // number reject duplicates, so there is no check-then-insert race
+        return ConnectionContext.inTransaction(() -> {
+            // Create user
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(passwordHash);
+            user.setEmail(email);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+            user.setRole("student");
             
-            Student createdStudent = studentDAO.createStudent(student);
+            User createdUser = userDAO.createUser(user);
             
-            if (createdStudent != null) {
-                return createdUser;
-            } else {
-                // Rollback user creation if student profile creation fails
-                userDAO.deleteUser(createdUser.getUserId());
-                return null;
+            if (createdUser != null) {
+                // Create student profile
+                Student student = new Student();
+                student.setUserId(createdUser.getUserId());
+                student.setStudentNumber(studentNumber);
+                student.setMajor(major);
+                student.setGraduationYear(graduationYear);
+                
+                Student createdStudent = studentDAO.createStudent(student);
+                
+                if (createdStudent != null) {
+                    return createdUser;
+                }
             }
-        }
-        
-        return null;
+            
+            // Roll back the user row if the student profile could not be created
+            ConnectionContext.setRollbackOnly();
+            return null;
+        });
     }
     
     /**
@@ -104,45 +151,48 @@ public class AuthService {
      * @param specialization Specialization
      * @param maxMentees Maximum number of mentees
      * @return User object if registration is successful, null otherwise
+     * @throws DuplicateValueException if a unique value is already in use; nothing is written
      */
     public User registerMentor(String username, String password, String email, String firstName, 
                               String lastName, String department, String specialization, int maxMentees) {
-        // Check if username or email already exists
-        if (userDAO.getUserByUsername(username) != null || userDAO.getUserByEmail(email) != null) {
-            return null;
-        }
-        
-        // Create user
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword(PasswordUtil.hashPassword(password));
-        user.setEmail(email);
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setRole("mentor");
-        
-        User createdUser = userDAO.createUser(user);
-        
-        if (createdUser != null) {
-            // Create mentor profile
-            Mentor mentor = new Mentor();
-            mentor.setUserId(createdUser.getUserId());
-            mentor.setDepartment(department);
-            mentor.setSpecialization(specialization);
-            mentor.setMaxMentees(maxMentees);
+        // Hash before opening the transaction so no connection is held while it runs
+        String passwordHash = PasswordUtil.hashPassword(password);
+        // One transaction; the unique constraints on username and email
+        // reject duplicates, so there is no check-then-insert race
+        return ConnectionContext.inTransaction(() -> {
+            // Create user
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(passwordHash);
+            user.setEmail(email);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+            user.setRole("mentor");
             
-            Mentor createdMentor = mentorDAO.createMentor(mentor);
+            User createdUser = userDAO.createUser(user);
             
-            if (createdMentor != null) {
-                return createdUser;
-            } else {
-                // Rollback user creation if mentor profile creation fails
-                userDAO.deleteUser(createdUser.getUserId());
-                return null;
+            if (createdUser != null) {
+                // Create mentor profile
+                Mentor mentor = new Mentor();
+                mentor.setUserId(createdUser.getUserId());
+                mentor.setDepartment(department);
+                mentor.setSpecialization(specialization);
+                mentor.setMaxMentees(maxMentees);
+                
+                Mentor createdMentor = mentorDAO.createMentor(mentor);
+                
+                if (createdMentor != null) {
+                    // Make the new mentor recommendable once the registration commits
+                    ConnectionContext.afterTransaction(
+                            () -> MentorRecommender.getInstance().refreshMentor(createdMentor.getMentorId()));
+                    return createdUser;
+                }
             }
-        }
-        
-        return null;
+            
+            // Roll back the user row if the mentor profile could not be created
+            ConnectionContext.setRollbackOnly();
+            return null;
+        });
     }
     
     /**
@@ -154,6 +204,8 @@ public class AuthService {
      */
     public boolean updatePassword(int userId, String currentPassword, String newPassword) {
         User user = userDAO.getUserById(userId);
+        // Hashing may queue for seconds; do not keep a pooled connection meanwhile
+        ConnectionContext.release();
         
         if (user != null && PasswordUtil.verifyPassword(currentPassword, user.getPassword())) {
             user.setPassword(PasswordUtil.hashPassword(newPassword));
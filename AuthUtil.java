@@ -0,0 +1,171 @@
+package util;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import model.SessionPrincipal;
+import model.User;
+import service.TokenService;
+
+/**
+ * Utility class for signing users in and out and resolving the current user.
+ * In the default mode the SessionPrincipal lives in the HTTP session under "user".
+ * In stateless mode (see TokenService) it travels in a signed token cookie.
+ */
+public class AuthUtil {
+    // Request attribute caching the principal resolved for the current request
+    public static final String PRINCIPAL_ATTRIBUTE = "principal";
+    // Request attribute caching the verified token in stateless mode
+    private static final String TOKEN_ATTRIBUTE = "authToken";
+    
+    /**
+     * Get the logged-in user for a request
+     * @param request HTTP request
+     * @return SessionPrincipal or null if nobody is logged in
+     */
+    public static SessionPrincipal getPrincipal(HttpServletRequest request) {
+        Object resolved = request.getAttribute(PRINCIPAL_ATTRIBUTE);
+        if (resolved instanceof SessionPrincipal) {
+            return (SessionPrincipal) resolved;
+        }
+        
+        SessionPrincipal principal = null;
+        TokenService tokens = TokenService.getInstance();
+        if (tokens.isEnabled()) {
+            TokenSigner.Token token = tokens.verify(readCookie(request, tokens.getCookieName()));
+            if (token != null) {
+                request.setAttribute(TOKEN_ATTRIBUTE, token);
+                principal = token.getPrincipal();
+            }
+        } else {
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                principal = (SessionPrincipal) session.getAttribute("user");
+            }
+        }
+        
+        if (principal != null) {
+            request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+        }
+        return principal;
+    }
+    
+    /**
+     * Sign a user in
+     * @param request HTTP request
+     * @param response HTTP response
+     * @param user Authenticated user
+     */
+    public static void signIn(HttpServletRequest request, HttpServletResponse response, User user) {
+        setPrincipal(request, response, SessionPrincipal.of(user));
+    }
+    
+    /**
+     * Replace the logged-in principal, e.g. after a profile change
+     * @param request HTTP request
+     * @param response HTTP response
+     * @param principal New principal
+     */
+    public static void setPrincipal(HttpServletRequest request, HttpServletResponse response, SessionPrincipal principal) {
+        TokenService tokens = TokenService.getInstance();
+        if (tokens.isEnabled()) {
+            writeTokenCookie(request, response, tokens.issue(principal), tokens.getTtlSeconds());
+        } else {
+            request.getSession().setAttribute("user", principal);
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+    }
+    
+    /**
+     * Get the verified token of the current request in stateless mode
+     * @param request HTTP request
+     * @return Token, or null in session mode or if the request carries no valid token
+     */
+    public static TokenSigner.Token getToken(HttpServletRequest request) {
+        if (getPrincipal(request) == null) {
+            return null;
+        }
+        return (TokenSigner.Token) request.getAttribute(TOKEN_ATTRIBUTE);
+    }
+    
+    /**
+     * Reissue the token cookie for the same login, so active users are not logged
+     * out; the login's maximum lifetime still applies
+     * @param request HTTP request
+     * @param response HTTP response
+     * @param token Current token
+     * @param principal Principal for the new token, reloaded from the user row
+     */
+    public static void renewToken(HttpServletRequest request, HttpServletResponse response,
+                                  TokenSigner.Token token, SessionPrincipal principal) {
+        TokenService tokens = TokenService.getInstance();
+        String renewed = tokens.renew(token, principal);
+        if (renewed != null) {
+            writeTokenCookie(request, response, renewed, tokens.getTtlSeconds());
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+    }
+    
+    /**
+     * Sign the current user out, revoking the token in stateless mode
+     * @param request HTTP request
+     * @param response HTTP response
+     */
+    public static void signOut(HttpServletRequest request, HttpServletResponse response) {
+        TokenService tokens = TokenService.getInstance();
+        if (tokens.isEnabled()) {
+            tokens.revoke(readCookie(request, tokens.getCookieName()));
+            writeTokenCookie(request, response, "", 0);
+        }
+        request.removeAttribute(PRINCIPAL_ATTRIBUTE);
+        request.removeAttribute(TOKEN_ATTRIBUTE);
+        
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+    
+    /**
+     * Read a cookie value
+     * @param request HTTP request
+     * @param name Cookie name
+     * @return Cookie value or null if absent
+     */
+    private static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (name.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Write the token cookie; the header is built by hand because the Cookie API
+     * cannot set SameSite
+     * @param request HTTP request
+     * @param response HTTP response
+     * @param value Token, or empty to delete the cookie
+     * @param maxAgeSeconds Cookie lifetime, 0 to delete it
+     */
+    private static void writeTokenCookie(HttpServletRequest request, HttpServletResponse response,
+                                         String value, int maxAgeSeconds) {
+        TokenService tokens = TokenService.getInstance();
+        String path = request.getContextPath().isEmpty() ? "/" : request.getContextPath();
+        StringBuilder header = new StringBuilder();
+        header.append(tokens.getCookieName()).append('=').append(value)
+              .append("; Max-Age=").append(maxAgeSeconds)
+              .append("; Path=").append(path)
+              .append("; HttpOnly; SameSite=Lax");
+        if (tokens.isSecureCookie()) {
+            header.append("; Secure");
+        }
+        response.addHeader("Set-Cookie", header.toString());
+    }
+}
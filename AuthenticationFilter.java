@@ -11,22 +11,27 @@ import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
+import dao.UserDAO;
+import model.SessionPrincipal;
 import model.User;
+import service.TokenService;
+import util.AuthUtil;
+import util.TokenSigner;
 
 /**
  * Filter for authentication and authorization
  */
 @WebFilter(urlPatterns = {"/student/*", "/mentor/*", "/admin/*"})
 public class AuthenticationFilter implements Filter {
+    private UserDAO userDAO;
     
     /**
      * Initialize the filter
      */
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        // No initialization needed
+        userDAO = new UserDAO();
     }
     
     /**
@@ -38,20 +43,27 @@ public class AuthenticationFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         
-        // Get current session
-        HttpSession session = httpRequest.getSession(false);
+        // Resolve the logged-in user from the session, or from the token cookie in stateless mode
+        SessionPrincipal user = AuthUtil.getPrincipal(httpRequest);
         
-        // Check if user is logged in
-        boolean isLoggedIn = (session != null && session.getAttribute("user") != null);
-        
-        if (!isLoggedIn) {
+        if (user == null) {
             // User is not logged in, redirect to login page
             httpResponse.sendRedirect(httpResponse.encodeRedirectURL(httpRequest.getContextPath() + "/login"));
             return;
         }
         
+        if (TokenService.getInstance().isEnabled()) {
+            // Stateless mode trusts the signed token until it is due for renewal
+            user = renewToken(httpRequest, httpResponse, user);
+            if (user == null) {
+                httpResponse.sendRedirect(httpResponse.encodeRedirectURL(httpRequest.getContextPath() + "/login"));
+                return;
+            }
+        } else {
+            user = refreshPrincipal(httpRequest, user);
+        }
+        
         // Check if user has appropriate role for the requested URL
-        User user = (User) session.getAttribute("user");
         String requestURI = httpRequest.getRequestURI();
         
         if (requestURI.contains("/student/") && !user.getRole().equals("student") && !user.getRole().equals("admin")) {
@@ -84,6 +96,52 @@ public class AuthenticationFilter implements Filter {
         // No cleanup needed
     }
     
+    /**
+     * Replace the session principal if the user row changed since it was issued,
+     * so that role and name changes apply without logging in again
+     * @param request HTTP request
+     * @param principal Current session principal
+     * @return Up-to-date principal
+     */
+    private SessionPrincipal refreshPrincipal(HttpServletRequest request, SessionPrincipal principal) {
+        // Served from the user cache on almost every request
+        User current = userDAO.getUserById(principal.getUserId());
+        if (current == null || SessionPrincipal.versionOf(current) == principal.getVersion()) {
+            return principal;
+        }
+        SessionPrincipal refreshed = SessionPrincipal.of(current);
+        request.getSession().setAttribute("user", refreshed);
+        request.setAttribute(AuthUtil.PRINCIPAL_ATTRIBUTE, refreshed);
+        return refreshed;
+    }
+    
+    /**
+     * Reissue the token cookie once more than half of its lifetime has passed.
+     * The user is reloaded first, so role changes and deletions take effect at
+     * the next renewal.
+     * @param request HTTP request
+     * @param response HTTP response
+     * @param principal Principal from the current token
+     * @return Up-to-date principal, or null if the user no longer exists
+     */
+    private SessionPrincipal renewToken(HttpServletRequest request, HttpServletResponse response,
+                                        SessionPrincipal principal) {
+        TokenSigner.Token token = AuthUtil.getToken(request);
+        if (token == null || !token.isPastHalfLife()) {
+            return principal;
+        }
+        // Served from the user cache on almost every request
+        User current = userDAO.getUserById(principal.getUserId());
+        if (current == null) {
+            AuthUtil.signOut(request, response);
+            return null;
+        }
+        SessionPrincipal renewed = SessionPrincipal.versionOf(current) == principal.getVersion()
+                ? principal : SessionPrincipal.of(current);
+        AuthUtil.renewToken(request, response, token, renewed);
+        return renewed;
+    }
+    
     /**
      * Redirect to appropriate dashboard based on user role
      * @param response HTTP response
@@ -0,0 +1,70 @@
+package servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import service.AssignmentSolver;
+import service.ProjectService;
+
+/**
+ * Servlet for assigning mentors to all approved proposals at once
+ */
+@WebServlet("/admin/auto-assign")
+public class AutoAssignServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private ProjectService projectService;
+    
+    /**
+     * Initialize the servlet
+     */
+    @Override
+    public void init() throws ServletException {
+        projectService = new ProjectService();
+    }
+    
+    /**
+     * Handle GET requests - dry run, display the plan without saving it
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        AssignmentSolver.Plan plan = projectService.planAutoAssignment();
+        
+        // Set attributes for the view
+        request.setAttribute("plan", plan);
+        request.setAttribute("matches", plan.getMatches());
+        request.setAttribute("unassigned", plan.getUnassigned());
+        
+        // Forward to plan preview
+        request.getRequestDispatcher("/WEB-INF/views/admin/auto-assign.jsp").forward(request, response);
+    }
+    
+    /**
+     * Handle POST requests - compute the plan again and save it
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        HttpSession session = request.getSession();
+        AssignmentSolver.Plan plan = projectService.autoAssign();
+        
+        if (plan == null) {
+            session.setAttribute("error", "Proposals or mentor loads changed while the plan was being saved. Please review the plan again.");
+            response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/admin/auto-assign"));
+            return;
+        }
+        
+        String message = "Assigned " + plan.getMatches().size() + " proposals (total cost " + plan.getTotalCost() + ")";
+        if (!plan.getUnassigned().isEmpty()) {
+            message += "; " + plan.getUnassigned().size() + " could not be placed with the remaining mentor capacity";
+        }
+        session.setAttribute("message", message);
+        response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/admin/review-proposals"));
+    }
+}
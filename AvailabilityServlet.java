@@ -0,0 +1,68 @@
+package servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import service.AuthService;
+import util.LoginThrottle;
+
+/**
+ * Servlet for live username/email availability checks on the registration forms.
+ * Responds with JSON such as {"field":"username","available":true}.
+ * The answer tells whether an account exists, so lookups are rate limited per client IP.
+ */
+@WebServlet("/register/availability")
+public class AvailabilityServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private AuthService authService;
+    
+    @Override
+    public void init() throws ServletException {
+        authService = new AuthService();
+    }
+    
+    /**
+     * Handle GET requests - check the username or email parameter
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        String username = request.getParameter("username");
+        String email = request.getParameter("email");
+        
+        boolean byUsername = username != null && !username.trim().isEmpty();
+        if (!byUsername && (email == null || email.trim().isEmpty())) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "username or email is required");
+            return;
+        }
+        
+        // Limit enumeration before any filter or database work
+        LoginThrottle throttle = LoginThrottle.getInstance();
+        long retryAfter = throttle.tryLookup(throttle.clientAddress(request));
+        if (retryAfter > 0) {
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.sendError(429, "Too many availability checks, please try again later");
+            return;
+        }
+        
+        String field;
+        boolean available;
+        if (byUsername) {
+            field = "username";
+            available = authService.isUsernameAvailable(username.trim());
+        } else {
+            field = "email";
+            available = authService.isEmailAvailable(email.trim());
+        }
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write("{\"field\":\"" + field + "\",\"available\":" + available + "}");
+    }
+}
@@ -0,0 +1,127 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Collects entity IDs requested while walking a page of results and
+ * resolves them with a single multi-get call per entity type.
+ * Usage: request() every ID first, then get() them; the first get()
+ * triggers one batched load for everything requested so far.
+ * @param <V> Entity type
+ */
+public class BatchLoader<V> {
+    // Largest IN (...) list sent in one statement; bigger ID sets are chunked
+    static final int MAX_IN_LIST = 500;
+
+    private final Function<Collection<Integer>, Map<Integer, V>> batchFunction;
+    private final Set<Integer> pending = new LinkedHashSet<>();
+    private final Map<Integer, V> loaded = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param batchFunction Multi-get function, e.g. userDAO::getUsersByIds
+     */
+    public BatchLoader(Function<Collection<Integer>, Map<Integer, V>> batchFunction) {
+        this.batchFunction = batchFunction;
+    }
+
+    /**
+     * Queue an ID for the next batched load
+     * @param id Entity ID
+     * @return This loader
+     */
+    public BatchLoader<V> request(int id) {
+        if (!loaded.containsKey(id)) {
+            pending.add(id);
+        }
+        return this;
+    }
+
+    /**
+     * Queue several IDs for the next batched load
+     * @param ids Entity IDs
+     * @return This loader
+     */
+    public BatchLoader<V> requestAll(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            if (id != null) {
+                request(id);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get an entity, loading all queued IDs first if needed
+     * @param id Entity ID
+     * @return Entity or null if not found
+     */
+    public V get(int id) {
+        if (!loaded.containsKey(id)) {
+            pending.add(id);
+            dispatch();
+        }
+        return loaded.get(id);
+    }
+
+    /**
+     * Load every queued ID now
+     * @return Map of every entity loaded so far by ID
+     */
+    public Map<Integer, V> dispatch() {
+        if (!pending.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(pending);
+            pending.clear();
+            Map<Integer, V> result = batchFunction.apply(ids);
+            for (Integer id : ids) {
+                // Remember misses too so they are not queried again
+                loaded.put(id, result.get(id));
+            }
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * Split IDs into distinct chunks no larger than MAX_IN_LIST
+     * @param ids Entity IDs
+     * @return List of ID chunks
+     */
+    static List<List<Integer>> partition(Collection<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (id != null) {
+                distinct.add(id);
+            }
+        }
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_IN_LIST) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + MAX_IN_LIST)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Build a placeholder list for an IN clause
+     * @param count Number of placeholders
+     * @return String such as "?, ?, ?"
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * mightContain() never returns false for a string that was added, but may
+ * return true for one that was not, at roughly the configured rate while the
+ * number of entries stays within the expected size. Entries cannot be removed.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder entries = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param expectedEntries Number of entries the filter is sized for
+     * @param falsePositiveRate Target false positive rate, e.g. 0.01
+     */
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long n = Math.max(1, expectedEntries);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+    
+    /**
+     * Add a string
+     * @param value String to add
+     */
+    public void add(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1, h2, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        entries.increment();
+    }
+    
+    /**
+     * Check whether a string may have been added
+     * @param value String to check
+     * @return false if the string was definitely never added, true otherwise
+     */
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1, h2, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Get the number of add() calls, counting duplicates
+     * @return Number of entries added
+     */
+    public long getEntryCount() {
+        return entries.sum();
+    }
+    
+    /**
+     * Get the size of the filter
+     * @return Size in bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "BloomFilter[entries=" + getEntryCount() + ", bits=" + bitCount + ", hashes=" + hashCount + "]";
+    }
+    
+    /**
+     * Derive the i-th bit position from two base hashes (Kirsch-Mitzenmacher double hashing)
+     */
+    private long index(int h1, int h2, int i) {
+        long combined = (h1 + (long) i * h2) & Long.MAX_VALUE;
+        return combined % bitCount;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of a string, with a final avalanche step
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
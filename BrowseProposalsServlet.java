@@ -1,7 +1,6 @@
 package servlet;
 
 import java.io.IOException;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -10,11 +9,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Mentor;
+import model.Page;
 import model.ProjectProposal;
 import service.ProjectService;
 import dao.MentorDAO;
+import util.AuthUtil;
+import util.TagFilter;
 
 /**
  * Servlet for handling browsing of project proposals
@@ -42,7 +44,7 @@ public class BrowseProposalsServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get mentor profile
         Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
@@ -54,12 +56,20 @@ public class BrowseProposalsServlet extends HttpServlet {
             return;
         }
         
-        // Get approved proposals
-        List<ProjectProposal> proposals = projectService.getProposalsByStatus("approved");
+        // Get one page of approved proposals from the shared in-memory catalog,
+        // optionally narrowed to all of "tags" and any of "anyTags" (comma-separated)
+        String cursor = request.getParameter("cursor");
+        int pageSize = Page.parseSize(request.getParameter("size"));
+        TagFilter tagFilter = TagFilter.parse(request.getParameter("tags"), request.getParameter("anyTags"));
+        Page<ProjectProposal> page = projectService.getApprovedProposalsPage(cursor, pageSize, tagFilter);
         
         // Set attributes for the view
         request.setAttribute("mentor", mentor);
-        request.setAttribute("proposals", proposals);
+        request.setAttribute("proposals", page.getItems());
+        request.setAttribute("page", page);
+        request.setAttribute("nextCursor", page.getNextCursor());
+        request.setAttribute("tagFilter", tagFilter);
+        request.setAttribute("facets", projectService.getApprovedTagFacets(tagFilter));
         
         // Forward to proposals page
         request.getRequestDispatcher("/WEB-INF/views/mentor/browse-proposals.jsp").forward(request, response);
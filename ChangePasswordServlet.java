@@ -9,8 +9,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import model.SessionPrincipal;
 import model.User;
 import service.AuthService;
+import util.AuthUtil;
+import util.PasswordHasher;
 
 /**
  * Servlet for handling password changes
@@ -36,7 +39,7 @@ public class ChangePasswordServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         if (user == null) {
             // User not logged in
@@ -64,7 +67,14 @@ public class ChangePasswordServlet extends HttpServlet {
         }
         
         // Update password
-        boolean passwordUpdated = authService.updatePassword(user.getUserId(), currentPassword, newPassword);
+        boolean passwordUpdated;
+        try {
+            passwordUpdated = authService.updatePassword(user.getUserId(), currentPassword, newPassword);
+        } catch (PasswordHasher.HashingBusyException e) {
+            session.setAttribute("error", "The server is busy, please try again in a moment.");
+            response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/profile"));
+            return;
+        }
         
         if (passwordUpdated) {
             session.setAttribute("message", "Password updated successfully");
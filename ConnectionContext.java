@@ -0,0 +1,317 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound connection shared by every DAO call in one unit of work
+ * (an HTTP request or a service method).
+ * While a context is open, DBUtil.getConnection() hands out the same pooled
+ * connection each time and close() on it is a no-op; the connection goes back
+ * to the pool when the context that opened it is closed.
+ */
+public class ConnectionContext implements AutoCloseable {
+    private static final ThreadLocal<ConnectionContext> CURRENT = new ThreadLocal<>();
+
+    private final ConnectionContext owner;
+    private Connection connection;
+    private Connection shared;
+    private boolean transactional;
+    private boolean rollbackOnly;
+    private List<Runnable> afterTransaction;
+    private List<Runnable> afterCommit;
+
+    /**
+     * Constructor
+     * @param owner Context that owns the connection, or null if this is the owner
+     */
+    private ConnectionContext(ConnectionContext owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Open a connection context on the current thread, or join the one already open
+     * @return Context to close when the unit of work ends
+     */
+    public static ConnectionContext open() {
+        ConnectionContext current = CURRENT.get();
+        if (current != null) {
+            return new ConnectionContext(current);
+        }
+        ConnectionContext context = new ConnectionContext(null);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Get the context bound to the current thread
+     * @return Current context or null if none is open
+     */
+    public static ConnectionContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run work in a single database transaction.
+     * Joins the surrounding transaction if one is already active; otherwise
+     * commits when the work finishes, or rolls back if it throws or calls
+     * {@link #setRollbackOnly()}.
+     * @param work Work to run
+     * @return Result of the work, or null if the transaction could not be committed
+     */
+    public static <T> T inTransaction(Supplier<T> work) {
+        try (ConnectionContext context = open()) {
+            ConnectionContext root = context.root();
+            if (root.transactional) {
+                return work.get();
+            }
+
+            root.beginTransaction();
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException | Error e) {
+                root.endTransaction(false);
+                throw e;
+            }
+
+            if (!root.endTransaction(!root.rollbackOnly)) {
+                return null;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Mark the current transaction so that it is rolled back instead of committed
+     */
+    public static void setRollbackOnly() {
+        ConnectionContext current = CURRENT.get();
+        if (current != null && current.transactional) {
+            current.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Check whether the current thread is inside a transaction
+     * @return true if a transaction is active, false otherwise
+     */
+    public static boolean isTransactionActive() {
+        ConnectionContext current = CURRENT.get();
+        return current != null && current.root().transactional;
+    }
+    
+    /**
+     * Run an action once the current transaction commits or rolls back,
+     * or right away if no transaction is active
+     * @param action Action to run
+     */
+    public static void afterTransaction(Runnable action) {
+        ConnectionContext current = CURRENT.get();
+        if (current == null || !current.root().transactional) {
+            action.run();
+            return;
+        }
+        ConnectionContext root = current.root();
+        if (root.afterTransaction == null) {
+            root.afterTransaction = new ArrayList<>();
+        }
+        root.afterTransaction.add(action);
+    }
+    
+    /**
+     * Run an action once the current transaction commits, or right away if no
+     * transaction is active. The action is dropped if the transaction rolls back.
+     * @param action Action to run
+     */
+    public static void afterCommit(Runnable action) {
+        ConnectionContext current = CURRENT.get();
+        if (current == null || !current.root().transactional) {
+            action.run();
+            return;
+        }
+        ConnectionContext root = current.root();
+        if (root.afterCommit == null) {
+            root.afterCommit = new ArrayList<>();
+        }
+        root.afterCommit.add(action);
+    }
+    
+    /**
+     * Return the shared connection to the pool ahead of slow work that needs no
+     * database, such as password hashing. The next DAO call in this context
+     * borrows a connection again. Does nothing inside a transaction.
+     */
+    public static void release() {
+        ConnectionContext current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        ConnectionContext root = current.root();
+        if (root.transactional || root.connection == null) {
+            return;
+        }
+        DBUtil.closeConnection(root.connection);
+        root.connection = null;
+        root.shared = null;
+    }
+    
+    /**
+     * Get the shared connection, borrowing it from the pool on first use
+     * @return Connection whose close() does nothing
+     * @throws SQLException if connection fails
+     */
+    Connection getConnection() throws SQLException {
+        ConnectionContext root = root();
+        if (root.connection == null) {
+            root.connection = DBUtil.borrowFromPool();
+            if (root.transactional) {
+                root.connection.setAutoCommit(false);
+            }
+            root.shared = (Connection) Proxy.newProxyInstance(
+                    ConnectionContext.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new SharedHandler(root.connection));
+        }
+        return root.shared;
+    }
+
+    /**
+     * Close the context; the owning context returns the connection to the pool
+     */
+    @Override
+    public void close() {
+        if (owner != null) {
+            return;
+        }
+        CURRENT.remove();
+        if (connection != null) {
+            if (transactional) {
+                endTransaction(false);
+            }
+            DBUtil.closeConnection(connection);
+            connection = null;
+            shared = null;
+        }
+    }
+
+    private ConnectionContext root() {
+        return owner != null ? owner : this;
+    }
+
+    /**
+     * Switch the shared connection to manual commit
+     */
+    private void beginTransaction() {
+        transactional = true;
+        rollbackOnly = false;
+        if (connection != null) {
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Commit or roll back and switch the shared connection back to auto-commit
+     * @param commit true to commit, false to roll back
+     * @return true if the transaction was committed, false otherwise
+     */
+    private boolean endTransaction(boolean commit) {
+        transactional = false;
+        rollbackOnly = false;
+        if (connection == null) {
+            runAfterTransaction(commit);
+            return commit;
+        }
+
+        boolean committed = false;
+        try {
+            if (commit) {
+                connection.commit();
+                committed = true;
+            } else {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        runAfterTransaction(committed);
+        return committed;
+    }
+    
+    /**
+     * Run the actions registered with afterCommit(), if the transaction
+     * committed, and then those registered with afterTransaction()
+     * @param committed true if the transaction was committed
+     */
+    private void runAfterTransaction(boolean committed) {
+        List<Runnable> actions = new ArrayList<>();
+        if (committed && afterCommit != null) {
+            actions.addAll(afterCommit);
+        }
+        if (afterTransaction != null) {
+            actions.addAll(afterTransaction);
+        }
+        afterCommit = null;
+        afterTransaction = null;
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Proxy handler that keeps DAOs from closing the shared connection
+     */
+    private static class SharedHandler implements InvocationHandler {
+        private final Connection target;
+
+        SharedHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
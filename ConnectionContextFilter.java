@@ -0,0 +1,54 @@
+package filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+
+import dao.IdentityMap;
+import util.ConnectionContext;
+
+/**
+ * Filter that binds one shared database connection and one identity map to each request
+ */
+@WebFilter(urlPatterns = {"/*"})
+public class ConnectionContextFilter implements Filter {
+    
+    /**
+     * Initialize the filter
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // No initialization needed
+    }
+    
+    /**
+     * Run the request with a request-scoped connection context and identity map.
+     * The connection is only borrowed if the request actually touches the database.
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        ConnectionContext context = ConnectionContext.open();
+        IdentityMap identities = IdentityMap.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            identities.close();
+            context.close();
+        }
+    }
+    
+    /**
+     * Clean up resources
+     */
+    @Override
+    public void destroy() {
+        // No cleanup needed
+    }
+}
@@ -0,0 +1,303 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool used by DBUtil.
+ * Connections handed out are proxies: calling close() on them returns the
+ * underlying physical connection to the pool instead of closing it.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final boolean validateOnBorrow;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * Constructor
+     * @param url JDBC URL
+     * @param user Database user
+     * @param password Database password
+     * @param minSize Minimum number of idle connections kept open
+     * @param maxSize Maximum number of connections open at once
+     * @param idleTimeoutMillis Idle time after which connections above minSize are closed
+     * @param acquireTimeoutMillis Maximum time to wait for a free connection
+     * @param validationTimeoutSeconds Timeout passed to Connection.isValid on borrow
+     * @param validateOnBorrow Whether idle connections are validated before being handed out
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long idleTimeoutMillis, long acquireTimeoutMillis,
+                          int validationTimeoutSeconds, boolean validateOnBorrow) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.validateOnBorrow = validateOnBorrow;
+        this.permits = new Semaphore(this.maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if needed
+     * @return Connection whose close() returns it to the pool
+     * @throws SQLException if the pool is exhausted past the acquire timeout or connecting fails
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a database connection (maxSize=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (!validateOnBorrow || isUsable(pooled.physical)) {
+                    return pooled.lease();
+                }
+                discard(pooled);
+            }
+
+            pooled = new PooledConnection(openPhysical());
+            totalCount.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Close every idle connection and refuse further borrowing.
+     * Connections currently in use are closed as they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Get the number of connections currently handed out
+     * @return Number of active connections
+     */
+    public int getActiveCount() {
+        return totalCount.get() - idle.size();
+    }
+
+    /**
+     * Get the number of connections that can be borrowed without waiting
+     * @return Number of free permits, idle or not yet opened
+     */
+    public int getAvailableCount() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Get the number of idle connections in the pool
+     * @return Number of idle connections
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Return a physical connection to the pool
+     * @param pooled Pooled connection being released
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.physical.isClosed() || totalCount.get() > maxSize) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (pooled.physical.isReadOnly()) {
+                pooled.physical.setReadOnly(false);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close idle connections that exceeded the idle timeout, keeping at least minSize open
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalCount.get() > minSize) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+
+        // Top up to the minimum size so the next burst does not pay connection setup
+        while (!closed && totalCount.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = new PooledConnection(openPhysical());
+                totalCount.incrementAndGet();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Error opening pooled connection: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Open a new physical connection
+     * @return Connection object
+     * @throws SQLException if connection fails
+     */
+    private Connection openPhysical() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Check whether an idle connection is still alive
+     * @param conn Physical connection
+     * @return true if the connection can be handed out, false otherwise
+     */
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Close a physical connection and drop it from the pool
+     * @param pooled Pooled connection to discard
+     */
+    private void discard(PooledConnection pooled) {
+        totalCount.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    /**
+     * Physical connection tracked by the pool
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Proxy handler for a single lease; close() returns the connection to the pool once
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned.get() ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
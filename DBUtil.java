@@ -1,7 +1,6 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.io.InputStream;
@@ -10,7 +9,10 @@ import java.io.File;
 import java.io.IOException;
 
 /**
- * Database utility class for managing connections
+ * Database utility class for managing connections.
+ * Connections come from a bounded pool configured in database.properties:
+ * db.pool.minSize, db.pool.maxSize, db.pool.idleTimeoutMs, db.pool.acquireTimeoutMs,
+ * db.pool.validationTimeoutSec and db.pool.validateOnBorrow.
  */
 public class DBUtil {
     private static final String PROPERTIES_FILE = "database.properties";
@@ -19,6 +21,9 @@ public class DBUtil {
     private static String dbUser;
     private static String dbPassword;
     private static String dbDriver;
+    private static ConnectionPool pool;
+    private static int streamingFetchSize = 1000;
+    private static Properties settings = new Properties();
 
     static {
         try {
@@ -69,6 +74,7 @@ public class DBUtil {
                 dbUser = props.getProperty("db.user");
                 dbPassword = props.getProperty("db.password");
                 dbDriver = props.getProperty("db.driver");
+                settings = props;
             }
 
             // Load JDBC driver
@@ -77,6 +83,22 @@ public class DBUtil {
             System.out.println("Database URL: " + dbUrl);
             System.out.println("Database User: " + dbUser);
 
+            // MySQL Connector/J only streams rows one at a time with Integer.MIN_VALUE
+            boolean mysql = dbUrl != null && dbUrl.startsWith("jdbc:mysql:");
+            streamingFetchSize = intProperty(props, "db.streamFetchSize", mysql ? Integer.MIN_VALUE : 1000);
+
+            // Create connection pool
+            int minSize = intProperty(props, "db.pool.minSize", 2);
+            int maxSize = intProperty(props, "db.pool.maxSize", 20);
+            long idleTimeout = intProperty(props, "db.pool.idleTimeoutMs", 300000);
+            long acquireTimeout = intProperty(props, "db.pool.acquireTimeoutMs", 5000);
+            int validationTimeout = intProperty(props, "db.pool.validationTimeoutSec", 2);
+            boolean validateOnBorrow = Boolean.parseBoolean(props.getProperty("db.pool.validateOnBorrow", "true"));
+
+            pool = new ConnectionPool(dbUrl, dbUser, dbPassword, minSize, maxSize,
+                                      idleTimeout, acquireTimeout, validationTimeout, validateOnBorrow);
+            System.out.println("Connection pool created: min=" + minSize + ", max=" + maxSize);
+
         } catch (ClassNotFoundException | IOException e) {
             System.err.println("Error initializing database connection: " + e.getMessage());
             e.printStackTrace();
@@ -84,16 +106,61 @@ public class DBUtil {
     }
 
     /**
-     * Get a database connection
-     * @return Connection object
-     * @throws SQLException if connection fails
+     * Get a database connection.
+     * Inside an open ConnectionContext this is the context's shared connection;
+     * otherwise a connection is borrowed from the pool.
+     * @return Connection object; closing it returns it to the pool
+     * @throws SQLException if connection fails or the pool is exhausted
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+        ConnectionContext context = ConnectionContext.current();
+        if (context != null) {
+            return context.getConnection();
+        }
+        return borrowFromPool();
+    }
+
+    /**
+     * Get a connection of its own for a streaming read.
+     * A streaming ResultSet blocks its connection until fully read, so it must
+     * not share the request's ConnectionContext connection with other DAO calls.
+     * @return Connection object; closing it returns it to the pool
+     * @throws SQLException if connection fails or the pool is exhausted
+     */
+    public static Connection getStreamingConnection() throws SQLException {
+        return borrowFromPool();
+    }
+
+    /**
+     * Get the fetch size that makes the driver stream rows instead of buffering them
+     * @return Fetch size for forward-only, read-only streaming statements
+     */
+    public static int getStreamingFetchSize() {
+        return streamingFetchSize;
+    }
+
+    /**
+     * Get the number of pooled connections that can be borrowed without waiting
+     * @return Number of free connections, or 0 if the pool is not initialized
+     */
+    public static int getAvailableConnections() {
+        return pool != null ? pool.getAvailableCount() : 0;
+    }
+
+    /**
+     * Borrow a connection directly from the pool, bypassing any open ConnectionContext
+     * @return Connection object; closing it returns it to the pool
+     * @throws SQLException if connection fails or the pool is exhausted
+     */
+    static Connection borrowFromPool() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database connection pool not initialized");
+        }
+        return pool.getConnection();
     }
 
     /**
-     * Close a database connection
+     * Return a database connection to the pool
      * @param conn Connection to close
      */
     public static void closeConnection(Connection conn) {
@@ -105,4 +172,54 @@ public class DBUtil {
             }
         }
     }
+
+    /**
+     * Close all pooled connections, e.g. on application shutdown
+     */
+    public static void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Read an application setting from database.properties
+     * @param key Property key
+     * @param defaultValue Value used when the property is missing
+     * @return Property value
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = settings.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Read an integer application setting from database.properties
+     * @param key Property key
+     * @param defaultValue Value used when the property is missing or invalid
+     * @return Property value
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        return intProperty(settings, key, defaultValue);
+    }
+
+    /**
+     * Read an integer property, falling back to a default
+     * @param props Properties to read from
+     * @param key Property key
+     * @param defaultValue Value used when the property is missing or invalid
+     * @return Property value
+     */
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import util.DBUtil;
+
+/**
+ * Query helpers shared by the DAOs: prefixed select lists for joined queries
+ * and the chunked multi-get behind the get*ByIds methods.
+ */
+final class DaoSupport {
+    
+    /**
+     * Maps the current row of a result set to an entity
+     * @param <T> Entity type
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+    
+    private DaoSupport() {
+    }
+    
+    /**
+     * Build an aliased select list for a joined query
+     * @param columns Column names of the table
+     * @param tableAlias Alias of the table in the query
+     * @param prefix Column alias prefix read back by the prefixed mapper
+     * @return Select list such as "t.col AS prefix_col, ..."
+     */
+    static String selectColumns(String[] columns, String tableAlias, String prefix) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(tableAlias).append('.').append(column).append(" AS ").append(prefix).append(column);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Load rows by primary key, chunking very large ID sets
+     * @param table Table name
+     * @param idColumn Primary key column
+     * @param ids Entity IDs
+     * @param identityType Entity type registered in the request's identity map, or null to bypass it
+     * @param mapper Row mapper
+     * @return Map of ID to entity; IDs that were not found are absent
+     */
+    static <V> Map<Integer, V> selectByIds(String table, String idColumn, Collection<Integer> ids,
+                                           Class<V> identityType, RowMapper<V> mapper) {
+        Map<Integer, V> result;
+        List<Integer> missing = new ArrayList<>();
+        if (identityType != null) {
+            // Reuse entities already loaded in this request and only query the rest
+            result = IdentityMap.findAll(identityType, ids);
+            for (Integer id : ids) {
+                if (!result.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+        } else {
+            result = new HashMap<>();
+            missing.addAll(ids);
+        }
+        List<List<Integer>> chunks = BatchLoader.partition(missing);
+        if (chunks.isEmpty()) {
+            return result;
+        }
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            for (List<Integer> chunk : chunks) {
+                String sql = "SELECT * FROM " + table + " WHERE " + idColumn
+                        + " IN (" + BatchLoader.placeholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                rs = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    int id = rs.getInt(idColumn);
+                    V entity = mapper.map(rs);
+                    result.put(id, identityType != null ? IdentityMap.intern(identityType, id, entity) : entity);
+                }
+                rs.close();
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dashboard statistics model class
+ * Holds proposal, assignment and user counts for rendering in the views.
+ */
+public class DashboardStats {
+    private final Map<String, Integer> proposalCounts;
+    private final Map<String, Integer> assignmentCounts;
+    private final Map<String, Integer> userCounts;
+    
+    // Constructor with fields
+    public DashboardStats(Map<String, Integer> proposalCounts, Map<String, Integer> assignmentCounts,
+                          Map<String, Integer> userCounts) {
+        this.proposalCounts = Collections.unmodifiableMap(new HashMap<>(proposalCounts));
+        this.assignmentCounts = Collections.unmodifiableMap(new HashMap<>(assignmentCounts));
+        this.userCounts = Collections.unmodifiableMap(new HashMap<>(userCounts));
+    }
+    
+    // Getters
+    public Map<String, Integer> getProposalCounts() {
+        return proposalCounts;
+    }
+    
+    public Map<String, Integer> getAssignmentCounts() {
+        return assignmentCounts;
+    }
+    
+    public Map<String, Integer> getUserCounts() {
+        return userCounts;
+    }
+    
+    public int getProposalCount(String status) {
+        return count(proposalCounts, status);
+    }
+    
+    public int getAssignmentCount(String status) {
+        return count(assignmentCounts, status);
+    }
+    
+    public int getUserCount(String role) {
+        return count(userCounts, role);
+    }
+    
+    public int getPendingProposalCount() {
+        return getProposalCount("pending");
+    }
+    
+    public int getApprovedProposalCount() {
+        return getProposalCount("approved");
+    }
+    
+    public int getInProgressProposalCount() {
+        return getProposalCount("in_progress");
+    }
+    
+    public int getCompletedProposalCount() {
+        return getProposalCount("completed");
+    }
+    
+    public int getTotalProposalCount() {
+        return total(proposalCounts);
+    }
+    
+    public int getPendingAssignmentCount() {
+        return getAssignmentCount("pending");
+    }
+    
+    public int getAcceptedAssignmentCount() {
+        return getAssignmentCount("accepted");
+    }
+    
+    public int getCompletedAssignmentCount() {
+        return getAssignmentCount("completed");
+    }
+    
+    public int getStudentCount() {
+        return getUserCount("student");
+    }
+    
+    public int getMentorCount() {
+        return getUserCount("mentor");
+    }
+    
+    private static int count(Map<String, Integer> counts, String key) {
+        Integer value = counts.get(key);
+        return value != null ? value : 0;
+    }
+    
+    private static int total(Map<String, Integer> counts) {
+        int sum = 0;
+        for (int value : counts.values()) {
+            sum += value;
+        }
+        return sum;
+    }
+    
+    @Override
+    public String toString() {
+        return "DashboardStats [proposalCounts=" + proposalCounts + ", assignmentCounts=" + assignmentCounts
+                + ", userCounts=" + userCounts + "]";
+    }
+}
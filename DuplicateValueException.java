@@ -0,0 +1,65 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by insert methods when a row violates a unique constraint,
+ * e.g. a username that was registered by a concurrent request.
+ * Callers inside ConnectionContext.inTransaction() get the whole transaction rolled back.
+ */
+public class DuplicateValueException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    // MySQL error code for a duplicate key
+    private static final int MYSQL_DUPLICATE_KEY = 1062;
+    // Standard SQLSTATE for a unique violation (PostgreSQL, H2, Derby)
+    private static final String UNIQUE_VIOLATION = "23505";
+    
+    private final String column;
+    
+    /**
+     * Constructor
+     * @param column Column whose value is already in use, or null if unknown
+     * @param cause Exception reported by the driver
+     */
+    public DuplicateValueException(String column, SQLException cause) {
+        super("Duplicate value for " + (column != null ? column : "a unique key"), cause);
+        this.column = column;
+    }
+    
+    /**
+     * Get the column whose value is already in use
+     * @return Column name, or null if the driver message did not say
+     */
+    public String getColumn() {
+        return column;
+    }
+    
+    /**
+     * Check whether an SQLException is a unique constraint violation
+     * @param e Exception reported by the driver
+     * @return true for duplicate keys, false for any other error
+     */
+    static boolean isDuplicate(SQLException e) {
+        return e.getErrorCode() == MYSQL_DUPLICATE_KEY || UNIQUE_VIOLATION.equals(e.getSQLState());
+    }
+    
+    /**
+     * Build the exception for a unique constraint violation, naming the column
+     * when the driver message mentions one of the candidates (e.g. "for key 'users.username'")
+     * @param e Exception reported by the driver
+     * @param columns Unique columns of the table
+     * @return Exception to throw
+     */
+    static DuplicateValueException of(SQLException e, String... columns) {
+        String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
+        int key = message.lastIndexOf("key");
+        String constraint = key >= 0 ? message.substring(key) : message;
+        for (String column : columns) {
+            if (constraint.contains(column)) {
+                return new DuplicateValueException(column, e);
+            }
+        }
+        return new DuplicateValueException(null, e);
+    }
+}
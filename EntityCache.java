@@ -0,0 +1,247 @@
+package dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import util.ConnectionContext;
+
+/**
+ * Bounded second-level cache for single-entity lookups, with a time-to-live
+ * and least-recently-used eviction.
+ * The cache is split into independently locked segments, so concurrent
+ * requests only contend when they touch the same segment. Values are copied
+ * on the way in and out, so callers can modify what they get without
+ * corrupting the cache. Entries are never added while a transaction is open,
+ * so uncommitted rows cannot leak into the cache.
+ * @param <K> Key type
+ * @param <V> Entity type
+ */
+public class EntityCache<K, V> {
+    private static final int SEGMENT_COUNT = 16;
+    
+    private final String name;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final Segment<K, V>[] segments;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param name Cache name used in statistics output
+     * @param maxSize Maximum number of entries kept
+     * @param ttlMillis Time after which an entry is reloaded
+     * @param copier Function that returns a detached copy of an entity
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public EntityCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.segments = new Segment[SEGMENT_COUNT];
+        int segmentSize = Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentSize);
+        }
+    }
+    
+    /**
+     * Get an entity from the cache, loading and caching it on a miss
+     * @param key Entity key
+     * @param loader Function that reads the entity from the database
+     * @return Entity, or null if the loader found nothing
+     */
+    public V get(K key, Function<K, V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        long version;
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits.increment();
+                    return copier.apply(entry.value);
+                }
+                segment.map.remove(key);
+                expirations.increment();
+            }
+            version = segment.version;
+        }
+        
+        misses.increment();
+        V value = loader.apply(key);
+        if (value == null || ConnectionContext.isTransactionActive()) {
+            return value;
+        }
+        
+        V cached = copier.apply(value);
+        synchronized (segment) {
+            // Skip the put if the segment was invalidated while we were loading
+            if (segment.version == version) {
+                segment.map.put(key, new Entry<>(cached, System.currentTimeMillis() + ttlMillis));
+                evictOverflow(segment);
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Drop an entry; repeated when the current transaction ends so that rows
+     * read by other threads before the commit do not linger
+     * @param key Entity key
+     */
+    public void invalidate(K key) {
+        remove(key);
+        if (ConnectionContext.isTransactionActive()) {
+            ConnectionContext.afterTransaction(() -> remove(key));
+        }
+    }
+    
+    /**
+     * Drop every entry whose value matches a condition
+     * @param condition Condition on cached values
+     */
+    public void invalidateIf(Predicate<V> condition) {
+        removeIf(condition);
+        if (ConnectionContext.isTransactionActive()) {
+            ConnectionContext.afterTransaction(() -> removeIf(condition));
+        }
+    }
+    
+    /**
+     * Drop every entry
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.version++;
+            }
+        }
+    }
+    
+    /**
+     * Get the number of lookups served from the cache
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    /**
+     * Get the number of lookups that went to the database
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    /**
+     * Get the number of entries dropped to stay within the size limit
+     * @return Eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Get the number of entries dropped because their time-to-live passed
+     * @return Expiration count
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+    
+    /**
+     * Get the number of entries currently cached
+     * @return Entry count
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+    
+    @Override
+    public String toString() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return "EntityCache[" + name + ", size=" + size() + ", hits=" + hitCount + ", misses=" + getMissCount()
+                + ", hitRate=" + (total == 0 ? 0 : hitCount * 100 / total) + "%"
+                + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + "]";
+    }
+    
+    private void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.map.remove(key);
+            segment.version++;
+        }
+    }
+    
+    private void removeIf(Predicate<V> condition) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.values().removeIf(entry -> condition.test(entry.value));
+                segment.version++;
+            }
+        }
+    }
+    
+    /**
+     * Drop least recently used entries until the segment is within its limit
+     * @param segment Segment to trim; caller holds its lock
+     */
+    private void evictOverflow(Segment<K, V> segment) {
+        Iterator<Map.Entry<K, Entry<V>>> it = segment.map.entrySet().iterator();
+        while (segment.map.size() > segment.maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+    
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+    
+    /**
+     * Independently locked part of the cache, kept in access order
+     */
+    private static class Segment<K, V> {
+        private final int maxSize;
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        // Bumped on every invalidation so in-flight loads can tell their result is stale
+        private long version;
+        
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+    
+    /**
+     * Cached value with its expiry time
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+
+import dao.MentorAssignmentDAO;
+import dao.MentorInterestDAO;
+import dao.ProgressUpdateDAO;
+import dao.ProjectProposalDAO;
+import model.Mentor;
+import model.Student;
+import model.User;
+import util.RecordWriter;
+
+/**
+ * Service class for admin data exports.
+ * Rows are streamed from the database straight into a RecordWriter, so an
+ * export never holds more than one row in memory.
+ */
+public class ExportService {
+    public static final String TYPE_PROPOSALS = "proposals";
+    public static final String TYPE_ASSIGNMENTS = "assignments";
+    public static final String TYPE_INTERESTS = "interests";
+    public static final String TYPE_UPDATES = "updates";
+    
+    private ProjectProposalDAO proposalDAO;
+    private MentorAssignmentDAO assignmentDAO;
+    private MentorInterestDAO interestDAO;
+    private ProgressUpdateDAO updateDAO;
+    
+    /**
+     * Constructor
+     */
+    public ExportService() {
+        this.proposalDAO = new ProjectProposalDAO();
+        this.assignmentDAO = new MentorAssignmentDAO();
+        this.interestDAO = new MentorInterestDAO();
+        this.updateDAO = new ProgressUpdateDAO();
+    }
+    
+    /**
+     * Check whether an export type is supported
+     * @param type Export type
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupportedType(String type) {
+        return TYPE_PROPOSALS.equals(type) || TYPE_ASSIGNMENTS.equals(type)
+                || TYPE_INTERESTS.equals(type) || TYPE_UPDATES.equals(type);
+    }
+    
+    /**
+     * Export one data set
+     * @param type Export type (proposals, assignments, interests or updates)
+     * @param filter Status or interest level filter, or null for all rows
+     * @param writer Writer to stream records to
+     * @return Number of records written
+     * @throws IOException if writing to the client fails
+     * @throws SQLException if reading the rows fails, possibly after some were written
+     */
+    public long export(String type, String filter, RecordWriter writer) throws IOException, SQLException {
+        try {
+            switch (type) {
+                case TYPE_PROPOSALS:
+                    return exportProposals(filter, writer);
+                case TYPE_ASSIGNMENTS:
+                    return exportAssignments(filter, writer);
+                case TYPE_INTERESTS:
+                    return exportInterests(filter, writer);
+                case TYPE_UPDATES:
+                    return exportUpdates(writer);
+                default:
+                    throw new IllegalArgumentException("Unsupported export type: " + type);
+            }
+        } catch (UncheckedIOException e) {
+            // Thrown from inside a row callback, usually because the client went away
+            throw e.getCause();
+        }
+    }
+    
+    private long exportProposals(String status, RecordWriter writer) throws IOException, SQLException {
+        writer.writeHeader("proposal_id", "title", "status", "technologies", "student_number",
+                "student_name", "submission_date", "last_updated");
+        return proposalDAO.forEachProposal(status, proposal -> {
+            Student student = proposal.getStudent();
+            write(writer, proposal.getProposalId(), proposal.getTitle(), proposal.getStatus(),
+                    proposal.getTechnologies(),
+                    student != null ? student.getStudentNumber() : null,
+                    student != null ? fullName(student.getUser()) : null,
+                    proposal.getSubmissionDate(), proposal.getLastUpdated());
+        });
+    }
+    
+    private long exportAssignments(String status, RecordWriter writer) throws IOException, SQLException {
+        writer.writeHeader("assignment_id", "status", "assigned_date", "proposal_id", "proposal_title",
+                "mentor_id", "mentor_name", "student_id", "student_name");
+        return assignmentDAO.forEachAssignment(status, assignment -> {
+            Mentor mentor = assignment.getMentor();
+            Student student = assignment.getStudent();
+            write(writer, assignment.getAssignmentId(), assignment.getStatus(), assignment.getAssignedDate(),
+                    assignment.getProposalId(),
+                    assignment.getProposal() != null ? assignment.getProposal().getTitle() : null,
+                    assignment.getMentorId(),
+                    mentor != null ? fullName(mentor.getUser()) : null,
+                    assignment.getStudentId(),
+                    student != null ? fullName(student.getUser()) : null);
+        });
+    }
+    
+    private long exportInterests(String interestLevel, RecordWriter writer) throws IOException, SQLException {
+        writer.writeHeader("interest_id", "interest_level", "comments", "created_at", "proposal_id",
+                "proposal_title", "mentor_id", "mentor_name");
+        return interestDAO.forEachInterest(interestLevel, interest -> {
+            Mentor mentor = interest.getMentor();
+            write(writer, interest.getInterestId(), interest.getInterestLevel(), interest.getComments(),
+                    interest.getCreatedAt(), interest.getProposalId(),
+                    interest.getProposal() != null ? interest.getProposal().getTitle() : null,
+                    interest.getMentorId(),
+                    mentor != null ? fullName(mentor.getUser()) : null);
+        });
+    }
+    
+    private long exportUpdates(RecordWriter writer) throws IOException, SQLException {
+        writer.writeHeader("update_id", "assignment_id", "update_type", "title", "description",
+                "created_by", "creator_name", "created_at");
+        return updateDAO.forEachUpdate(null, update -> write(writer, update.getUpdateId(),
+                update.getAssignmentId(), update.getUpdateType(), update.getTitle(), update.getDescription(),
+                update.getCreatedBy(), fullName(update.getCreator()), update.getCreatedAt()));
+    }
+    
+    /**
+     * Write a record from inside a DAO callback, which cannot throw checked exceptions
+     * @param writer Writer to write to
+     * @param values Column values
+     */
+    private static void write(RecordWriter writer, Object... values) {
+        try {
+            writer.writeRecord(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String fullName(User user) {
+        return user != null ? user.getFullName() : null;
+    }
+}
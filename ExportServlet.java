@@ -0,0 +1,122 @@
+package servlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import service.ExportService;
+import util.RecordWriter;
+
+/**
+ * Servlet for streaming admin data exports as CSV or NDJSON.
+ * Usage: /admin/export?type=proposals|assignments|interests|updates&amp;format=csv|ndjson[&amp;status=...]
+ * The response is gzip-compressed when the client accepts it and is flushed
+ * in chunks while rows are read, so large exports start downloading at once.
+ */
+@WebServlet("/admin/export")
+public class ExportServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final int BUFFER_SIZE = 8192;
+    private ExportService exportService;
+    
+    /**
+     * Initialize the servlet
+     */
+    @Override
+    public void init() throws ServletException {
+        exportService = new ExportService();
+    }
+    
+    /**
+     * Handle GET requests - stream the requested export
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        String type = request.getParameter("type");
+        String format = request.getParameter("format");
+        if (format == null || format.isEmpty()) {
+            format = RecordWriter.FORMAT_CSV;
+        }
+        String filter = request.getParameter("status");
+        if (filter != null && filter.isEmpty()) {
+            filter = null;
+        }
+        
+        if (!ExportService.isSupportedType(type)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown export type");
+            return;
+        }
+        if (!RecordWriter.FORMAT_CSV.equalsIgnoreCase(format) && !RecordWriter.FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown export format");
+            return;
+        }
+        
+        String extension = format.toLowerCase();
+        response.setContentType(RecordWriter.contentType(format));
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + type + "." + extension + "\"");
+        response.setHeader("Cache-Control", "no-store");
+        response.setBufferSize(BUFFER_SIZE);
+        
+        OutputStream out = response.getOutputStream();
+        if (acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.addHeader("Vary", "Accept-Encoding");
+            // Sync flush so every chunk flush actually reaches the client
+            out = new GZIPOutputStream(out, BUFFER_SIZE, true);
+        }
+        
+        long start = System.currentTimeMillis();
+        RecordWriter writer = RecordWriter.create(format,
+                new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+        boolean failed = false;
+        try {
+            long rows = exportService.export(type, filter, writer);
+            System.out.println("Exported " + rows + " " + type + " rows as " + extension
+                    + " in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            System.err.println("Export of " + type + " aborted after " + writer.getRecordCount()
+                    + " rows: " + e.getMessage());
+        } catch (SQLException e) {
+            failed = true;
+            System.err.println("Export of " + type + " failed after " + writer.getRecordCount()
+                    + " rows: " + e.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Export failed");
+                return;
+            }
+            // Part of the file is already out; fail the response instead of ending it like a complete file
+            throw new ServletException("Export of " + type + " failed after " + writer.getRecordCount() + " rows", e);
+        } finally {
+            if (!failed) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // Client has gone away
+                }
+            }
+        }
+    }
+    
+    /**
+     * Check whether the client accepts gzip-encoded responses
+     * @param request HTTP request
+     * @return true if gzip is accepted, false otherwise
+     */
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
@@ -9,12 +9,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Mentor;
 import model.ProjectProposal;
 import model.MentorInterest;
 import service.ProjectService;
 import dao.MentorDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling expression of interest in a proposal
@@ -42,7 +43,7 @@ public class ExpressInterestServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get mentor profile
         Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
@@ -100,7 +101,7 @@ public class ExpressInterestServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get mentor profile
         Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
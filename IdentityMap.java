@@ -0,0 +1,191 @@
+package dao;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Request-scoped identity map: while one is open, each (entity type, ID) is
+ * loaded at most once and every DAO lookup of it returns the same instance,
+ * so graphs built in one request share their users, students and mentors.
+ * The map is bound to the current thread; ParallelLoader shares it with its
+ * branches, so the backing map is thread-safe.
+ * Streaming reads do not register their rows, so large exports keep a flat heap.
+ */
+public class IdentityMap implements AutoCloseable {
+    private static final ThreadLocal<IdentityMap> CURRENT = new ThreadLocal<>();
+    
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Integer, Object>> entities;
+    private final boolean bound;
+    // Map hidden by detach(), restored on close
+    private final IdentityMap hidden;
+    
+    /**
+     * Constructor
+     * @param entities Backing storage, shared by every handle of the same map
+     * @param bound Whether this handle bound the map to the thread and must unbind it
+     * @param hidden Map to bind again on close, or null
+     */
+    private IdentityMap(ConcurrentMap<Class<?>, ConcurrentMap<Integer, Object>> entities, boolean bound,
+                        IdentityMap hidden) {
+        this.entities = entities;
+        this.bound = bound;
+        this.hidden = hidden;
+    }
+    
+    /**
+     * Open an identity map on the current thread, or join the one already open
+     * @return Handle to close when the request ends
+     */
+    public static IdentityMap open() {
+        IdentityMap current = CURRENT.get();
+        if (current != null) {
+            return new IdentityMap(current.entities, false, null);
+        }
+        IdentityMap map = new IdentityMap(new ConcurrentHashMap<>(), true, null);
+        CURRENT.set(map);
+        return map;
+    }
+    
+    /**
+     * Get the identity map bound to the current thread
+     * @return Current map or null if none is open
+     */
+    public static IdentityMap current() {
+        return CURRENT.get();
+    }
+    
+    /**
+     * Bind another thread's identity map to the current thread, e.g. in a worker
+     * @param shared Map to share, or null to leave the thread without one
+     * @return Handle to close when the work ends
+     */
+    public static IdentityMap join(IdentityMap shared) {
+        if (shared == null || CURRENT.get() != null) {
+            return new IdentityMap(new ConcurrentHashMap<>(), false, null);
+        }
+        IdentityMap map = new IdentityMap(shared.entities, true, null);
+        CURRENT.set(map);
+        return map;
+    }
+    
+    /**
+     * Open a separate identity map on the current thread, hiding the one already
+     * open until it is closed, e.g. to load entities that outlive the request
+     * @return Handle to close when the loading ends
+     */
+    public static IdentityMap detach() {
+        IdentityMap map = new IdentityMap(new ConcurrentHashMap<>(), true, CURRENT.get());
+        CURRENT.set(map);
+        return map;
+    }
+    
+    /**
+     * Unbind the map from the current thread if this handle bound it
+     */
+    @Override
+    public void close() {
+        if (bound) {
+            if (hidden != null) {
+                CURRENT.set(hidden);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    /**
+     * Get the number of entities registered in this map
+     * @return Entity count
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Integer, Object> byId : entities.values()) {
+            size += byId.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Look up an already-loaded entity
+     * @param type Entity class
+     * @param id Entity ID
+     * @return Registered instance, or null if none is open or the entity was not loaded yet
+     */
+    static <T> T find(Class<T> type, int id) {
+        Map<Integer, Object> byId = table(type);
+        return byId != null ? type.cast(byId.get(id)) : null;
+    }
+    
+    /**
+     * Look up several already-loaded entities
+     * @param type Entity class
+     * @param ids Entity IDs
+     * @return Map of ID to registered instance for the IDs that were found
+     */
+    static <T> Map<Integer, T> findAll(Class<T> type, Collection<Integer> ids) {
+        Map<Integer, T> found = new HashMap<>();
+        Map<Integer, Object> byId = table(type);
+        if (byId != null) {
+            for (Integer id : ids) {
+                Object entity = id != null ? byId.get(id) : null;
+                if (entity != null) {
+                    found.put(id, type.cast(entity));
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Register an entity, or return the instance already registered for its ID
+     * @param type Entity class
+     * @param id Entity ID
+     * @param entity Freshly loaded entity, may be null
+     * @return Canonical instance for this request
+     */
+    static <T> T intern(Class<T> type, int id, T entity) {
+        if (entity == null) {
+            return null;
+        }
+        Map<Integer, Object> byId = table(type);
+        if (byId == null) {
+            return entity;
+        }
+        Object existing = byId.putIfAbsent(id, entity);
+        return existing != null ? type.cast(existing) : entity;
+    }
+    
+    /**
+     * Forget an entity, e.g. after it was updated or deleted
+     * @param type Entity class
+     * @param id Entity ID
+     */
+    static void evict(Class<?> type, int id) {
+        Map<Integer, Object> byId = table(type);
+        if (byId != null) {
+            byId.remove(id);
+        }
+    }
+    
+    /**
+     * Forget every entity of a type
+     * @param type Entity class
+     */
+    static void evictAll(Class<?> type) {
+        Map<Integer, Object> byId = table(type);
+        if (byId != null) {
+            byId.clear();
+        }
+    }
+    
+    private static ConcurrentMap<Integer, Object> table(Class<?> type) {
+        IdentityMap current = CURRENT.get();
+        if (current == null) {
+            return null;
+        }
+        return current.entities.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+    }
+}
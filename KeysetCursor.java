@@ -0,0 +1,62 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination, holding the (sort key, id) of the
+ * last row of a page. The next page seeks past that position.
+ */
+class KeysetCursor {
+    private final String sortKey;
+    private final int id;
+    
+    /**
+     * Constructor
+     * @param sortKey Sort key value of the last row, as a string
+     * @param id Primary key of the last row
+     */
+    KeysetCursor(String sortKey, int id) {
+        this.sortKey = sortKey != null ? sortKey : "";
+        this.id = id;
+    }
+    
+    String getSortKey() {
+        return sortKey;
+    }
+    
+    int getId() {
+        return id;
+    }
+    
+    /**
+     * Encode the cursor for use in URLs
+     * @return URL-safe cursor string
+     */
+    String encode() {
+        String raw = id + ":" + sortKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a cursor string
+     * @param cursor Cursor string from a previous page, may be null
+     * @return KeysetCursor, or null for the first page or an invalid cursor
+     */
+    static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                return null;
+            }
+            return new KeysetCursor(raw.substring(separator + 1), Integer.parseInt(raw.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            // Malformed cursor, start from the first page
+            return null;
+        }
+    }
+}
@@ -7,10 +7,13 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
+import model.SessionPrincipal;
 import model.User;
 import service.AuthService;
+import util.AuthUtil;
+import util.LoginThrottle;
+import util.PasswordHasher;
 
 /**
  * Servlet for handling user login
@@ -35,10 +38,9 @@ public class LoginServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         // Check if user is already logged in
-        HttpSession session = request.getSession(false);
-        if (session != null && session.getAttribute("user") != null) {
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
+        if (user != null) {
             // Redirect to appropriate dashboard based on user role
-            User user = (User) session.getAttribute("user");
             redirectToDashboard(response, user.getRole());
             return;
         }
@@ -64,18 +66,41 @@ public class LoginServlet extends HttpServlet {
             return;
         }
 
+        // Turn away brute-force bursts before touching the database
+        LoginThrottle throttle = LoginThrottle.getInstance();
+        String address = throttle.clientAddress(request);
+        long retryAfter = throttle.tryAcquire(username, address);
+        if (retryAfter > 0) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            request.setAttribute("error", "Too many login attempts. Please try again in " + retryAfter + " seconds.");
+            request.getRequestDispatcher("/WEB-INF/views/login.jsp").forward(request, response);
+            return;
+        }
+
         // Authenticate user
-        User user = authService.authenticate(username, password);
+        User user;
+        try {
+            user = authService.authenticate(username, password);
+        } catch (PasswordHasher.HashingBusyException e) {
+            // Fail closed instead of queueing more hashing work
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            request.setAttribute("error", "The server is busy, please try again in a moment");
+            request.getRequestDispatcher("/WEB-INF/views/login.jsp").forward(request, response);
+            return;
+        }
 
         if (user != null) {
-            // Create session and store user
-            HttpSession session = request.getSession();
-            session.setAttribute("user", user);
+            throttle.onSuccess(username);
+
+            // Store the principal in the session, or issue a token cookie in stateless mode
+            AuthUtil.signIn(request, response, user);
 
             // Redirect to appropriate dashboard based on user role
             redirectToDashboard(response, user.getRole());
         } else {
-            // Authentication failed
+            // Authentication failed; only failures count against the client address
+            throttle.onFailure(address);
             request.setAttribute("error", "Invalid username or password");
             request.getRequestDispatcher("/WEB-INF/views/login.jsp").forward(request, response);
         }
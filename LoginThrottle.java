@@ -0,0 +1,395 @@
+package util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * In-memory brute-force protection for the login form.
+ * Every attempt takes a token from a bucket for the username; a successful
+ * login refills it. Failed attempts also take a token from a bucket for the
+ * client IP, so a shared address (campus NAT) is only limited when its users
+ * keep getting passwords wrong. Once either bucket is empty, attempts are
+ * turned away before any database or password work is done.
+ * Buckets are kept in striped maps with a per-stripe size limit. Only buckets
+ * that have refilled completely are evicted; while a stripe is full of live
+ * buckets, new keys are turned away.
+ * Registration availability lookups, which reveal whether an account exists,
+ * take a token from a separate bucket per client IP.
+ * Settings (optional, in db.properties):
+ * auth.throttle.user.burst, auth.throttle.user.perMinute,
+ * auth.throttle.ip.burst, auth.throttle.ip.perMinute, auth.throttle.maxEntries,
+ * auth.throttle.lookup.burst, auth.throttle.lookup.perMinute,
+ * auth.throttle.trustedProxies - comma-separated addresses of load balancers
+ * whose X-Forwarded-For header is believed.
+ */
+public class LoginThrottle {
+    private static final LoginThrottle INSTANCE = new LoginThrottle(
+            new Limiter(DBUtil.getIntProperty("auth.throttle.user.burst", 5),
+                    DBUtil.getIntProperty("auth.throttle.user.perMinute", 2),
+                    DBUtil.getIntProperty("auth.throttle.maxEntries", 100000)),
+            new Limiter(DBUtil.getIntProperty("auth.throttle.ip.burst", 30),
+                    DBUtil.getIntProperty("auth.throttle.ip.perMinute", 20),
+                    DBUtil.getIntProperty("auth.throttle.maxEntries", 100000)),
+            new Limiter(DBUtil.getIntProperty("auth.throttle.lookup.burst", 20),
+                    DBUtil.getIntProperty("auth.throttle.lookup.perMinute", 10),
+                    DBUtil.getIntProperty("auth.throttle.maxEntries", 100000)),
+            parseAddresses(DBUtil.getProperty("auth.throttle.trustedProxies", "")));
+    
+    private final Limiter byUsername;
+    private final Limiter byAddress;
+    private final Limiter lookups;
+    private final Set<String> trustedProxies;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+    private final LongAdder rejectedByAddress = new LongAdder();
+    private final LongAdder rejectedLookups = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param byUsername Limiter for usernames
+     * @param byAddress Limiter for client IP addresses
+     * @param lookups Limiter for availability lookups per client IP address
+     * @param trustedProxies Addresses of proxies whose X-Forwarded-For header is believed
+     */
+    LoginThrottle(Limiter byUsername, Limiter byAddress, Limiter lookups, Set<String> trustedProxies) {
+        this.byUsername = byUsername;
+        this.byAddress = byAddress;
+        this.lookups = lookups;
+        this.trustedProxies = trustedProxies;
+    }
+    
+    /**
+     * Get the shared throttle
+     * @return LoginThrottle instance
+     */
+    public static LoginThrottle getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Resolve the client IP of a request. X-Forwarded-For is only followed
+     * through the configured trusted proxies, so clients cannot pick their own address.
+     * @param request HTTP request
+     * @return Client IP address
+     */
+    public String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || !trustedProxies.contains(address)) {
+            return address;
+        }
+        // Walk back from the proxy nearest to us; the first untrusted hop is the client
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                break;
+            }
+            address = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return address;
+    }
+    
+    /**
+     * Check the address bucket and take a login attempt from the username bucket
+     * @param username Submitted username
+     * @param address Client IP address
+     * @return 0 if the attempt may proceed, otherwise the number of seconds to wait
+     */
+    public long tryAcquire(String username, String address) {
+        long now = System.currentTimeMillis();
+        
+        long wait = byAddress.check(key(address), now);
+        if (wait > 0) {
+            rejectedByAddress.increment();
+            return toSeconds(wait);
+        }
+        wait = byUsername.tryAcquire(normalize(username), now);
+        if (wait > 0) {
+            rejectedByUsername.increment();
+            return toSeconds(wait);
+        }
+        
+        allowed.increment();
+        return 0;
+    }
+    
+    /**
+     * Take an availability lookup from the address's lookup bucket
+     * @param address Client IP address
+     * @return 0 if the lookup may proceed, otherwise the number of seconds to wait
+     */
+    public long tryLookup(String address) {
+        long wait = lookups.tryAcquire(key(address), System.currentTimeMillis());
+        if (wait > 0) {
+            rejectedLookups.increment();
+            return toSeconds(wait);
+        }
+        return 0;
+    }
+    
+    /**
+     * Forget the failed attempts of a username after a successful login
+     * @param username Username that signed in
+     */
+    public void onSuccess(String username) {
+        byUsername.reset(normalize(username));
+    }
+    
+    /**
+     * Charge a failed login to the client address
+     * @param address Client IP address
+     */
+    public void onFailure(String address) {
+        byAddress.charge(key(address), System.currentTimeMillis());
+    }
+    
+    /**
+     * Get the number of attempts let through
+     * @return Allowed attempts
+     */
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+    
+    /**
+     * Get the number of attempts rejected because of the username bucket
+     * @return Rejected attempts
+     */
+    public long getRejectedByUsernameCount() {
+        return rejectedByUsername.sum();
+    }
+    
+    /**
+     * Get the number of attempts rejected because of the address bucket
+     * @return Rejected attempts
+     */
+    public long getRejectedByAddressCount() {
+        return rejectedByAddress.sum();
+    }
+    
+    /**
+     * Get the number of availability lookups rejected
+     * @return Rejected lookups
+     */
+    public long getRejectedLookupCount() {
+        return rejectedLookups.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return "LoginThrottle[allowed=" + getAllowedCount()
+                + ", rejectedByUsername=" + getRejectedByUsernameCount()
+                + ", rejectedByAddress=" + getRejectedByAddressCount()
+                + ", rejectedLookups=" + getRejectedLookupCount()
+                + ", trackedUsernames=" + byUsername.size()
+                + ", trackedAddresses=" + byAddress.size() + "]";
+    }
+    
+    private static Set<String> parseAddresses(String list) {
+        Set<String> addresses = new HashSet<>();
+        for (String address : list.split(",")) {
+            if (!address.trim().isEmpty()) {
+                addresses.add(address.trim());
+            }
+        }
+        return Collections.unmodifiableSet(addresses);
+    }
+    
+    private static String key(String address) {
+        return address == null ? "" : address;
+    }
+    
+    private static String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+    
+    private static long toSeconds(long millis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999));
+    }
+    
+    /**
+     * Token buckets for one kind of key.
+     * Each bucket is a single AtomicLong holding the time at which it will be
+     * full again (the GCRA form of a token bucket), so taking a token is one
+     * compare-and-set and never blocks.
+     */
+    static class Limiter {
+        private static final int STRIPES = 16;
+        
+        private final long intervalMillis;
+        private final long burstMillis;
+        private final int maxPerStripe;
+        private final ConcurrentHashMap<String, AtomicLong>[] stripes;
+        // Per stripe: while full, no eviction scan before this time
+        private final AtomicLong[] nextSweep;
+        
+        /**
+         * Constructor
+         * @param burst Number of attempts allowed back to back
+         * @param perMinute Number of attempts regained per minute
+         * @param maxEntries Maximum number of keys tracked
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Limiter(int burst, int perMinute, int maxEntries) {
+            this.intervalMillis = TimeUnit.MINUTES.toMillis(1) / Math.max(1, perMinute);
+            this.burstMillis = intervalMillis * Math.max(1, burst);
+            this.maxPerStripe = Math.max(16, maxEntries / STRIPES);
+            this.stripes = new ConcurrentHashMap[STRIPES];
+            this.nextSweep = new AtomicLong[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new ConcurrentHashMap<>();
+                nextSweep[i] = new AtomicLong();
+            }
+        }
+        
+        /**
+         * Take a token for a key
+         * @param key Bucket key
+         * @param now Current time in milliseconds
+         * @return 0 if a token was taken, otherwise milliseconds until one is available
+         */
+        long tryAcquire(String key, long now) {
+            AtomicLong bucket = bucketFor(key, now);
+            if (bucket == null) {
+                return intervalMillis;
+            }
+            
+            while (true) {
+                long fullAt = bucket.get();
+                long next = Math.max(fullAt, now) + intervalMillis;
+                if (next - now > burstMillis) {
+                    return next - now - burstMillis;
+                }
+                if (bucket.compareAndSet(fullAt, next)) {
+                    return 0;
+                }
+            }
+        }
+        
+        /**
+         * Check whether a key has tokens left without taking one
+         * @param key Bucket key
+         * @param now Current time in milliseconds
+         * @return 0 if a token is available, otherwise milliseconds until one is
+         */
+        long check(String key, long now) {
+            AtomicLong bucket = stripeFor(key).get(key);
+            if (bucket == null) {
+                return 0;
+            }
+            long next = Math.max(bucket.get(), now) + intervalMillis;
+            return next - now > burstMillis ? next - now - burstMillis : 0;
+        }
+        
+        /**
+         * Take a token for a key even if none is left; an empty bucket stays
+         * empty for at most one more interval
+         * @param key Bucket key
+         * @param now Current time in milliseconds
+         */
+        void charge(String key, long now) {
+            AtomicLong bucket = bucketFor(key, now);
+            if (bucket == null) {
+                return;
+            }
+            while (true) {
+                long fullAt = bucket.get();
+                long next = Math.max(fullAt, now) + intervalMillis;
+                if (next - now > burstMillis + intervalMillis || bucket.compareAndSet(fullAt, next)) {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Refill the bucket of a key
+         * @param key Bucket key
+         */
+        void reset(String key) {
+            stripeFor(key).remove(key);
+        }
+        
+        /**
+         * Get the number of keys tracked
+         * @return Number of buckets
+         */
+        int size() {
+            int size = 0;
+            for (Map<String, AtomicLong> stripe : stripes) {
+                size += stripe.size();
+            }
+            return size;
+        }
+        
+        /**
+         * Get the bucket of a key, adding a full one if there is room
+         * @param key Bucket key
+         * @param now Current time in milliseconds
+         * @return Bucket, or null if the stripe is full of buckets still in use
+         */
+        private AtomicLong bucketFor(String key, long now) {
+            int index = stripeIndex(key);
+            ConcurrentHashMap<String, AtomicLong> stripe = stripes[index];
+            AtomicLong bucket = stripe.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (stripe.size() >= maxPerStripe && !evict(index, now)) {
+                return null;
+            }
+            return stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        
+        /**
+         * Drop buckets that are full again. Buckets that still limit someone are
+         * kept; if none can go, the stripe is not scanned again until the
+         * earliest of them is full.
+         * @param index Stripe to clean up
+         * @param now Current time in milliseconds
+         * @return true if the stripe is below its limit afterwards
+         */
+        private boolean evict(int index, long now) {
+            if (now < nextSweep[index].get()) {
+                return false;
+            }
+            ConcurrentHashMap<String, AtomicLong> stripe = stripes[index];
+            long earliest = Long.MAX_VALUE;
+            Iterator<AtomicLong> it = stripe.values().iterator();
+            while (it.hasNext()) {
+                long fullAt = it.next().get();
+                if (fullAt <= now) {
+                    it.remove();
+                } else {
+                    earliest = Math.min(earliest, fullAt);
+                }
+            }
+            if (stripe.size() < maxPerStripe) {
+                return true;
+            }
+            nextSweep[index].set(earliest);
+            return false;
+        }
+        
+        private ConcurrentHashMap<String, AtomicLong> stripeFor(String key) {
+            return stripes[stripeIndex(key)];
+        }
+        
+        private static int stripeIndex(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (STRIPES - 1);
+        }
+    }
+}
@@ -7,7 +7,8 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
+
+import util.AuthUtil;
 
 /**
  * Servlet for handling user logout
@@ -22,13 +23,8 @@ public class LogoutServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
-        // Get current session
-        HttpSession session = request.getSession(false);
-        
-        if (session != null) {
-            // Invalidate session
-            session.invalidate();
-        }
+        // Invalidate the session and revoke the token cookie, if any
+        AuthUtil.signOut(request, response);
         
         // Redirect to login page
         response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/login"));
@@ -6,7 +6,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import model.MentorAssignment;
 import model.Mentor;
@@ -18,9 +24,24 @@ import util.DBUtil;
  * Data Access Object for MentorAssignment entity
  */
 public class MentorAssignmentDAO {
-    private MentorDAO mentorDAO = new MentorDAO();
-    private StudentDAO studentDAO = new StudentDAO();
-    private ProjectProposalDAO proposalDAO = new ProjectProposalDAO();
+    // Loads each assignment with its mentor (and user), student (and user) and
+    // proposal (and its student and user) in a single query
+    private static final String JOINED_SELECT = "SELECT ma.*, "
+            + MentorDAO.selectColumns("m", "m_") + ", "
+            + UserDAO.selectColumns("mu", "mu_") + ", "
+            + StudentDAO.selectColumns("s", "s_") + ", "
+            + UserDAO.selectColumns("su", "su_") + ", "
+            + ProjectProposalDAO.selectColumns("p", "p_") + ", "
+            + StudentDAO.selectColumns("ps", "ps_") + ", "
+            + UserDAO.selectColumns("psu", "psu_") + " "
+            + "FROM mentor_assignments ma "
+            + "LEFT JOIN mentors m ON m.mentor_id = ma.mentor_id "
+            + "LEFT JOIN users mu ON mu.user_id = m.user_id "
+            + "LEFT JOIN students s ON s.student_id = ma.student_id "
+            + "LEFT JOIN users su ON su.user_id = s.user_id "
+            + "LEFT JOIN project_proposals p ON p.proposal_id = ma.proposal_id "
+            + "LEFT JOIN students ps ON ps.student_id = p.student_id "
+            + "LEFT JOIN users psu ON psu.user_id = ps.user_id ";
     
     /**
      * Get mentor assignment by ID
@@ -28,36 +49,8 @@ public class MentorAssignmentDAO {
      * @return MentorAssignment object or null if not found
      */
     public MentorAssignment getAssignmentById(int assignmentId) {
-        MentorAssignment assignment = null;
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DBUtil.getConnection();
-            String sql = "SELECT * FROM mentor_assignments WHERE assignment_id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, assignmentId);
-            rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                assignment = mapAssignment(rs);
-                // Load associated entities
-                Mentor mentor = mentorDAO.getMentorById(assignment.getMentorId());
-                Student student = studentDAO.getStudentById(assignment.getStudentId());
-                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-                
-                assignment.setMentor(mentor);
-                assignment.setStudent(student);
-                assignment.setProposal(proposal);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            closeResources(conn, stmt, rs);
-        }
-        
-        return assignment;
+        List<MentorAssignment> assignments = findAssignments("WHERE ma.assignment_id = ?", assignmentId);
+        return assignments.isEmpty() ? null : assignments.get(0);
     }
     
     /**
@@ -66,68 +59,107 @@ public class MentorAssignmentDAO {
      * @return MentorAssignment object or null if not found
      */
     public MentorAssignment getAssignmentByProposalId(int proposalId) {
-        MentorAssignment assignment = null;
+        List<MentorAssignment> assignments = findAssignments("WHERE ma.proposal_id = ?", proposalId);
+        return assignments.isEmpty() ? null : assignments.get(0);
+    }
+    
+    /**
+     * Get assignments by mentor ID
+     * @param mentorId Mentor ID
+     * @return List of assignments for the mentor
+     */
+    public List<MentorAssignment> getAssignmentsByMentorId(int mentorId) {
+        return findAssignments("WHERE ma.mentor_id = ?", mentorId);
+    }
+    
+    /**
+     * Get assignments by student ID
+     * @param studentId Student ID
+     * @return List of assignments for the student
+     */
+    public List<MentorAssignment> getAssignmentsByStudentId(int studentId) {
+        return findAssignments("WHERE ma.student_id = ?", studentId);
+    }
+    
+    /**
+     * Get assignments by status
+     * @param status Assignment status
+     * @return List of assignments with the specified status
+     */
+    public List<MentorAssignment> getAssignmentsByStatus(String status) {
+        return findAssignments("WHERE ma.status = ?", status);
+    }
+    
+    /**
+     * Get assignments by IDs, chunking very large ID sets
+     * @param assignmentIds Assignment IDs
+     * @return Map of assignment ID to MentorAssignment; IDs that were not found are absent
+     */
+    public Map<Integer, MentorAssignment> getAssignmentsByIds(Collection<Integer> assignmentIds) {
+        Map<Integer, MentorAssignment> result = new HashMap<>();
+        for (List<Integer> chunk : BatchLoader.partition(assignmentIds)) {
+            String whereClause = "WHERE ma.assignment_id IN (" + BatchLoader.placeholders(chunk.size()) + ")";
+            for (MentorAssignment assignment : findAssignments(whereClause, chunk.toArray())) {
+                result.put(assignment.getAssignmentId(), assignment);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Load assignments with their full mentor, student and proposal graphs in one query
+     * @param whereClause WHERE clause with parameter placeholders
+     * @param params Values bound to the placeholders
+     * @return List of matching assignments
+     */
+    private List<MentorAssignment> findAssignments(String whereClause, Object... params) {
+        List<MentorAssignment> assignments = new ArrayList<>();
+        // Joins the request's identity map, or dedupes within this list if there is none
+        IdentityMap identities = IdentityMap.open();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
         
         try {
             conn = DBUtil.getConnection();
-            String sql = "SELECT * FROM mentor_assignments WHERE proposal_id = ?";
+            String sql = JOINED_SELECT + whereClause;
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, proposalId);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
             rs = stmt.executeQuery();
             
-            if (rs.next()) {
-                assignment = mapAssignment(rs);
-                // Load associated entities
-                Mentor mentor = mentorDAO.getMentorById(assignment.getMentorId());
-                Student student = studentDAO.getStudentById(assignment.getStudentId());
-                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-                
-                assignment.setMentor(mentor);
-                assignment.setStudent(student);
-                assignment.setProposal(proposal);
+            while (rs.next()) {
+                assignments.add(shareInstances(mapJoinedAssignment(rs)));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
             closeResources(conn, stmt, rs);
+            identities.close();
         }
         
-        return assignment;
+        return assignments;
     }
     
     /**
-     * Get assignments by mentor ID
-     * @param mentorId Mentor ID
-     * @return List of assignments for the mentor
+     * Count assignments grouped by status
+     * @return Map of status to number of assignments
      */
-    public List<MentorAssignment> getAssignmentsByMentorId(int mentorId) {
-        List<MentorAssignment> assignments = new ArrayList<>();
+    public Map<String, Integer> countAssignmentsByStatus() {
+        Map<String, Integer> counts = new HashMap<>();
         Connection conn = null;
-        PreparedStatement stmt = null;
+        Statement stmt = null;
         ResultSet rs = null;
         
         try {
             conn = DBUtil.getConnection();
-            String sql = "SELECT * FROM mentor_assignments WHERE mentor_id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, mentorId);
-            rs = stmt.executeQuery();
+            String sql = "SELECT status, COUNT(*) AS total FROM mentor_assignments GROUP BY status";
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery(sql);
             
             while (rs.next()) {
-                MentorAssignment assignment = mapAssignment(rs);
-                // Load associated entities
-                Mentor mentor = mentorDAO.getMentorById(assignment.getMentorId());
-                Student student = studentDAO.getStudentById(assignment.getStudentId());
-                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-                
-                assignment.setMentor(mentor);
-                assignment.setStudent(student);
-                assignment.setProposal(proposal);
-                
-                assignments.add(assignment);
+                counts.put(rs.getString("status"), rs.getInt("total"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -135,87 +167,83 @@ public class MentorAssignmentDAO {
             closeResources(conn, stmt, rs);
         }
         
-        return assignments;
+        return counts;
     }
     
     /**
-     * Get assignments by student ID
-     * @param studentId Student ID
-     * @return List of assignments for the student
+     * Count pending and accepted assignments per mentor
+     * @param mentorId Mentor ID, or null for every mentor
+     * @return Map of mentor ID to number of active assignments; mentors without any are absent.
+     *         Null if the query failed, so callers never mistake an error for zero loads.
      */
-    public List<MentorAssignment> getAssignmentsByStudentId(int studentId) {
-        List<MentorAssignment> assignments = new ArrayList<>();
+    public Map<Integer, Integer> countActiveAssignmentsByMentor(Integer mentorId) {
+        Map<Integer, Integer> counts = new HashMap<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
         
         try {
             conn = DBUtil.getConnection();
-            String sql = "SELECT * FROM mentor_assignments WHERE student_id = ?";
+            String sql = "SELECT mentor_id, COUNT(*) AS total FROM mentor_assignments "
+                       + "WHERE status IN ('pending', 'accepted')"
+                       + (mentorId != null ? " AND mentor_id = ?" : "")
+                       + " GROUP BY mentor_id";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, studentId);
+            if (mentorId != null) {
+                stmt.setInt(1, mentorId);
+            }
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                MentorAssignment assignment = mapAssignment(rs);
-                // Load associated entities
-                Mentor mentor = mentorDAO.getMentorById(assignment.getMentorId());
-                Student student = studentDAO.getStudentById(assignment.getStudentId());
-                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-                
-                assignment.setMentor(mentor);
-                assignment.setStudent(student);
-                assignment.setProposal(proposal);
-                
-                assignments.add(assignment);
+                counts.put(rs.getInt("mentor_id"), rs.getInt("total"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         } finally {
             closeResources(conn, stmt, rs);
         }
         
-        return assignments;
+        return counts;
     }
     
     /**
-     * Get assignments by status
-     * @param status Assignment status
-     * @return List of assignments with the specified status
+     * Stream mentor assignments with their mentor, student and proposal to a consumer one row at a time without buffering them in a list.
+     * Uses a forward-only, read-only cursor on a dedicated connection; the consumer may
+     * call other DAO methods.
+     * @param status Assignment status, or null for all assignments
+     * @param consumer Callback invoked for each assignment
+     * @return Number of rows visited
+     * @throws SQLException if the query fails, possibly after some rows were passed to the consumer
      */
-    public List<MentorAssignment> getAssignmentsByStatus(String status) {
-        List<MentorAssignment> assignments = new ArrayList<>();
+    public long forEachAssignment(String status, Consumer<MentorAssignment> consumer) throws SQLException {
+        long count = 0;
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
-            String sql = "SELECT * FROM mentor_assignments WHERE status = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, status);
+            conn = DBUtil.getStreamingConnection();
+            String sql = JOINED_SELECT
+                       + (status != null ? "WHERE ma.status = ? " : "")
+                       + "ORDER BY ma.assignment_id";
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(DBUtil.getStreamingFetchSize());
+            if (status != null) {
+                stmt.setObject(1, status);
+            }
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                MentorAssignment assignment = mapAssignment(rs);
-                // Load associated entities
-                Mentor mentor = mentorDAO.getMentorById(assignment.getMentorId());
-                Student student = studentDAO.getStudentById(assignment.getStudentId());
-                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-                
-                assignment.setMentor(mentor);
-                assignment.setStudent(student);
-                assignment.setProposal(proposal);
-                
-                assignments.add(assignment);
+                MentorAssignment assignment = mapJoinedAssignment(rs);
+                consumer.accept(assignment);
+                count++;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         } finally {
             closeResources(conn, stmt, rs);
         }
         
-        return assignments;
+        return count;
     }
     
     /**
@@ -258,6 +286,73 @@ public class MentorAssignmentDAO {
         return null;
     }
     
+    /**
+     * Create several mentor assignments with one batched statement.
+     * Run inside ConnectionContext.inTransaction() to make the batch all-or-nothing.
+     * @param assignments Assignments to create
+     * @return Number of rows inserted, or -1 if the batch failed
+     */
+    public int createAssignments(List<MentorAssignment> assignments) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "INSERT INTO mentor_assignments (mentor_id, student_id, proposal_id, status) "
+                       + "VALUES (?, ?, ?, ?)";
+            stmt = conn.prepareStatement(sql);
+            int inserted = 0;
+            int pending = 0;
+            for (MentorAssignment assignment : assignments) {
+                stmt.setInt(1, assignment.getMentorId());
+                stmt.setInt(2, assignment.getStudentId());
+                stmt.setInt(3, assignment.getProposalId());
+                stmt.setString(4, assignment.getStatus());
+                stmt.addBatch();
+                if (++pending == BatchLoader.MAX_IN_LIST) {
+                    inserted += countRows(stmt.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                inserted += countRows(stmt.executeBatch());
+            }
+            return inserted;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
+    /**
+     * Get the IDs of every proposal that has an assignment, in any status
+     * @return Set of proposal IDs
+     */
+    public Set<Integer> getAssignedProposalIds() {
+        Set<Integer> ids = new HashSet<>();
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery("SELECT DISTINCT proposal_id FROM mentor_assignments");
+            
+            while (rs.next()) {
+                ids.add(rs.getInt("proposal_id"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return ids;
+    }
+    
     /**
      * Update an existing mentor assignment
      * @param assignment MentorAssignment object to update
@@ -313,6 +408,78 @@ public class MentorAssignmentDAO {
         }
     }
     
+    /**
+     * Map a row of JOINED_SELECT to a MentorAssignment with its associations
+     * @param rs ResultSet positioned on a joined row
+     * @return MentorAssignment object
+     * @throws SQLException if a database access error occurs
+     */
+    private MentorAssignment mapJoinedAssignment(ResultSet rs) throws SQLException {
+        MentorAssignment assignment = mapAssignment(rs);
+        
+        Mentor mentor = MentorDAO.mapMentor(rs, "m_");
+        if (mentor != null) {
+            mentor.setUser(UserDAO.mapUser(rs, "mu_"));
+        }
+        
+        Student student = StudentDAO.mapStudent(rs, "s_");
+        if (student != null) {
+            student.setUser(UserDAO.mapUser(rs, "su_"));
+        }
+        
+        ProjectProposal proposal = ProjectProposalDAO.mapProposal(rs, "p_");
+        if (proposal != null) {
+            if (student != null && student.getStudentId() == proposal.getStudentId()) {
+                // Proposal belongs to the assigned student; share the instance
+                proposal.setStudent(student);
+            } else {
+                Student proposalStudent = StudentDAO.mapStudent(rs, "ps_");
+                if (proposalStudent != null) {
+                    proposalStudent.setUser(UserDAO.mapUser(rs, "psu_"));
+                }
+                proposal.setStudent(proposalStudent);
+            }
+        }
+        
+        assignment.setMentor(mentor);
+        assignment.setStudent(student);
+        assignment.setProposal(proposal);
+        return assignment;
+    }
+    
+    /**
+     * Swap the mentor, student and proposal student of an assignment for the
+     * instances already loaded in the current identity map
+     * @param assignment Freshly mapped assignment
+     * @return The same assignment
+     */
+    private MentorAssignment shareInstances(MentorAssignment assignment) {
+        assignment.setMentor(MentorDAO.internMentor(assignment.getMentor()));
+        assignment.setStudent(StudentDAO.internStudent(assignment.getStudent()));
+        ProjectProposal proposal = assignment.getProposal();
+        if (proposal != null) {
+            proposal.setStudent(StudentDAO.internStudent(proposal.getStudent()));
+        }
+        return assignment;
+    }
+    
+    /**
+     * Create a detached copy of an assignment with its mentor, student and proposal
+     * @param assignment Assignment to copy
+     * @return Copy, or null if assignment is null
+     */
+    public static MentorAssignment copyAssignment(MentorAssignment assignment) {
+        if (assignment == null) {
+            return null;
+        }
+        MentorAssignment copy = new MentorAssignment(assignment.getAssignmentId(), assignment.getMentorId(),
+                assignment.getStudentId(), assignment.getProposalId(), assignment.getAssignedDate(), assignment.getStatus());
+        copy.setMentor(MentorDAO.copyMentor(assignment.getMentor()));
+        copy.setStudent(StudentDAO.copyStudent(assignment.getStudent()));
+        copy.setProposal(ProjectProposalDAO.copyProposal(assignment.getProposal()));
+        return copy;
+    }
+    
     /**
      * Map ResultSet to MentorAssignment object
      * @param rs ResultSet containing assignment data
@@ -330,6 +497,19 @@ public class MentorAssignmentDAO {
         return assignment;
     }
     
+    /**
+     * Add up the update counts of an executed batch
+     * @param counts Result of executeBatch()
+     * @return Number of rows affected; drivers that report SUCCESS_NO_INFO count as one row
+     */
+    private static int countRows(int[] counts) {
+        int rows = 0;
+        for (int count : counts) {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+        }
+        return rows;
+    }
+    
     /**
      * Close database resources
      * @param conn Connection object
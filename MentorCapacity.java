@@ -0,0 +1,232 @@
+package service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import dao.MentorAssignmentDAO;
+import model.Mentor;
+
+/**
+ * In-memory count of each mentor's active (pending or accepted) assignments.
+ * Counters are seeded from one grouped COUNT query and then kept current by
+ * ProjectService as assignments are created, moved and completed, so checking
+ * a mentor's free places costs no query. A reservation is a compare-and-set
+ * on the mentor's counter and never exceeds maxMentees.
+ * The counters only guard against over-assignment within this JVM; writes are
+ * still checked with MentorDAO.claimCapacity() inside the transaction. They
+ * are reseeded every RESYNC_MILLIS to pick up changes made outside ProjectService.
+ * A reservation stays in flight until settle() reports how its transaction
+ * ended; reseeding skips counters with reservations in flight or that changed
+ * while the counts were read, since the database cannot show those yet.
+ */
+public class MentorCapacity {
+    private static final long RESYNC_MILLIS = 10 * 60 * 1000L;
+    private static final MentorCapacity INSTANCE = new MentorCapacity(new MentorAssignmentDAO());
+
+    private final MentorAssignmentDAO assignmentDAO;
+    private final ConcurrentHashMap<Integer, Counter> loads = new ConcurrentHashMap<>();
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder skippedResyncs = new LongAdder();
+    private volatile long seededAt;
+
+    /**
+     * Constructor
+     * @param assignmentDAO DAO used to seed the counters
+     */
+    MentorCapacity(MentorAssignmentDAO assignmentDAO) {
+        this.assignmentDAO = assignmentDAO;
+    }
+
+    /**
+     * Get the shared capacity tracker
+     * @return MentorCapacity instance
+     */
+    public static MentorCapacity getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check whether an assignment status takes up one of the mentor's places
+     * @param status Assignment status
+     * @return true for pending and accepted assignments
+     */
+    public static boolean isActive(String status) {
+        return "pending".equals(status) || "accepted".equals(status);
+    }
+
+    /**
+     * Take one of a mentor's free places
+     * @param mentor Mentor to reserve a place with
+     * @return true if a place was reserved, false if the mentor is full
+     */
+    public boolean tryReserve(Mentor mentor) {
+        Counter counter = counter(mentor.getMentorId());
+        // Count the reservation as in flight before it shows in the load, so resync() never misses it
+        counter.inFlight.incrementAndGet();
+        while (true) {
+            int current = counter.load.get();
+            if (current >= mentor.getMaxMentees()) {
+                counter.inFlight.decrementAndGet();
+                rejections.increment();
+                return false;
+            }
+            if (counter.load.compareAndSet(current, current + 1)) {
+                counter.version.incrementAndGet();
+                reservations.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finish a reservation made with tryReserve() once its transaction has ended
+     * @param mentorId Mentor ID
+     * @param used true if the assignment was committed, false to give the place back
+     */
+    public void settle(int mentorId, boolean used) {
+        Counter counter = counter(mentorId);
+        if (!used) {
+            release(mentorId);
+        }
+        counter.version.incrementAndGet();
+        counter.inFlight.decrementAndGet();
+    }
+
+    /**
+     * Give back a place, e.g. when an assignment completes or a reservation was not used
+     * @param mentorId Mentor ID
+     */
+    public void release(int mentorId) {
+        Counter counter = counter(mentorId);
+        while (true) {
+            int current = counter.load.get();
+            if (current <= 0 || counter.load.compareAndSet(current, current - 1)) {
+                counter.version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record a status change of an existing assignment
+     * @param mentorId Mentor ID
+     * @param oldStatus Status before the change
+     * @param newStatus Status after the change
+     */
+    public void onStatusChange(int mentorId, String oldStatus, String newStatus) {
+        boolean wasActive = isActive(oldStatus);
+        boolean nowActive = isActive(newStatus);
+        if (wasActive && !nowActive) {
+            release(mentorId);
+        } else if (!wasActive && nowActive) {
+            Counter counter = counter(mentorId);
+            counter.load.incrementAndGet();
+            counter.version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get a mentor's number of active assignments
+     * @param mentorId Mentor ID
+     * @return Active assignments
+     */
+    public int getLoad(int mentorId) {
+        return counter(mentorId).load.get();
+    }
+
+    /**
+     * Get a mentor's free places
+     * @param mentor Mentor
+     * @return Free places, never negative
+     */
+    public int getRemaining(Mentor mentor) {
+        return Math.max(0, mentor.getMaxMentees() - getLoad(mentor.getMentorId()));
+    }
+
+    /**
+     * Get a copy of every non-zero counter
+     * @return Map of mentor ID to active assignments
+     */
+    public Map<Integer, Integer> getLoads() {
+        ensureSeeded();
+        Map<Integer, Integer> copy = new HashMap<>();
+        for (Map.Entry<Integer, Counter> entry : loads.entrySet()) {
+            int load = entry.getValue().load.get();
+            if (load > 0) {
+                copy.put(entry.getKey(), load);
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Reload the counters from the database, e.g. after a bulk assignment.
+     * Counters with reservations in flight, or that changed while the counts
+     * were read, keep their value until the next resync. If the counts cannot
+     * be read, nothing changes and the next call tries again.
+     */
+    public synchronized void resync() {
+        Map<Integer, Integer> versions = new HashMap<>();
+        for (Map.Entry<Integer, Counter> entry : loads.entrySet()) {
+            versions.put(entry.getKey(), entry.getValue().version.get());
+        }
+        Map<Integer, Integer> counts = assignmentDAO.countActiveAssignmentsByMentor(null);
+        if (counts == null) {
+            System.err.println("Could not reload mentor loads; keeping the current counters");
+            return;
+        }
+        for (Integer mentorId : counts.keySet()) {
+            loads.computeIfAbsent(mentorId, id -> new Counter());
+        }
+        for (Map.Entry<Integer, Counter> entry : loads.entrySet()) {
+            Counter counter = entry.getValue();
+            int current = counter.load.get();
+            if (counter.inFlight.get() > 0 || counter.version.get() != versions.getOrDefault(entry.getKey(), 0)) {
+                skippedResyncs.increment();
+                continue;
+            }
+            // Fails, and skips the counter, if it changed since the checks above
+            counter.load.compareAndSet(current, counts.getOrDefault(entry.getKey(), 0));
+        }
+        seededAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "MentorCapacity[mentors=" + loads.size()
+                + ", reservations=" + reservations.sum()
+                + ", rejections=" + rejections.sum()
+                + ", skippedResyncs=" + skippedResyncs.sum() + "]";
+    }
+
+    private Counter counter(int mentorId) {
+        ensureSeeded();
+        return loads.computeIfAbsent(mentorId, id -> new Counter());
+    }
+
+    private void ensureSeeded() {
+        if (System.currentTimeMillis() - seededAt > RESYNC_MILLIS) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - seededAt > RESYNC_MILLIS) {
+                    resync();
+                }
+            }
+        }
+    }
+
+    /**
+     * Active assignments of one mentor, with the bookkeeping resync() needs
+     */
+    private static class Counter {
+        private final AtomicInteger load = new AtomicInteger();
+        // Reservations whose transaction has not ended yet
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Bumped on every change to load
+        private final AtomicInteger version = new AtomicInteger();
+    }
+}
@@ -6,16 +6,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import model.Mentor;
 import model.User;
+import model.Page;
 import util.DBUtil;
 
 /**
  * Data Access Object for Mentor entity
  */
 public class MentorDAO {
+    // Columns of the mentor table, used to build aliased select lists for joins
+    private static final String[] COLUMNS = {"mentor_id", "user_id", "department", "specialization", "max_mentees"};
+    // Mentors by user ID
+    private static final EntityCache<Integer, Mentor> MENTOR_CACHE =
+            new EntityCache<>("mentors", 1000, 5 * 60 * 1000L, MentorDAO::copyMentor);
     private UserDAO userDAO = new UserDAO();
     
     /**
@@ -24,6 +33,11 @@ public class MentorDAO {
      * @return Mentor object or null if not found
      */
     public Mentor getMentorById(int mentorId) {
+        Mentor cached = IdentityMap.find(Mentor.class, mentorId);
+        if (cached != null) {
+            return cached;
+        }
+        
         Mentor mentor = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -48,15 +62,24 @@ public class MentorDAO {
             closeResources(conn, stmt, rs);
         }
         
-        return mentor;
+        return IdentityMap.intern(Mentor.class, mentorId, mentor);
     }
     
     /**
-     * Get mentor by user ID
+     * Get mentor by user ID, served from the entity cache when possible
      * @param userId User ID
      * @return Mentor object or null if not found
      */
     public Mentor getMentorByUserId(int userId) {
+        return internMentor(MENTOR_CACHE.get(userId, this::loadMentorByUserId));
+    }
+    
+    /**
+     * Read mentor by user ID
+     * @param userId User ID
+     * @return Mentor object or null if not found
+     */
+    private Mentor loadMentorByUserId(Integer userId) {
         Mentor mentor = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -101,11 +124,7 @@ public class MentorDAO {
             rs = stmt.executeQuery(sql);
             
             while (rs.next()) {
-                Mentor mentor = mapMentor(rs);
-                // Load associated user
-                User user = userDAO.getUserById(mentor.getUserId());
-                mentor.setUser(user);
-                mentors.add(mentor);
+                mentors.add(mapMentor(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -113,6 +132,9 @@ public class MentorDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated users in one batch
+        loadUsers(mentors);
+        
         return mentors;
     }
     
@@ -135,11 +157,7 @@ public class MentorDAO {
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                Mentor mentor = mapMentor(rs);
-                // Load associated user
-                User user = userDAO.getUserById(mentor.getUserId());
-                mentor.setUser(user);
-                mentors.add(mentor);
+                mentors.add(mapMentor(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -147,13 +165,87 @@ public class MentorDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated users in one batch
+        loadUsers(mentors);
+        
         return mentors;
     }
     
+    /**
+     * Get mentors by IDs, chunking very large ID sets
+     * @param mentorIds Mentor IDs
+     * @return Map of mentor ID to Mentor; IDs that were not found are absent
+     */
+    public Map<Integer, Mentor> getMentorsByIds(Collection<Integer> mentorIds) {
+        Map<Integer, Mentor> result = DaoSupport.selectByIds("mentors", "mentor_id", mentorIds, Mentor.class, this::mapMentor);
+        
+        // Load associated users in one batch
+        loadUsers(result.values());
+        
+        return result;
+    }
+    
+    /**
+     * Get one page of mentors using keyset pagination, ordered by department.
+     * Seeks on (department, mentor_id), which the composite index from
+     * keyset_pagination.sql serves without a filesort.
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size, capped at Page.MAX_SIZE
+     * @return Page of mentors with the cursor for the next page
+     */
+    public Page<Mentor> getMentorsPage(String cursor, int pageSize) {
+        int limit = Page.clampSize(pageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Mentor> mentors = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            StringBuilder sql = new StringBuilder("SELECT * FROM mentors WHERE 1 = 1");
+            if (after != null) {
+                sql.append(" AND (department, mentor_id) > (?, ?)");
+            }
+            sql.append(" ORDER BY department, mentor_id LIMIT ?");
+            stmt = conn.prepareStatement(sql.toString());
+            
+            int index = 1;
+            if (after != null) {
+                stmt.setString(index++, after.getSortKey());
+                stmt.setInt(index++, after.getId());
+            }
+            // Fetch one extra row to know whether another page follows
+            stmt.setInt(index, limit + 1);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                mentors.add(mapMentor(rs));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        String nextCursor = null;
+        if (mentors.size() > limit) {
+            mentors.remove(limit);
+            Mentor last = mentors.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getDepartment(), last.getMentorId()).encode();
+        }
+        
+        // Load associated users in one batch
+        loadUsers(mentors);
+        
+        return new Page<>(mentors, nextCursor);
+    }
+    
     /**
      * Create a new mentor
      * @param mentor Mentor object to create
      * @return Created mentor with ID set, or null if creation failed
+     * @throws DuplicateValueException if the user is already in use
      */
     public Mentor createMentor(Mentor mentor) {
         Connection conn = null;
@@ -166,7 +258,8 @@ public class MentorDAO {
                        + "VALUES (?, ?, ?, ?)";
             stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             stmt.setInt(1, mentor.getUserId());
-            stmt.setString(2, mentor.getDepartment());
+            // The column is NOT NULL so that pages can seek on it
+            stmt.setString(2, mentor.getDepartment() != null ? mentor.getDepartment() : "");
             stmt.setString(3, mentor.getSpecialization());
             stmt.setInt(4, mentor.getMaxMentees());
             
@@ -182,6 +275,9 @@ public class MentorDAO {
                 return mentor;
             }
         } catch (SQLException e) {
+            if (DuplicateValueException.isDuplicate(e)) {
+                throw DuplicateValueException.of(e, "user_id");
+            }
             e.printStackTrace();
         } finally {
             closeResources(conn, stmt, rs);
@@ -204,12 +300,14 @@ public class MentorDAO {
             String sql = "UPDATE mentors SET department = ?, specialization = ?, max_mentees = ? "
                        + "WHERE mentor_id = ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setString(1, mentor.getDepartment());
+            stmt.setString(1, mentor.getDepartment() != null ? mentor.getDepartment() : "");
             stmt.setString(2, mentor.getSpecialization());
             stmt.setInt(3, mentor.getMaxMentees());
             stmt.setInt(4, mentor.getMentorId());
             
             int affectedRows = stmt.executeUpdate();
+            MENTOR_CACHE.invalidateIf(cached -> cached.getMentorId() == mentor.getMentorId());
+            IdentityMap.evict(Mentor.class, mentor.getMentorId());
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -219,6 +317,60 @@ public class MentorDAO {
         }
     }
     
+    /**
+     * Check in the database that a mentor still has a free place, and lock the
+     * mentor row until the surrounding transaction ends so that concurrent
+     * assignments to the same mentor are serialized.
+     * Call inside ConnectionContext.inTransaction() before inserting the assignment.
+     * @param mentorId Mentor ID
+     * @return true if the mentor has fewer pending/accepted assignments than max_mentees, false otherwise
+     */
+    public boolean claimCapacity(int mentorId) {
+        return claimCapacity(mentorId, 1);
+    }
+    
+    /**
+     * Check in the database that a mentor still has enough free places, and lock
+     * the mentor row until the surrounding transaction ends.
+     * Callers claiming several mentors in one transaction must claim them in
+     * mentor ID order, so that two such transactions cannot deadlock.
+     * @param mentorId Mentor ID
+     * @param places Number of places needed
+     * @return true if the mentor has at least that many places left, false otherwise
+     */
+    public boolean claimCapacity(int mentorId, int places) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            stmt = conn.prepareStatement("SELECT max_mentees FROM mentors WHERE mentor_id = ? FOR UPDATE");
+            stmt.setInt(1, mentorId);
+            rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return false;
+            }
+            int maxMentees = rs.getInt("max_mentees");
+            closeResources(null, stmt, rs);
+            
+            // A locking read, so it sees assignments committed by transactions that
+            // held the mentor lock before us rather than this transaction's snapshot
+            stmt = conn.prepareStatement("SELECT COUNT(*) FROM mentor_assignments "
+                    + "WHERE mentor_id = ? AND status IN ('pending', 'accepted') LOCK IN SHARE MODE");
+            stmt.setInt(1, mentorId);
+            rs = stmt.executeQuery();
+            int active = rs.next() ? rs.getInt(1) : 0;
+            
+            return active + places <= maxMentees;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
     /**
      * Delete a mentor
      * @param mentorId ID of the mentor to delete
@@ -235,6 +387,8 @@ public class MentorDAO {
             stmt.setInt(1, mentorId);
             
             int affectedRows = stmt.executeUpdate();
+            MENTOR_CACHE.invalidateIf(cached -> cached.getMentorId() == mentorId);
+            IdentityMap.evict(Mentor.class, mentorId);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -244,6 +398,69 @@ public class MentorDAO {
         }
     }
     
+    /**
+     * Get the mentor cache, e.g. to read its statistics
+     * @return Mentor cache
+     */
+    public static EntityCache<Integer, Mentor> getMentorCache() {
+        return MENTOR_CACHE;
+    }
+    
+    /**
+     * Drop the mentor of a user from the cache
+     * @param userId User ID
+     */
+    static void invalidateUser(int userId) {
+        MENTOR_CACHE.invalidate(userId);
+        // Loaded mentors hold on to the old user instance
+        IdentityMap.evictAll(Mentor.class);
+    }
+    
+    /**
+     * Replace a mentor and its user with the instances already loaded in this request, if any
+     * @param mentor Freshly mapped mentor, may be null
+     * @return Canonical instance
+     */
+    static Mentor internMentor(Mentor mentor) {
+        if (mentor == null) {
+            return null;
+        }
+        Mentor canonical = IdentityMap.intern(Mentor.class, mentor.getMentorId(), mentor);
+        if (canonical == mentor) {
+            mentor.setUser(UserDAO.internUser(mentor.getUser()));
+        }
+        return canonical;
+    }
+    
+    /**
+     * Create a detached copy of a mentor and its user
+     * @param mentor Mentor to copy
+     * @return Copy, or null if mentor is null
+     */
+    static Mentor copyMentor(Mentor mentor) {
+        if (mentor == null) {
+            return null;
+        }
+        Mentor copy = new Mentor(mentor.getMentorId(), mentor.getUserId(), mentor.getDepartment(), mentor.getSpecialization(),
+                mentor.getMaxMentees());
+        copy.setUser(UserDAO.copyUser(mentor.getUser()));
+        return copy;
+    }
+    
+    /**
+     * Attach associated users to mentors using one batched lookup
+     * @param mentors Mentor objects to populate
+     */
+    private void loadUsers(Collection<Mentor> mentors) {
+        BatchLoader<User> loader = new BatchLoader<>(userDAO::getUsersByIds);
+        for (Mentor mentor : mentors) {
+            loader.request(mentor.getUserId());
+        }
+        for (Mentor mentor : mentors) {
+            mentor.setUser(loader.get(mentor.getUserId()));
+        }
+    }
+    
     /**
      * Map ResultSet to Mentor object
      * @param rs ResultSet containing mentor data
@@ -251,15 +468,39 @@ public class MentorDAO {
      * @throws SQLException if a database access error occurs
      */
     private Mentor mapMentor(ResultSet rs) throws SQLException {
+        return mapMentor(rs, "");
+    }
+    
+    /**
+     * Map prefixed ResultSet columns to Mentor object, for joined queries
+     * @param rs ResultSet containing mentor data
+     * @param prefix Column alias prefix, e.g. "m_" for m_mentor_id
+     * @return Mentor object, or null if the joined row is missing
+     * @throws SQLException if a database access error occurs
+     */
+    static Mentor mapMentor(ResultSet rs, String prefix) throws SQLException {
+        if (rs.getObject(prefix + "mentor_id") == null) {
+            return null;
+        }
         Mentor mentor = new Mentor();
-        mentor.setMentorId(rs.getInt("mentor_id"));
-        mentor.setUserId(rs.getInt("user_id"));
-        mentor.setDepartment(rs.getString("department"));
-        mentor.setSpecialization(rs.getString("specialization"));
-        mentor.setMaxMentees(rs.getInt("max_mentees"));
+        mentor.setMentorId(rs.getInt(prefix + "mentor_id"));
+        mentor.setUserId(rs.getInt(prefix + "user_id"));
+        mentor.setDepartment(rs.getString(prefix + "department"));
+        mentor.setSpecialization(rs.getString(prefix + "specialization"));
+        mentor.setMaxMentees(rs.getInt(prefix + "max_mentees"));
         return mentor;
     }
     
+    /**
+     * Build an aliased select list of mentor columns for joined queries
+     * @param tableAlias Alias of the mentor table in the query
+     * @param prefix Column alias prefix read back by the prefixed mapper
+     * @return Select list such as "t.col AS prefix_col, ..."
+     */
+    static String selectColumns(String tableAlias, String prefix) {
+        return DaoSupport.selectColumns(COLUMNS, tableAlias, prefix);
+    }
+    
     /**
      * Close database resources
      * @param conn Connection object
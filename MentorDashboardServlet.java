@@ -10,12 +10,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Mentor;
 import model.MentorAssignment;
 import model.MentorInterest;
+import service.ParallelLoader;
 import service.ProjectService;
 import dao.MentorDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling mentor dashboard
@@ -43,22 +45,26 @@ public class MentorDashboardServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
 
         // Get mentor profile
         Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
 
         if (mentor != null) {
-            // Get mentor's interests
-            List<MentorInterest> interests = projectService.getInterestsForMentor(mentor.getMentorId());
+            int mentorId = mentor.getMentorId();
 
-            // Get mentor's assignments
-            List<MentorAssignment> assignments = projectService.getAssignmentsByMentorId(mentor.getMentorId());
+            // Get mentor's interests and assignments in parallel
+            ParallelLoader loader = new ParallelLoader();
+            ParallelLoader.Branch<List<MentorInterest>> interests =
+                    loader.fork("interests", () -> projectService.getInterestsForMentor(mentorId));
+            ParallelLoader.Branch<List<MentorAssignment>> assignments =
+                    loader.fork("assignments", () -> projectService.getAssignmentsByMentorId(mentorId));
+            loader.join();
 
             // Set attributes for the view
             request.setAttribute("mentor", mentor);
-            request.setAttribute("interests", interests);
-            request.setAttribute("assignments", assignments);
+            request.setAttribute("interests", interests.get());
+            request.setAttribute("assignments", assignments.get());
         }
 
         // Forward to dashboard page
@@ -6,7 +6,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import model.MentorInterest;
 import model.Mentor;
@@ -74,17 +77,8 @@ public class MentorInterestDAO {
             stmt.setInt(1, mentorId);
             rs = stmt.executeQuery();
             
-            Mentor mentor = mentorDAO.getMentorById(mentorId);
-            
             while (rs.next()) {
-                MentorInterest interest = mapInterest(rs);
-                interest.setMentor(mentor);
-                
-                // Load associated proposal
-                ProjectProposal proposal = proposalDAO.getProposalById(interest.getProposalId());
-                interest.setProposal(proposal);
-                
-                interests.add(interest);
+                interests.add(mapInterest(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -92,6 +86,19 @@ public class MentorInterestDAO {
             closeResources(conn, stmt, rs);
         }
         
+        if (!interests.isEmpty()) {
+            // Load the mentor once and all proposals in one batch
+            Mentor mentor = mentorDAO.getMentorById(mentorId);
+            BatchLoader<ProjectProposal> proposals = new BatchLoader<>(proposalDAO::getProposalsByIds);
+            for (MentorInterest interest : interests) {
+                proposals.request(interest.getProposalId());
+            }
+            for (MentorInterest interest : interests) {
+                interest.setMentor(mentor);
+                interest.setProposal(proposals.get(interest.getProposalId()));
+            }
+        }
+        
         return interests;
     }
     
@@ -113,17 +120,103 @@ public class MentorInterestDAO {
             stmt.setInt(1, proposalId);
             rs = stmt.executeQuery();
             
+            while (rs.next()) {
+                interests.add(mapInterest(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        if (!interests.isEmpty()) {
+            // Load the proposal once and all mentors in one batch
             ProjectProposal proposal = proposalDAO.getProposalById(proposalId);
+            BatchLoader<Mentor> mentors = new BatchLoader<>(mentorDAO::getMentorsByIds);
+            for (MentorInterest interest : interests) {
+                mentors.request(interest.getMentorId());
+            }
+            for (MentorInterest interest : interests) {
+                interest.setProposal(proposal);
+                interest.setMentor(mentors.get(interest.getMentorId()));
+            }
+        }
+        
+        return interests;
+    }
+    
+    /**
+     * Stream mentor interests with their mentor and proposal to a consumer one row at a time without buffering them in a list.
+     * Uses a forward-only, read-only cursor on a dedicated connection; the consumer may
+     * call other DAO methods.
+     * @param interestLevel Interest level, or null for all interests
+     * @param consumer Callback invoked for each interest
+     * @return Number of rows visited
+     * @throws SQLException if the query fails, possibly after some rows were passed to the consumer
+     */
+    public long forEachInterest(String interestLevel, Consumer<MentorInterest> consumer) throws SQLException {
+        long count = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getStreamingConnection();
+            String sql = "SELECT mi.*, " + MentorDAO.selectColumns("m", "m_") + ", " + UserDAO.selectColumns("u", "u_")
+                       + ", " + ProjectProposalDAO.selectColumns("p", "p_")
+                       + " FROM mentor_interest mi"
+                       + " LEFT JOIN mentors m ON m.mentor_id = mi.mentor_id"
+                       + " LEFT JOIN users u ON u.user_id = m.user_id"
+                       + " LEFT JOIN project_proposals p ON p.proposal_id = mi.proposal_id"
+                       + (interestLevel != null ? " WHERE mi.interest_level = ?" : "")
+                       + " ORDER BY mi.interest_id";
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(DBUtil.getStreamingFetchSize());
+            if (interestLevel != null) {
+                stmt.setString(1, interestLevel);
+            }
+            rs = stmt.executeQuery();
             
             while (rs.next()) {
                 MentorInterest interest = mapInterest(rs);
-                interest.setProposal(proposal);
-                
-                // Load associated mentor
-                Mentor mentor = mentorDAO.getMentorById(interest.getMentorId());
+                Mentor mentor = MentorDAO.mapMentor(rs, "m_");
+                if (mentor != null) {
+                    mentor.setUser(UserDAO.mapUser(rs, "u_"));
+                }
                 interest.setMentor(mentor);
-                
-                interests.add(interest);
+                interest.setProposal(ProjectProposalDAO.mapProposal(rs, "p_"));
+                consumer.accept(interest);
+                count++;
+            }
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Get the interest levels expressed in proposals with a given status, without loading the rows
+     * @param proposalStatus Proposal status, e.g. "approved"
+     * @return Map of proposal ID to a map of mentor ID to interest level
+     */
+    public Map<Integer, Map<Integer, String>> getInterestLevelsByProposalStatus(String proposalStatus) {
+        Map<Integer, Map<Integer, String>> levels = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "SELECT mi.proposal_id, mi.mentor_id, mi.interest_level FROM mentor_interest mi "
+                       + "JOIN project_proposals p ON p.proposal_id = mi.proposal_id WHERE p.status = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, proposalStatus);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                levels.computeIfAbsent(rs.getInt("proposal_id"), id -> new HashMap<>())
+                      .put(rs.getInt("mentor_id"), rs.getString("interest_level"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -131,7 +224,7 @@ public class MentorInterestDAO {
             closeResources(conn, stmt, rs);
         }
         
-        return interests;
+        return levels;
     }
     
     /**
@@ -265,6 +358,22 @@ public class MentorInterestDAO {
         }
     }
     
+    /**
+     * Create a detached copy of an interest with its mentor and proposal
+     * @param interest Interest to copy
+     * @return Copy, or null if interest is null
+     */
+    public static MentorInterest copyInterest(MentorInterest interest) {
+        if (interest == null) {
+            return null;
+        }
+        MentorInterest copy = new MentorInterest(interest.getInterestId(), interest.getMentorId(), interest.getProposalId(),
+                interest.getInterestLevel(), interest.getComments(), interest.getCreatedAt());
+        copy.setMentor(MentorDAO.copyMentor(interest.getMentor()));
+        copy.setProposal(ProjectProposalDAO.copyProposal(interest.getProposal()));
+        return copy;
+    }
+    
     /**
      * Map ResultSet to MentorInterest object
      * @param rs ResultSet containing interest data
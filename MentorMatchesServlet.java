@@ -10,12 +10,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Student;
 import model.ProjectProposal;
 import model.MentorInterest;
+import service.MentorRecommender;
 import service.ProjectService;
 import dao.StudentDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling mentor matches view
@@ -23,6 +25,7 @@ import dao.StudentDAO;
 @WebServlet("/student/mentor-matches")
 public class MentorMatchesServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final int RECOMMENDATIONS = 5;
     private ProjectService projectService;
     private StudentDAO studentDAO;
     
@@ -43,7 +46,7 @@ public class MentorMatchesServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get student profile
         Student student = studentDAO.getStudentByUserId(user.getUserId());
@@ -79,9 +82,14 @@ public class MentorMatchesServlet extends HttpServlet {
             // Get mentor interests for the proposal
             List<MentorInterest> interests = projectService.getInterestsForProposal(proposalId);
             
+            // Get mentors whose skills match the proposal
+            List<MentorRecommender.Recommendation> recommendations =
+                    projectService.recommendMentors(proposal, RECOMMENDATIONS);
+            
             // Set attributes for the view
             request.setAttribute("proposal", proposal);
             request.setAttribute("interests", interests);
+            request.setAttribute("recommendations", recommendations);
             
             // Forward to mentor matches page
             request.getRequestDispatcher("/WEB-INF/views/student/mentor-matches.jsp").forward(request, response);
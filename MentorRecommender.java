@@ -0,0 +1,556 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import dao.MentorDAO;
+import model.Mentor;
+import model.ProjectProposal;
+
+/**
+ * Recommends mentors for a proposal by matching the proposal's technologies and
+ * title against each mentor's specialization and department.
+ * Mentors are kept in an in-memory inverted index (term ID to the mentors using
+ * it), so a recommendation only visits mentors sharing at least one term with
+ * the proposal. Matches are scored with TF-IDF weights and blended with the
+ * mentor's remaining capacity; mentors without free places are left out.
+ * The index is an immutable snapshot published through a volatile field.
+ * Mentor changes patch only the postings of the terms involved, and the whole
+ * index is rebuilt once it is older than MAX_AGE_MILLIS.
+ * Mentors in a snapshot are shared between requests and must not be modified.
+ */
+public class MentorRecommender {
+    private static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+    // Share of the final score that comes from free capacity rather than skill match
+    private static final double CAPACITY_WEIGHT = 0.25;
+    // Skills and technologies count twice as much as department and title words
+    private static final float PRIMARY_FIELD_WEIGHT = 2.0f;
+    private static final float SECONDARY_FIELD_WEIGHT = 1.0f;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "as", "at", "by", "for", "from", "in", "into", "of", "on",
+            "or", "the", "to", "with", "using", "based", "system", "project", "application"));
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9+#.]+");
+    private static final Pattern EDGE_DOTS = Pattern.compile("^\\.+|\\.+$");
+    // Single-character terms that are real technology names
+    private static final Set<String> SHORT_TERMS = new HashSet<>(Arrays.asList("c", "r"));
+    private static final MentorRecommender INSTANCE =
+            new MentorRecommender(new MentorDAO(), MentorCapacity.getInstance());
+
+    private final MentorDAO mentorDAO;
+    private final MentorCapacity capacity;
+    // Term dictionary shared by every snapshot; IDs are never reused
+    private final ConcurrentHashMap<String, Integer> termIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextTermId = new AtomicInteger();
+    // Term vectors of approved proposals, so recommending for them skips tokenizing
+    private final ConcurrentHashMap<Integer, TermVector> proposalVectors = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Index index;
+
+    /**
+     * Constructor
+     * @param mentorDAO DAO used to load mentors
+     * @param capacity Tracker of each mentor's free places
+     */
+    MentorRecommender(MentorDAO mentorDAO, MentorCapacity capacity) {
+        this.mentorDAO = mentorDAO;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the shared recommender
+     * @return Recommender instance
+     */
+    public static MentorRecommender getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Recommend mentors for a proposal
+     * @param proposal Proposal to find mentors for
+     * @param limit Maximum number of mentors to return
+     * @return Best matching mentors with free capacity, best first
+     */
+    public List<Recommendation> recommend(ProjectProposal proposal, int limit) {
+        Index current = current();
+        TermVector query = proposalVectors.get(proposal.getProposalId());
+        if (query == null) {
+            query = vectorize(proposal.getTechnologies(), proposal.getTitle(), false);
+        }
+        if (query.size() == 0 || limit <= 0 || current.docs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Accumulate dot products over the postings of the query terms only
+        double documents = current.docs.size();
+        // Terms no mentor uses get the IDF of a term used once; they only add to the query norm
+        double maxIdf = Math.log(1 + documents);
+        double querySquares = query.unknownSquares * maxIdf * maxIdf;
+        Map<Integer, Double> dot = new HashMap<>();
+        for (int i = 0; i < query.size(); i++) {
+            Postings postings = current.postings.get(query.termIds[i]);
+            if (postings == null) {
+                querySquares += query.weights[i] * maxIdf * query.weights[i] * maxIdf;
+                continue;
+            }
+            double idf = Math.log(1 + documents / postings.mentorIds.length);
+            double queryWeight = query.weights[i] * idf;
+            querySquares += queryWeight * queryWeight;
+            for (int p = 0; p < postings.mentorIds.length; p++) {
+                dot.merge(postings.mentorIds[p], queryWeight * postings.weights[p] * idf, Double::sum);
+            }
+        }
+
+        double queryNorm = Math.max(1e-9, Math.sqrt(querySquares));
+        Map<Integer, Double> relevance = new HashMap<>();
+        Map<Integer, Double> similarity = new HashMap<>();
+        double best = 0;
+        for (Map.Entry<Integer, Double> entry : dot.entrySet()) {
+            MentorDoc doc = current.docs.get(entry.getKey());
+            if (capacity.getRemaining(doc.mentor) <= 0) {
+                continue;
+            }
+            double score = entry.getValue() / doc.terms.norm;
+            relevance.put(entry.getKey(), score);
+            similarity.put(entry.getKey(), entry.getValue() / (queryNorm * current.idfNorm(doc)));
+            best = Math.max(best, score);
+        }
+
+        // Keep the top entries in a min-heap of size limit
+        PriorityQueue<Recommendation> top = new PriorityQueue<>(
+                (a, b) -> Double.compare(a.score, b.score));
+        for (Map.Entry<Integer, Double> entry : relevance.entrySet()) {
+            Mentor mentor = current.docs.get(entry.getKey()).mentor;
+            int free = capacity.getRemaining(mentor);
+            double normalized = entry.getValue() / best;
+            double freeShare = (double) free / mentor.getMaxMentees();
+            double score = (1 - CAPACITY_WEIGHT) * normalized + CAPACITY_WEIGHT * freeShare;
+            double cosine = Math.min(1, similarity.get(entry.getKey()));
+            if (top.size() < limit) {
+                top.add(new Recommendation(mentor, score, normalized, cosine, free));
+            } else if (score > top.peek().score) {
+                top.poll();
+                top.add(new Recommendation(mentor, score, normalized, cosine, free));
+            }
+        }
+
+        List<Recommendation> result = new ArrayList<>(top);
+        result.sort((a, b) -> Double.compare(b.score, a.score));
+        for (Recommendation recommendation : result) {
+            recommendation.matchedTerms = matchedTerms(query,
+                    current.docs.get(recommendation.mentor.getMentorId()).terms);
+        }
+        return result;
+    }
+
+    /**
+     * Reload one mentor and add, replace or remove it in the index
+     * @param mentorId Mentor ID
+     */
+    public synchronized void refreshMentor(int mentorId) {
+        Index current = index;
+        if (current == null) {
+            // Nothing built yet; the first reader loads the current state
+            return;
+        }
+        Mentor mentor = mentorDAO.getMentorById(mentorId);
+        index = current.with(mentorId, mentor != null ? new MentorDoc(mentor, vectorize(mentor)) : null);
+    }
+
+    /**
+     * Remember the term vector of an approved proposal
+     * @param proposal Approved proposal
+     */
+    public void indexProposal(ProjectProposal proposal) {
+        proposalVectors.put(proposal.getProposalId(),
+                vectorize(proposal.getTechnologies(), proposal.getTitle(), true));
+    }
+
+    /**
+     * Forget the term vector of a proposal that changed or left the approved state
+     * @param proposalId Proposal ID
+     */
+    public void forgetProposal(int proposalId) {
+        proposalVectors.remove(proposalId);
+    }
+
+    /**
+     * Reload every mentor and publish a new index
+     */
+    public synchronized void rebuild() {
+        Map<Integer, MentorDoc> docs = new HashMap<>();
+        for (Mentor mentor : mentorDAO.getAllMentors()) {
+            docs.put(mentor.getMentorId(), new MentorDoc(mentor, vectorize(mentor)));
+        }
+        index = new Index(docs);
+    }
+
+    /**
+     * Get the number of distinct terms seen so far
+     * @return Dictionary size
+     */
+    public int getTermCount() {
+        return termIds.size();
+    }
+
+    /**
+     * Get the current index, building it on first use and rebuilding it when stale
+     * @return Current index
+     */
+    private Index current() {
+        Index current = index;
+        if (current == null) {
+            return initialize();
+        }
+        if (current.isOlderThan(MAX_AGE_MILLIS) && rebuilding.compareAndSet(false, true)) {
+            try {
+                rebuild();
+            } finally {
+                rebuilding.set(false);
+            }
+        }
+        return index;
+    }
+
+    private synchronized Index initialize() {
+        if (index == null) {
+            rebuild();
+        }
+        return index;
+    }
+
+    private TermVector vectorize(Mentor mentor) {
+        return vectorize(mentor.getSpecialization(), mentor.getDepartment(), true);
+    }
+
+    /**
+     * Turn a primary and a secondary text field into a weighted term vector
+     * @param primary Field weighted PRIMARY_FIELD_WEIGHT, e.g. technologies
+     * @param secondary Field weighted SECONDARY_FIELD_WEIGHT, e.g. title
+     * @param intern true to add new terms to the dictionary, false to drop unknown terms
+     * @return Term vector with sublinear term frequencies
+     */
+    private TermVector vectorize(String primary, String secondary, boolean intern) {
+        Map<String, Float> frequencies = new LinkedHashMap<>();
+        for (String term : tokenize(primary)) {
+            frequencies.merge(term, PRIMARY_FIELD_WEIGHT, Float::sum);
+        }
+        for (String term : tokenize(secondary)) {
+            frequencies.merge(term, SECONDARY_FIELD_WEIGHT, Float::sum);
+        }
+
+        List<String> terms = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        List<Float> weights = new ArrayList<>();
+        double unknownSquares = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            Integer id = intern
+                    ? termIds.computeIfAbsent(entry.getKey(), t -> nextTermId.getAndIncrement())
+                    : termIds.get(entry.getKey());
+            float weight = (float) (1 + Math.log(entry.getValue()));
+            if (id != null) {
+                terms.add(entry.getKey());
+                ids.add(id);
+                weights.add(weight);
+            } else {
+                unknownSquares += weight * weight;
+            }
+        }
+        return new TermVector(terms, ids, weights, unknownSquares);
+    }
+
+    /**
+     * Split free text into lower-case terms, keeping names such as c++, c# and node.js whole
+     * @param text Text to split, may be null
+     * @return Terms in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String raw : SEPARATORS.split(text.toLowerCase())) {
+            String term = EDGE_DOTS.matcher(raw).replaceAll("");
+            if (term.isEmpty() || STOP_WORDS.contains(term)
+                    || (term.length() == 1 && !SHORT_TERMS.contains(term))) {
+                continue;
+            }
+            terms.add(term);
+        }
+        return terms;
+    }
+
+    private static List<String> matchedTerms(TermVector query, TermVector doc) {
+        List<String> matched = new ArrayList<>();
+        for (int i = 0; i < query.size(); i++) {
+            if (doc.indexOf(query.termIds[i]) >= 0) {
+                matched.add(query.terms[i]);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Terms of one text with their weights, sorted by term ID
+     */
+    private static class TermVector {
+        private final String[] terms;
+        private final int[] termIds;
+        private final float[] weights;
+        private final double norm;
+        // Squared weights of terms dropped because no mentor has ever used them
+        private final double unknownSquares;
+
+        TermVector(List<String> terms, List<Integer> ids, List<Float> weights, double unknownSquares) {
+            this.unknownSquares = unknownSquares;
+            Integer[] order = new Integer[ids.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(ids.get(a), ids.get(b)));
+
+            this.terms = new String[order.length];
+            this.termIds = new int[order.length];
+            this.weights = new float[order.length];
+            double sum = 0;
+            for (int i = 0; i < order.length; i++) {
+                this.terms[i] = terms.get(order[i]);
+                this.termIds[i] = ids.get(order[i]);
+                this.weights[i] = weights.get(order[i]);
+                sum += this.weights[i] * this.weights[i];
+            }
+            this.norm = Math.max(1e-9, Math.sqrt(sum));
+        }
+
+        int size() {
+            return termIds.length;
+        }
+
+        int indexOf(int termId) {
+            return Arrays.binarySearch(termIds, termId);
+        }
+    }
+
+    /**
+     * A mentor with its term vector
+     */
+    private static class MentorDoc {
+        private final Mentor mentor;
+        private final TermVector terms;
+
+        MentorDoc(Mentor mentor, TermVector terms) {
+            this.mentor = mentor;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Mentors using one term, with the term's weight for each of them
+     */
+    private static class Postings {
+        private final int[] mentorIds;
+        private final float[] weights;
+
+        Postings(int[] mentorIds, float[] weights) {
+            this.mentorIds = mentorIds;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Immutable inverted index over mentors
+     */
+    private static class Index {
+        private final long createdAt;
+        private final Map<Integer, MentorDoc> docs;
+        private final Map<Integer, Postings> postings;
+
+        /**
+         * Build an index from scratch
+         * @param docs Mentors by mentor ID
+         */
+        Index(Map<Integer, MentorDoc> docs) {
+            Map<Integer, List<MentorDoc>> byTerm = new HashMap<>();
+            for (MentorDoc doc : docs.values()) {
+                for (int termId : doc.terms.termIds) {
+                    byTerm.computeIfAbsent(termId, t -> new ArrayList<>()).add(doc);
+                }
+            }
+            Map<Integer, Postings> built = new HashMap<>();
+            for (Map.Entry<Integer, List<MentorDoc>> entry : byTerm.entrySet()) {
+                built.put(entry.getKey(), toPostings(entry.getKey(), entry.getValue()));
+            }
+            this.createdAt = System.currentTimeMillis();
+            this.docs = docs;
+            this.postings = built;
+        }
+
+        private Index(long createdAt, Map<Integer, MentorDoc> docs, Map<Integer, Postings> postings) {
+            this.createdAt = createdAt;
+            this.docs = docs;
+            this.postings = postings;
+        }
+
+        /**
+         * Copy the index with one mentor replaced, rebuilding only the postings of its old and new terms
+         * @param mentorId Mentor ID
+         * @param doc New document, or null to remove the mentor
+         * @return New index sharing every untouched postings list
+         */
+        Index with(int mentorId, MentorDoc doc) {
+            MentorDoc old = docs.get(mentorId);
+            Map<Integer, MentorDoc> newDocs = new HashMap<>(docs);
+            if (doc != null) {
+                newDocs.put(mentorId, doc);
+            } else {
+                newDocs.remove(mentorId);
+            }
+
+            Set<Integer> touched = new HashSet<>();
+            if (old != null) {
+                for (int termId : old.terms.termIds) {
+                    touched.add(termId);
+                }
+            }
+            if (doc != null) {
+                for (int termId : doc.terms.termIds) {
+                    touched.add(termId);
+                }
+            }
+
+            Map<Integer, Postings> newPostings = new HashMap<>(postings);
+            for (int termId : touched) {
+                List<MentorDoc> users = new ArrayList<>();
+                Postings existing = postings.get(termId);
+                if (existing != null) {
+                    for (int id : existing.mentorIds) {
+                        if (id != mentorId) {
+                            users.add(docs.get(id));
+                        }
+                    }
+                }
+                if (doc != null && doc.terms.indexOf(termId) >= 0) {
+                    users.add(doc);
+                }
+                if (users.isEmpty()) {
+                    newPostings.remove(termId);
+                } else {
+                    newPostings.put(termId, toPostings(termId, users));
+                }
+            }
+            return new Index(createdAt, newDocs, newPostings);
+        }
+
+        /**
+         * Get the length of a mentor's term vector with the IDF weights of this index
+         * @param doc Mentor in this index
+         * @return Vector norm
+         */
+        double idfNorm(MentorDoc doc) {
+            double documents = docs.size();
+            double sum = 0;
+            for (int i = 0; i < doc.terms.size(); i++) {
+                Postings users = postings.get(doc.terms.termIds[i]);
+                double idf = Math.log(1 + documents / (users != null ? users.mentorIds.length : 1));
+                sum += doc.terms.weights[i] * idf * doc.terms.weights[i] * idf;
+            }
+            return Math.max(1e-9, Math.sqrt(sum));
+        }
+
+        boolean isOlderThan(long maxAgeMillis) {
+            return System.currentTimeMillis() - createdAt > maxAgeMillis;
+        }
+
+        private static Postings toPostings(int termId, List<MentorDoc> users) {
+            int[] ids = new int[users.size()];
+            float[] weights = new float[users.size()];
+            for (int i = 0; i < ids.length; i++) {
+                MentorDoc user = users.get(i);
+                ids[i] = user.mentor.getMentorId();
+                weights[i] = user.terms.weights[user.terms.indexOf(termId)];
+            }
+            return new Postings(ids, weights);
+        }
+    }
+
+    /**
+     * One recommended mentor
+     */
+    public static class Recommendation {
+        private final Mentor mentor;
+        private final double score;
+        private final double relevance;
+        private final double similarity;
+        private final int remainingCapacity;
+        private List<String> matchedTerms = Collections.emptyList();
+
+        Recommendation(Mentor mentor, double score, double relevance, double similarity, int remainingCapacity) {
+            this.mentor = mentor;
+            this.score = score;
+            this.relevance = relevance;
+            this.similarity = similarity;
+            this.remainingCapacity = remainingCapacity;
+        }
+
+        /**
+         * Get the recommended mentor
+         * @return Mentor, shared and read-only
+         */
+        public Mentor getMentor() {
+            return mentor;
+        }
+
+        /**
+         * Get the combined score
+         * @return Score between 0 and 1
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * Get the skill match relative to the best match for this proposal
+         * @return Relevance between 0 and 1
+         */
+        public double getRelevance() {
+            return relevance;
+        }
+
+        /**
+         * Get the TF-IDF cosine similarity of mentor and proposal. Unlike the
+         * relevance, it does not depend on the other candidates, so it can be
+         * compared across proposals.
+         * @return Similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        /**
+         * Get the number of mentees the mentor can still take
+         * @return Free places
+         */
+        public int getRemainingCapacity() {
+            return remainingCapacity;
+        }
+
+        /**
+         * Get the proposal terms the mentor matched
+         * @return Matched terms
+         */
+        public List<String> getMatchedTerms() {
+            return matchedTerms;
+        }
+    }
+}
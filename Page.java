@@ -0,0 +1,76 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list
+ * @param <T> Item type
+ */
+public class Page<T> {
+    public static final int DEFAULT_SIZE = 25;
+    public static final int MAX_SIZE = 100;
+    
+    private final List<T> items;
+    private final String nextCursor;
+    
+    // Constructor with fields
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * Cursor to pass back to fetch the following page
+     * @return Opaque cursor string, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+    
+    public int getSize() {
+        return items.size();
+    }
+    
+    /**
+     * Clamp a requested page size to the allowed range
+     * @param requested Requested page size
+     * @return Page size between 1 and MAX_SIZE
+     */
+    public static int clampSize(int requested) {
+        if (requested <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(requested, MAX_SIZE);
+    }
+    
+    /**
+     * Parse a page size request parameter
+     * @param value Parameter value, may be null
+     * @return Page size between 1 and MAX_SIZE
+     */
+    public static int parseSize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_SIZE;
+        }
+        try {
+            return clampSize(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_SIZE;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "Page [size=" + items.size() + ", nextCursor=" + nextCursor + "]";
+    }
+}
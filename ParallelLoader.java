@@ -0,0 +1,275 @@
+package service;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dao.IdentityMap;
+import util.ConnectionContext;
+import util.DBUtil;
+
+/**
+ * Runs independent read-only lookups in parallel and waits for all of them.
+ * Branches run on virtual threads when the JDK provides them, otherwise on a
+ * bounded shared pool that falls back to running tasks in the caller thread
+ * when saturated. If one branch fails the others are cancelled and join()
+ * rethrows the failure.
+ * Fork each lookup, call join() once, then read the branch results.
+ * Each parallel branch borrows a connection of its own, so branches must not
+ * depend on uncommitted writes made by the caller. Since the caller usually
+ * still holds its request connection, parallel branches draw on a separate
+ * budget of db.parallel.maxConnections (default a quarter of the pool), and a
+ * branch that finds the budget or the pool exhausted runs inline in the
+ * caller's thread on the caller's connection instead of waiting for one.
+ */
+public class ParallelLoader {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Semaphore CONNECTION_BUDGET = new Semaphore(Math.max(1, DBUtil.getIntProperty(
+            "db.parallel.maxConnections", DBUtil.getIntProperty("db.pool.maxSize", 20) / 4)));
+
+    private final long timeoutMillis;
+    private final List<Branch<?>> branches = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    /**
+     * Constructor
+     */
+    public ParallelLoader() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor
+     * @param timeoutMillis Maximum time join() waits for all branches
+     */
+    public ParallelLoader(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Start a branch
+     * @param name Branch name used in timings and error messages
+     * @param task Lookup to run
+     * @return Handle to read the result after join()
+     */
+    public <T> Branch<T> fork(String name, Callable<T> task) {
+        Branch<T> branch = new Branch<>(name, task, IdentityMap.current());
+        branches.add(branch);
+        if (CONNECTION_BUDGET.tryAcquire()) {
+            if (DBUtil.getAvailableConnections() > 0) {
+                branch.budgeted.set(true);
+                try {
+                    branch.future = EXECUTOR.submit(branch::call);
+                } catch (RuntimeException e) {
+                    branch.releaseBudget();
+                    throw e;
+                }
+                return branch;
+            }
+            CONNECTION_BUDGET.release();
+        }
+        // No connection to spare: run now on the caller's connection rather than wait on the pool
+        FutureTask<T> inline = new FutureTask<>(branch::call);
+        branch.future = inline;
+        inline.run();
+        return branch;
+    }
+
+    /**
+     * Wait for every branch to finish
+     * @throws RuntimeException the first branch failure, or a timeout
+     */
+    public void join() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Branch<?> branch : branches) {
+            try {
+                branch.result = branch.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | CancellationException e) {
+                cancelAll();
+                throw propagate(branch.name, firstFailure.get() != null ? firstFailure.get() : e.getCause());
+            } catch (TimeoutException e) {
+                cancelAll();
+                throw new RuntimeException("Branch '" + branch.name + "' timed out after " + timeoutMillis + "ms");
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for branch '" + branch.name + "'", e);
+            }
+        }
+    }
+
+    /**
+     * Get how long each branch took, in milliseconds
+     * @return Map of branch name to elapsed time, in fork order
+     */
+    public Map<String, Long> getTimings() {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        for (Branch<?> branch : branches) {
+            timings.put(branch.name, TimeUnit.NANOSECONDS.toMillis(branch.elapsedNanos));
+        }
+        return Collections.unmodifiableMap(timings);
+    }
+
+    /**
+     * Stop the shared executor, e.g. on application shutdown
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Record the first failure and cancel the sibling branches
+     * @param failure Exception thrown by a branch
+     */
+    private void onFailure(Throwable failure) {
+        if (firstFailure.compareAndSet(null, failure)) {
+            cancelAll();
+        }
+    }
+
+    /**
+     * Cancel every branch that is still running
+     */
+    private void cancelAll() {
+        for (Branch<?> branch : branches) {
+            // A branch cancelled before it started never reaches its own release
+            if (branch.future != null && branch.future.cancel(true)) {
+                branch.releaseBudget();
+            }
+        }
+    }
+
+    /**
+     * Convert a branch failure into an unchecked exception for the caller
+     * @param name Branch name
+     * @param cause Exception thrown by the branch
+     * @return Exception to throw
+     */
+    private static RuntimeException propagate(String name, Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException("Branch '" + name + "' failed", cause);
+    }
+
+    /**
+     * Create the shared executor: virtual threads if available, otherwise a bounded pool
+     * @return ExecutorService for branches
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Older JDK, fall back to platform threads
+        }
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(threads * 16),
+                r -> {
+                    Thread t = new Thread(r, "parallel-loader-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * A single forked lookup
+     * @param <T> Result type
+     */
+    public class Branch<T> {
+        private final String name;
+        private final Callable<T> task;
+        private final IdentityMap identities;
+        private volatile Future<?> future;
+        private volatile Object result;
+        private volatile long elapsedNanos;
+        // Set while the branch holds a CONNECTION_BUDGET permit
+        private final AtomicBoolean budgeted = new AtomicBoolean();
+
+        Branch(String name, Callable<T> task, IdentityMap identities) {
+            this.name = name;
+            this.task = task;
+            this.identities = identities;
+        }
+
+        /**
+         * Get the branch result; only valid after join() returned
+         * @return Result of the lookup
+         */
+        @SuppressWarnings("unchecked")
+        public T get() {
+            return (T) result;
+        }
+
+        /**
+         * Get the branch name
+         * @return Branch name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get how long the branch took
+         * @return Elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * Return the connection budget permit, if the branch still holds one
+         */
+        private void releaseBudget() {
+            if (budgeted.compareAndSet(true, false)) {
+                CONNECTION_BUDGET.release();
+            }
+        }
+
+        private T call() throws Exception {
+            long start = System.nanoTime();
+            ConnectionContext context = ConnectionContext.open();
+            // Share the caller's identity map so branches reuse each other's entities
+            IdentityMap scope = IdentityMap.join(identities);
+            try {
+                return task.call();
+            } catch (Exception | Error e) {
+                onFailure(e);
+                throw e;
+            } finally {
+                scope.close();
+                context.close();
+                releaseBudget();
+                elapsedNanos = System.nanoTime() - start;
+            }
+        }
+    }
+}
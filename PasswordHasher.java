@@ -0,0 +1,242 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 password hashing engine.
+ * Hashes are stored as $pbkdf2-sha256$iterations$salt$hash (base64), so the
+ * cost factor can be raised later without breaking existing hashes.
+ * All hashing runs on a small fixed-size executor with a bounded queue, so a
+ * login storm cannot take CPU from request threads. Callers that cannot be
+ * served in time get a HashingBusyException instead of waiting forever.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int MIN_ITERATIONS = 100000;
+    private static final int MAX_ITERATIONS = 5000000;
+    private static final int DEFAULT_ITERATIONS = 310000;
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private volatile int iterations = DEFAULT_ITERATIONS;
+    
+    /**
+     * Constructor
+     * @param threads Number of hashing threads
+     * @param queueSize Maximum number of hashing jobs waiting for a thread
+     * @param timeoutMillis Maximum time a caller waits for its hash
+     */
+    public PasswordHasher(int threads, int queueSize, long timeoutMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+                r -> {
+                    Thread t = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Pick the iteration count that takes about the target time on this machine
+     * @param targetMillis Target hashing time for one password
+     * @return Iteration count now used for new hashes
+     */
+    public int calibrate(long targetMillis) {
+        int probe = 20000;
+        char[] password = "calibration-password".toCharArray();
+        byte[] salt = newSalt();
+        
+        // Warm up the JIT before measuring
+        derive(password, salt, probe);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            derive(password, salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        
+        long scaled = probe * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(1, best);
+        iterations = (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, scaled));
+        System.out.println("Password hashing calibrated: " + iterations + " PBKDF2 iterations for ~"
+                + targetMillis + "ms");
+        return iterations;
+    }
+    
+    /**
+     * Get the iteration count used for new hashes
+     * @return Iteration count
+     */
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * Hash a password with a fresh salt
+     * @param password Plain text password
+     * @return Encoded hash
+     * @throws HashingBusyException if the hashing executor is saturated
+     */
+    public String hash(String password) {
+        int cost = iterations;
+        byte[] salt = newSalt();
+        byte[] hash = submit(() -> derive(password.toCharArray(), salt, cost));
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + cost + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+    
+    /**
+     * Verify a password against a stored value, which may be a hash or a legacy plain text password
+     * @param password Plain text password to verify
+     * @param stored Stored password from the database
+     * @return true if the password matches, false otherwise
+     * @throws HashingBusyException if the hashing executor is saturated
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            // Legacy row; compare without leaking where the strings differ
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int cost = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            if (cost <= 0 || cost > MAX_ITERATIONS) {
+                return false;
+            }
+            byte[] actual = submit(() -> derive(password.toCharArray(), salt, cost));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Check whether a stored password should be replaced by a fresh hash:
+     * legacy plain text, or hashed with fewer iterations than the current setting
+     * @param stored Stored password from the database
+     * @return true if the password should be rehashed, false otherwise
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !isHashed(stored)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    /**
+     * Check whether a stored password is in the hashed format
+     * @param stored Stored password
+     * @return true if hashed, false if legacy plain text
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+    
+    /**
+     * Get the number of hashing jobs waiting for a thread
+     * @return Queue length
+     */
+    public int getQueueLength() {
+        return executor.getQueue().size();
+    }
+    
+    /**
+     * Stop the hashing threads, e.g. on application shutdown
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Run a hashing job on the executor and wait for it
+     * @param job Hashing job
+     * @return Derived key
+     */
+    private byte[] submit(Callable<byte[]> job) {
+        Future<byte[]> future;
+        try {
+            future = executor.submit(job);
+        } catch (RejectedExecutionException e) {
+            throw new HashingBusyException("Password hashing queue is full");
+        }
+        
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingBusyException("Password hashing timed out after " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingBusyException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+    
+    private static byte[] newSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return salt;
+    }
+    
+    private static byte[] derive(char[] password, byte[] salt, int cost) {
+        try {
+            KeySpec spec = new PBEKeySpec(password, salt, cost, HASH_BITS);
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256 is available on every Java 8+ platform
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Thrown when a password cannot be hashed in time because the engine is saturated
+     */
+    public static class HashingBusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        public HashingBusyException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package util;
 
+import java.util.UUID;
+
 /**
- * Utility class for password handling
- * Note: This implementation uses plain text passwords for simplicity.
- * In a production environment, passwords should always be hashed.
+ * Utility class for password handling.
+ * Passwords are hashed with PBKDF2 on a dedicated, bounded pool of threads
+ * (see PasswordHasher). Rows that still hold a legacy plain text password are
+ * accepted and should be rehashed on the next successful login.
+ * Settings (optional, in db.properties):
+ * auth.hash.threads, auth.hash.queueSize, auth.hash.timeoutMs, auth.hash.targetMs
  */
 public class PasswordUtil {
+    private static final PasswordHasher HASHER = new PasswordHasher(
+            DBUtil.getIntProperty("auth.hash.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            DBUtil.getIntProperty("auth.hash.queueSize", 32),
+            DBUtil.getIntProperty("auth.hash.timeoutMs", 5000));
+    // Hash of a random password at the current iteration count, for verifyDummy()
+    private static volatile String dummyHash;
+    private static volatile int dummyIterations;
 
     /**
-     * Store password as plain text
+     * Hash a password with a fresh salt
      * @param password Plain text password
-     * @return The same password (no hashing)
+     * @return Encoded PBKDF2 hash
+     * @throws PasswordHasher.HashingBusyException if too many passwords are being hashed
      */
     public static String hashPassword(String password) {
-        // Return the password as is (no hashing)
-        return password;
+        return HASHER.hash(password);
     }
 
     /**
@@ -22,9 +34,59 @@ public class PasswordUtil {
      * @param password Plain text password to verify
      * @param storedPassword Stored password from the database
      * @return true if password matches, false otherwise
+     * @throws PasswordHasher.HashingBusyException if too many passwords are being hashed
      */
     public static boolean verifyPassword(String password, String storedPassword) {
-        // Simple string comparison
-        return password != null && password.equals(storedPassword);
+        return HASHER.verify(password, storedPassword);
+    }
+
+    /**
+     * Spend as long as verifying a real password, e.g. for an unknown username,
+     * so response times do not tell which usernames exist
+     * @param password Plain text password that was submitted
+     * @throws PasswordHasher.HashingBusyException if too many passwords are being hashed
+     */
+    public static void verifyDummy(String password) {
+        String hash = dummyHash;
+        if (hash == null || dummyIterations != HASHER.getIterations()) {
+            hash = refreshDummyHash();
+        }
+        HASHER.verify(password, hash);
+    }
+
+    /**
+     * Check whether a stored password is plain text or uses fewer iterations than the current setting
+     * @param storedPassword Stored password from the database
+     * @return true if the password should be rehashed, false otherwise
+     */
+    public static boolean needsRehash(String storedPassword) {
+        return HASHER.needsRehash(storedPassword);
+    }
+
+    /**
+     * Measure this machine and pick the iteration count for new hashes
+     */
+    public static void calibrate() {
+        HASHER.calibrate(DBUtil.getIntProperty("auth.hash.targetMs", 250));
+        refreshDummyHash();
+    }
+
+    /**
+     * Hash a random password at the current iteration count for verifyDummy()
+     * @return New dummy hash
+     */
+    private static String refreshDummyHash() {
+        int iterations = HASHER.getIterations();
+        String hash = HASHER.hash(UUID.randomUUID().toString());
+        dummyIterations = iterations;
+        dummyHash = hash;
+        return hash;
+    }
+
+    /**
+     * Stop the hashing threads, e.g. on application shutdown
+     */
+    public static void shutdown() {
+        HASHER.shutdown();
     }
 }
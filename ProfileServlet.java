@@ -11,17 +11,22 @@ import javax.servlet.http.HttpSession;
 
 import java.util.List;
 
+import model.SessionPrincipal;
 import model.User;
 import model.Student;
 import model.Mentor;
 import model.ProjectProposal;
 import model.MentorAssignment;
 import model.MentorInterest;
+import model.DashboardStats;
 import service.AuthService;
+import service.MentorRecommender;
+import service.ParallelLoader;
 import service.ProjectService;
 import dao.StudentDAO;
 import dao.MentorDAO;
 import dao.UserDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling user profile viewing and editing
@@ -55,7 +60,8 @@ public class ProfileServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal principal = AuthUtil.getPrincipal(request);
+        User user = principal != null ? userDAO.getUserById(principal.getUserId()) : null;
 
         if (user == null) {
             // User not logged in
@@ -63,14 +69,24 @@ public class ProfileServlet extends HttpServlet {
             return;
         }
 
+        // Full user record for the profile form; the session only holds the principal
+        request.setAttribute("user", user);
+
         // Load additional profile information based on user role
         switch (user.getRole()) {
             case "student":
                 Student student = studentDAO.getStudentByUserId(user.getUserId());
                 if (student != null) {
                     // Get student statistics
-                    List<ProjectProposal> proposals = projectService.getProposalsByStudentId(student.getStudentId());
-                    List<MentorAssignment> assignments = projectService.getAssignmentsByStudentId(student.getStudentId());
+                    int studentId = student.getStudentId();
+                    ParallelLoader loader = new ParallelLoader();
+                    ParallelLoader.Branch<List<ProjectProposal>> proposalsBranch =
+                            loader.fork("proposals", () -> projectService.getProposalsByStudentId(studentId));
+                    ParallelLoader.Branch<List<MentorAssignment>> assignmentsBranch =
+                            loader.fork("assignments", () -> projectService.getAssignmentsByStudentId(studentId));
+                    loader.join();
+                    List<ProjectProposal> proposals = proposalsBranch.get();
+                    List<MentorAssignment> assignments = assignmentsBranch.get();
 
                     int proposalCount = proposals.size();
                     int activeProjectCount = 0;
@@ -100,8 +116,15 @@ public class ProfileServlet extends HttpServlet {
                 Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
                 if (mentor != null) {
                     // Get mentor statistics
-                    List<MentorAssignment> assignments = projectService.getAssignmentsByMentorId(mentor.getMentorId());
-                    List<MentorInterest> interests = projectService.getInterestsForMentor(mentor.getMentorId());
+                    int mentorId = mentor.getMentorId();
+                    ParallelLoader loader = new ParallelLoader();
+                    ParallelLoader.Branch<List<MentorAssignment>> assignmentsBranch =
+                            loader.fork("assignments", () -> projectService.getAssignmentsByMentorId(mentorId));
+                    ParallelLoader.Branch<List<MentorInterest>> interestsBranch =
+                            loader.fork("interests", () -> projectService.getInterestsForMentor(mentorId));
+                    loader.join();
+                    List<MentorAssignment> assignments = assignmentsBranch.get();
+                    List<MentorInterest> interests = interestsBranch.get();
 
                     int menteeCount = 0;
                     int activeProjectCount = 0;
@@ -124,13 +147,12 @@ public class ProfileServlet extends HttpServlet {
 
             case "admin":
                 // Get admin statistics
-                int studentCount = studentDAO.getAllStudents().size();
-                int mentorCount = mentorDAO.getAllMentors().size();
-                int proposalCount = projectService.getAllProposals().size();
+                DashboardStats stats = projectService.getDashboardStats();
 
-                request.setAttribute("studentCount", studentCount);
-                request.setAttribute("mentorCount", mentorCount);
-                request.setAttribute("proposalCount", proposalCount);
+                request.setAttribute("stats", stats);
+                request.setAttribute("studentCount", stats.getStudentCount());
+                request.setAttribute("mentorCount", stats.getMentorCount());
+                request.setAttribute("proposalCount", stats.getTotalProposalCount());
 
                 request.getRequestDispatcher("/WEB-INF/views/profile/admin-profile.jsp").forward(request, response);
                 break;
@@ -151,7 +173,8 @@ public class ProfileServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal principal = AuthUtil.getPrincipal(request);
+        User user = principal != null ? userDAO.getUserById(principal.getUserId()) : null;
 
         if (user == null) {
             // User not logged in
@@ -177,8 +200,9 @@ public class ProfileServlet extends HttpServlet {
             return;
         }
 
-        // Update session with new user information
-        session.setAttribute("user", user);
+        // Update the session principal with the new name and version
+        User updatedUser = userDAO.getUserById(user.getUserId());
+        AuthUtil.signIn(request, response, updatedUser != null ? updatedUser : user);
 
         // Update role-specific information
         boolean profileUpdated = true;
@@ -219,6 +243,9 @@ public class ProfileServlet extends HttpServlet {
                     }
 
                     profileUpdated = mentorDAO.updateMentor(mentor);
+                    if (profileUpdated) {
+                        MentorRecommender.getInstance().refreshMentor(mentor.getMentorId());
+                    }
                 }
                 break;
 
@@ -1,6 +1,9 @@
 package service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import dao.ProgressUpdateDAO;
 import dao.MentorAssignmentDAO;
@@ -40,6 +43,30 @@ public class ProgressService {
         return updateDAO.getUpdatesByAssignmentId(assignmentId);
     }
     
+    /**
+     * Get the latest progress updates for a set of assignments
+     * @param assignments Assignments to load updates for
+     * @param limit Maximum number of updates per assignment
+     * @return Map of assignment ID to its updates, newest first; every assignment has an entry
+     */
+    public Map<Integer, List<ProgressUpdate>> getLatestUpdates(List<MentorAssignment> assignments, int limit) {
+        Map<Integer, MentorAssignment> byId = new LinkedHashMap<>();
+        for (MentorAssignment assignment : assignments) {
+            byId.put(assignment.getAssignmentId(), assignment);
+        }
+        
+        Map<Integer, List<ProgressUpdate>> updates = updateDAO.getLatestUpdatesByAssignmentIds(byId.keySet(), limit);
+        Map<Integer, List<ProgressUpdate>> board = new LinkedHashMap<>();
+        for (MentorAssignment assignment : byId.values()) {
+            List<ProgressUpdate> latest = updates.getOrDefault(assignment.getAssignmentId(), new ArrayList<>());
+            for (ProgressUpdate update : latest) {
+                update.setAssignment(assignment);
+            }
+            board.put(assignment.getAssignmentId(), latest);
+        }
+        return board;
+    }
+    
     /**
      * Get progress updates by creator ID
      * @param createdBy User ID of the creator
@@ -6,7 +6,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import model.MentorAssignment;
 import model.ProgressUpdate;
@@ -74,19 +78,7 @@ public class ProgressUpdateDAO {
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                ProgressUpdate update = mapUpdate(rs);
-                // Load creator
-                User creator = userDAO.getUserById(update.getCreatedBy());
-                update.setCreator(creator);
-                updates.add(update);
-            }
-            
-            // Load assignment for the first update if there are any
-            if (!updates.isEmpty()) {
-                MentorAssignment assignment = assignmentDAO.getAssignmentById(assignmentId);
-                for (ProgressUpdate update : updates) {
-                    update.setAssignment(assignment);
-                }
+                updates.add(mapUpdate(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -94,6 +86,19 @@ public class ProgressUpdateDAO {
             closeResources(conn, stmt, rs);
         }
         
+        if (!updates.isEmpty()) {
+            // Load the assignment once and all creators in one batch
+            MentorAssignment assignment = assignmentDAO.getAssignmentById(assignmentId);
+            BatchLoader<User> creators = new BatchLoader<>(userDAO::getUsersByIds);
+            for (ProgressUpdate update : updates) {
+                creators.request(update.getCreatedBy());
+            }
+            for (ProgressUpdate update : updates) {
+                update.setAssignment(assignment);
+                update.setCreator(creators.get(update.getCreatedBy()));
+            }
+        }
+        
         return updates;
     }
     
@@ -115,17 +120,8 @@ public class ProgressUpdateDAO {
             stmt.setInt(1, createdBy);
             rs = stmt.executeQuery();
             
-            User creator = userDAO.getUserById(createdBy);
-            
             while (rs.next()) {
-                ProgressUpdate update = mapUpdate(rs);
-                update.setCreator(creator);
-                
-                // Load associated assignment
-                MentorAssignment assignment = assignmentDAO.getAssignmentById(update.getAssignmentId());
-                update.setAssignment(assignment);
-                
-                updates.add(update);
+                updates.add(mapUpdate(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -133,9 +129,120 @@ public class ProgressUpdateDAO {
             closeResources(conn, stmt, rs);
         }
         
+        if (!updates.isEmpty()) {
+            // Load the creator once and all assignments in one batch
+            User creator = userDAO.getUserById(createdBy);
+            BatchLoader<MentorAssignment> assignments = new BatchLoader<>(assignmentDAO::getAssignmentsByIds);
+            for (ProgressUpdate update : updates) {
+                assignments.request(update.getAssignmentId());
+            }
+            for (ProgressUpdate update : updates) {
+                update.setCreator(creator);
+                update.setAssignment(assignments.get(update.getAssignmentId()));
+            }
+        }
+        
         return updates;
     }
     
+    /**
+     * Get the latest progress updates for several assignments in one windowed query
+     * @param assignmentIds Assignment IDs
+     * @param limit Maximum number of updates per assignment
+     * @return Map of assignment ID to its updates, newest first; assignments are not loaded
+     */
+    public Map<Integer, List<ProgressUpdate>> getLatestUpdatesByAssignmentIds(Collection<Integer> assignmentIds, int limit) {
+        Map<Integer, List<ProgressUpdate>> updates = new HashMap<>();
+        List<ProgressUpdate> all = new ArrayList<>();
+        
+        for (List<Integer> chunk : BatchLoader.partition(assignmentIds)) {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            
+            try {
+                conn = DBUtil.getConnection();
+                String sql = "SELECT * FROM ("
+                           + "SELECT pu.*, ROW_NUMBER() OVER (PARTITION BY pu.assignment_id "
+                           + "ORDER BY pu.created_at DESC, pu.update_id DESC) AS rn "
+                           + "FROM progress_updates pu WHERE pu.assignment_id IN (" + BatchLoader.placeholders(chunk.size()) + ")"
+                           + ") ranked WHERE rn <= ? ORDER BY assignment_id, rn";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                for (Integer id : chunk) {
+                    stmt.setInt(index++, id);
+                }
+                stmt.setInt(index, limit);
+                rs = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    ProgressUpdate update = mapUpdate(rs);
+                    updates.computeIfAbsent(update.getAssignmentId(), k -> new ArrayList<>()).add(update);
+                    all.add(update);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } finally {
+                closeResources(conn, stmt, rs);
+            }
+        }
+        
+        if (!all.isEmpty()) {
+            // Resolve every creator on the board in one batch
+            BatchLoader<User> creators = new BatchLoader<>(userDAO::getUsersByIds);
+            for (ProgressUpdate update : all) {
+                creators.request(update.getCreatedBy());
+            }
+            for (ProgressUpdate update : all) {
+                update.setCreator(creators.get(update.getCreatedBy()));
+            }
+        }
+        
+        return updates;
+    }
+    
+    /**
+     * Stream progress updates with their creator to a consumer one row at a time without buffering them in a list.
+     * Uses a forward-only, read-only cursor on a dedicated connection; the consumer may
+     * call other DAO methods.
+     * @param assignmentId Assignment ID, or null for all updates; the assignment itself is not loaded
+     * @param consumer Callback invoked for each update
+     * @return Number of rows visited
+     * @throws SQLException if the query fails, possibly after some rows were passed to the consumer
+     */
+    public long forEachUpdate(Integer assignmentId, Consumer<ProgressUpdate> consumer) throws SQLException {
+        long count = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getStreamingConnection();
+            String sql = "SELECT pu.*, " + UserDAO.selectColumns("u", "u_")
+                       + " FROM progress_updates pu"
+                       + " LEFT JOIN users u ON u.user_id = pu.created_by"
+                       + (assignmentId != null ? " WHERE pu.assignment_id = ?" : "")
+                       + " ORDER BY pu.update_id";
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(DBUtil.getStreamingFetchSize());
+            if (assignmentId != null) {
+                stmt.setObject(1, assignmentId);
+            }
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                ProgressUpdate update = mapUpdate(rs);
+                update.setCreator(UserDAO.mapUser(rs, "u_"));
+                consumer.accept(update);
+                count++;
+            }
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return count;
+    }
+    
     /**
      * Create a new progress update
      * @param update ProgressUpdate object to create
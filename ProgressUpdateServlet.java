@@ -10,11 +10,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import model.SessionPrincipal;
 import model.User;
 import model.MentorAssignment;
 import model.ProgressUpdate;
 import service.ProgressService;
 import dao.MentorAssignmentDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling progress updates
@@ -42,7 +44,7 @@ public class ProgressUpdateServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get assignment ID from request
         String assignmentIdStr = request.getParameter("assignmentId");
@@ -111,7 +113,7 @@ public class ProgressUpdateServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get form parameters
         String assignmentIdStr = request.getParameter("assignmentId");
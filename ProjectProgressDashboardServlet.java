@@ -1,8 +1,6 @@
 package servlet;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +21,8 @@ import service.ProgressService;
 @WebServlet("/admin/project-progress")
 public class ProjectProgressDashboardServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_UPDATES_PER_PROJECT = 5;
+    private static final int MAX_UPDATES_PER_PROJECT = 50;
     private ProjectService projectService;
     private ProgressService progressService;
     
@@ -44,20 +44,32 @@ public class ProjectProgressDashboardServlet extends HttpServlet {
         // Get all active assignments
         List<MentorAssignment> assignments = projectService.getAssignmentsByStatus("accepted");
         
-        // Create a map of assignment ID to progress updates
-        Map<Integer, List<ProgressUpdate>> progressMap = new HashMap<>();
-        
-        // Get progress updates for each assignment
-        for (MentorAssignment assignment : assignments) {
-            List<ProgressUpdate> updates = progressService.getUpdatesByAssignmentId(assignment.getAssignmentId());
-            progressMap.put(assignment.getAssignmentId(), updates);
-        }
+        // Load the latest updates for every assignment in one query
+        int limit = parseLimit(request.getParameter("updates"));
+        Map<Integer, List<ProgressUpdate>> progressMap = progressService.getLatestUpdates(assignments, limit);
         
         // Set attributes for the view
         request.setAttribute("assignments", assignments);
         request.setAttribute("progressMap", progressMap);
+        request.setAttribute("updatesPerProject", limit);
         
         // Forward to progress dashboard page
         request.getRequestDispatcher("/WEB-INF/views/admin/project-progress.jsp").forward(request, response);
     }
+    
+    /**
+     * Parse the number of updates shown per project
+     * @param value Request parameter value
+     * @return Limit between 1 and MAX_UPDATES_PER_PROJECT
+     */
+    private int parseLimit(String value) {
+        if (value != null) {
+            try {
+                return Math.max(1, Math.min(MAX_UPDATES_PER_PROJECT, Integer.parseInt(value.trim())));
+            } catch (NumberFormatException e) {
+                // Fall through to the default
+            }
+        }
+        return DEFAULT_UPDATES_PER_PROJECT;
+    }
 }
@@ -5,17 +5,38 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import model.ProjectProposal;
 import model.Student;
+import model.Page;
+import util.ConnectionContext;
 import util.DBUtil;
+import util.TagFilter;
+import util.TextIndex;
 
 /**
  * Data Access Object for ProjectProposal entity
  */
 public class ProjectProposalDAO {
+    // Columns of the proposal table, used to build aliased select lists for joins
+    // Sort key of proposal objects that carry no submission date; the column itself is
+    // NOT NULL (see keyset_pagination.sql), so stored rows never use it
+    private static final Timestamp NO_SUBMISSION_DATE = Timestamp.valueOf("1970-01-01 00:00:00");
+    private static final String[] COLUMNS = {"proposal_id", "student_id", "title", "description", "objectives", "technologies", "status", "submission_date", "last_updated"};
+    // Full-text index over every proposal: title, description, objectives and technologies,
+    // weighted 3:1:1:2. Filled by buildSearchIndex() and kept current by the writes below.
+    private static final TextIndex SEARCH_INDEX = new TextIndex("proposals", 3, 1, 1, 2);
+    // Technology tags of every proposal, filled and updated together with SEARCH_INDEX
+    private static final ProposalTagIndex TAG_INDEX = new ProposalTagIndex();
+    // Keeps the indexing scan and bulk status changes from interleaving between the two indexes
+    private static final Object INDEX_STATUS_LOCK = new Object();
     private StudentDAO studentDAO = new StudentDAO();
     
     /**
@@ -68,11 +89,7 @@ public class ProjectProposalDAO {
             rs = stmt.executeQuery(sql);
             
             while (rs.next()) {
-                ProjectProposal proposal = mapProposal(rs);
-                // Load associated student
-                Student student = studentDAO.getStudentById(proposal.getStudentId());
-                proposal.setStudent(student);
-                proposals.add(proposal);
+                proposals.add(mapProposal(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -80,6 +97,9 @@ public class ProjectProposalDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated students in one batch
+        loadStudents(proposals);
+        
         return proposals;
     }
     
@@ -102,11 +122,7 @@ public class ProjectProposalDAO {
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                ProjectProposal proposal = mapProposal(rs);
-                // Load associated student
-                Student student = studentDAO.getStudentById(proposal.getStudentId());
-                proposal.setStudent(student);
-                proposals.add(proposal);
+                proposals.add(mapProposal(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -114,6 +130,9 @@ public class ProjectProposalDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated students in one batch
+        loadStudents(proposals);
+        
         return proposals;
     }
     
@@ -136,11 +155,7 @@ public class ProjectProposalDAO {
             rs = stmt.executeQuery();
             
             while (rs.next()) {
-                ProjectProposal proposal = mapProposal(rs);
-                // Load associated student
-                Student student = studentDAO.getStudentById(proposal.getStudentId());
-                proposal.setStudent(student);
-                proposals.add(proposal);
+                proposals.add(mapProposal(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -148,9 +163,223 @@ public class ProjectProposalDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated students in one batch
+        loadStudents(proposals);
+        
         return proposals;
     }
     
+    /**
+     * Get proposals by IDs, chunking very large ID sets
+     * @param proposalIds Proposal IDs
+     * @return Map of proposal ID to ProjectProposal; IDs that were not found are absent
+     */
+    public Map<Integer, ProjectProposal> getProposalsByIds(Collection<Integer> proposalIds) {
+        Map<Integer, ProjectProposal> result = DaoSupport.selectByIds("project_proposals", "proposal_id", proposalIds, null, this::mapProposal);
+        
+        // Load associated students in one batch
+        loadStudents(result.values());
+        
+        return result;
+    }
+    
+    /**
+     * Count proposals grouped by status
+     * @return Map of status to number of proposals
+     */
+    public Map<String, Integer> countProposalsByStatus() {
+        Map<String, Integer> counts = new HashMap<>();
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "SELECT status, COUNT(*) AS total FROM project_proposals GROUP BY status";
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery(sql);
+            
+            while (rs.next()) {
+                counts.put(rs.getString("status"), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return counts;
+    }
+    
+    /**
+     * Get one page of proposals using keyset pagination, ordered by newest submission first.
+     * Seeks on (submission_date, proposal_id), which the composite indexes from
+     * keyset_pagination.sql serve without a filesort.
+     * @param status Status to filter by, or null for all proposals
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size, capped at Page.MAX_SIZE
+     * @return Page of proposals with the cursor for the next page
+     */
+    public Page<ProjectProposal> getProposalsPage(String status, String cursor, int pageSize) {
+        int limit = Page.clampSize(pageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<ProjectProposal> proposals = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            StringBuilder sql = new StringBuilder("SELECT * FROM project_proposals WHERE 1 = 1");
+            if (status != null) {
+                sql.append(" AND status = ?");
+            }
+            if (after != null) {
+                sql.append(" AND (submission_date, proposal_id) < (?, ?)");
+            }
+            sql.append(" ORDER BY submission_date DESC, proposal_id DESC LIMIT ?");
+            stmt = conn.prepareStatement(sql.toString());
+            
+            int index = 1;
+            if (status != null) {
+                stmt.setString(index++, status);
+            }
+            if (after != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(after.getSortKey()));
+                stmt.setInt(index++, after.getId());
+            }
+            // Fetch one extra row to know whether another page follows
+            stmt.setInt(index, limit + 1);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                proposals.add(mapProposal(rs));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        String nextCursor = null;
+        if (proposals.size() > limit) {
+            proposals.remove(limit);
+            ProjectProposal last = proposals.get(limit - 1);
+            nextCursor = new KeysetCursor(submissionKey(last).toString(), last.getProposalId()).encode();
+        }
+        
+        // Load associated students in one batch
+        loadStudents(proposals);
+        
+        return new Page<>(proposals, nextCursor);
+    }
+    
+    /**
+     * Get one page of proposals whose technology tags match a filter, newest submission first.
+     * Matches come from the in-memory tag index; only the page itself is loaded from the database.
+     * Cursors are interchangeable with those of the unfiltered getProposalsPage.
+     * @param status Status to filter by, or null for all proposals
+     * @param filter Tag filter
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size, capped at Page.MAX_SIZE
+     * @return Page of proposals with the cursor for the next page
+     */
+    public Page<ProjectProposal> getProposalsPage(String status, TagFilter filter, String cursor, int pageSize) {
+        if (filter.isEmpty()) {
+            return getProposalsPage(status, cursor, pageSize);
+        }
+        int limit = Page.clampSize(pageSize);
+        List<Integer> ids;
+        try {
+            // Find one extra proposal to know whether another page follows
+            ids = TAG_INDEX.findPage(status, filter, KeysetCursor.decode(cursor), limit + 1);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return new Page<>(new ArrayList<ProjectProposal>(), null);
+        }
+        
+        Map<Integer, ProjectProposal> loaded = getProposalsByIds(ids);
+        List<ProjectProposal> proposals = new ArrayList<>(ids.size());
+        for (Integer id : ids.subList(0, Math.min(limit, ids.size()))) {
+            ProjectProposal proposal = loaded.get(id);
+            if (proposal != null) {
+                proposals.add(proposal);
+            }
+        }
+        
+        String nextCursor = null;
+        if (ids.size() > limit && !proposals.isEmpty()) {
+            ProjectProposal last = proposals.get(proposals.size() - 1);
+            nextCursor = new KeysetCursor(submissionKey(last).toString(), last.getProposalId()).encode();
+        }
+        return new Page<>(proposals, nextCursor);
+    }
+    
+    /**
+     * Count the technology tags of the proposals that match a filter
+     * @param status Status to filter by, or null for all proposals
+     * @param filter Tag filter
+     * @return Number of matching proposals by tag ID in util.TagDictionary
+     */
+    public int[] countTags(String status, TagFilter filter) {
+        return TAG_INDEX.countTags(status, filter);
+    }
+    
+    /**
+     * Check whether the search and tag indexes have been filled
+     * @return true once buildSearchIndex() has finished
+     */
+    public static boolean isIndexReady() {
+        return SEARCH_INDEX.isReady();
+    }
+    
+    /**
+     * Stream project proposals to a consumer one row at a time without buffering them in a list.
+     * Uses a forward-only, read-only cursor on a dedicated connection; the consumer may
+     * call other DAO methods.
+     * @param status Proposal status, or null for all proposals
+     * @param consumer Callback invoked for each proposal
+     * @return Number of rows visited
+     * @throws SQLException if the query fails, possibly after some rows were passed to the consumer
+     */
+    public long forEachProposal(String status, Consumer<ProjectProposal> consumer) throws SQLException {
+        long count = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getStreamingConnection();
+            String sql = "SELECT p.*, " + StudentDAO.selectColumns("s", "s_") + ", " + UserDAO.selectColumns("u", "u_")
+                       + " FROM project_proposals p"
+                       + " LEFT JOIN students s ON s.student_id = p.student_id"
+                       + " LEFT JOIN users u ON u.user_id = s.user_id"
+                       + (status != null ? " WHERE p.status = ?" : "")
+                       + " ORDER BY p.proposal_id";
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(DBUtil.getStreamingFetchSize());
+            if (status != null) {
+                stmt.setObject(1, status);
+            }
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                ProjectProposal proposal = mapProposal(rs);
+                Student student = StudentDAO.mapStudent(rs, "s_");
+                if (student != null) {
+                    student.setUser(UserDAO.mapUser(rs, "u_"));
+                }
+                proposal.setStudent(student);
+                consumer.accept(proposal);
+                count++;
+            }
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return count;
+    }
+    
     /**
      * Create a new project proposal
      * @param proposal ProjectProposal object to create
@@ -182,6 +411,9 @@ public class ProjectProposalDAO {
             rs = stmt.getGeneratedKeys();
             if (rs.next()) {
                 proposal.setProposalId(rs.getInt(1));
+                // The database sets submission_date; read it back so the tag index sorts by the stored value
+                proposal.setSubmissionDate(getSubmissionDate(conn, proposal.getProposalId()));
+                indexAfterCommit(proposal);
                 return proposal;
             }
         } catch (SQLException e) {
@@ -193,6 +425,27 @@ public class ProjectProposalDAO {
         return null;
     }
     
+    /**
+     * Read the submission date the database assigned to a proposal
+     * @param conn Connection that inserted the proposal, so an open transaction sees the row
+     * @param proposalId Proposal ID
+     * @return Submission date, or null if none is set
+     * @throws SQLException if the query fails
+     */
+    private Timestamp getSubmissionDate(Connection conn, int proposalId) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            stmt = conn.prepareStatement("SELECT submission_date FROM project_proposals WHERE proposal_id = ?");
+            stmt.setInt(1, proposalId);
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getTimestamp("submission_date") : null;
+        } finally {
+            closeResources(null, stmt, rs);
+        }
+    }
+    
     /**
      * Update an existing project proposal
      * @param proposal ProjectProposal object to update
@@ -215,6 +468,9 @@ public class ProjectProposalDAO {
             stmt.setInt(6, proposal.getProposalId());
             
             int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                indexAfterCommit(proposal);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -224,6 +480,52 @@ public class ProjectProposalDAO {
         }
     }
     
+    /**
+     * Move proposals from one status to another, skipping any that are no longer in the expected status
+     * @param proposalIds Proposal IDs
+     * @param fromStatus Status the proposals must still have
+     * @param toStatus New status
+     * @return Number of proposals updated, or -1 if the update failed
+     */
+    public int updateStatuses(Collection<Integer> proposalIds, String fromStatus, String toStatus) {
+        int updated = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            for (List<Integer> chunk : BatchLoader.partition(proposalIds)) {
+                String sql = "UPDATE project_proposals SET status = ? WHERE status = ? AND proposal_id IN ("
+                           + BatchLoader.placeholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, toStatus);
+                stmt.setString(2, fromStatus);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 3, chunk.get(i));
+                }
+                updated += stmt.executeUpdate();
+                stmt.close();
+                stmt = null;
+            }
+            // Like the UPDATE, only retag proposals that still have the expected status
+            List<Integer> retagged = new ArrayList<>(proposalIds);
+            ConnectionContext.afterCommit(() -> {
+                synchronized (INDEX_STATUS_LOCK) {
+                    for (Integer proposalId : retagged) {
+                        SEARCH_INDEX.retag(proposalId, fromStatus, toStatus);
+                        TAG_INDEX.setStatus(proposalId, fromStatus, toStatus);
+                    }
+                }
+            });
+            return updated;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
     /**
      * Delete a project proposal
      * @param proposalId ID of the proposal to delete
@@ -240,6 +542,12 @@ public class ProjectProposalDAO {
             stmt.setInt(1, proposalId);
             
             int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                ConnectionContext.afterCommit(() -> {
+                    SEARCH_INDEX.remove(proposalId);
+                    TAG_INDEX.remove(proposalId);
+                });
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -249,6 +557,96 @@ public class ProjectProposalDAO {
         }
     }
     
+    /**
+     * Fill the full-text search and tag indexes with a streaming scan of the proposals table.
+     * Proposals written while the scan runs keep the version indexed by the write.
+     * @return Number of proposals scanned
+     * @throws SQLException if the scan fails; the index is then not marked ready
+     */
+    public long buildSearchIndex() throws SQLException {
+        long scanned = forEachProposal(null, proposal -> {
+            int proposalId = proposal.getProposalId();
+            synchronized (INDEX_STATUS_LOCK) {
+                if (SEARCH_INDEX.putIfAbsent(proposalId, proposal.getStatus(), searchFields(proposal))) {
+                    // The search index applies status changes that committed after this row was read
+                    TAG_INDEX.put(proposalId, SEARCH_INDEX.getTag(proposalId),
+                            submissionKey(proposal).getTime(), proposal.getTechnologies());
+                }
+            }
+        });
+        SEARCH_INDEX.markReady();
+        return scanned;
+    }
+    
+    /**
+     * Get the full-text search index over all proposals, tagged by status
+     * @return Index; empty until buildSearchIndex() has run
+     */
+    public static TextIndex getSearchIndex() {
+        return SEARCH_INDEX;
+    }
+    
+    /**
+     * Index a written proposal once the current transaction commits.
+     * The text is copied now, so later changes to the object are not picked up.
+     * @param proposal Proposal as written
+     */
+    private static void indexAfterCommit(ProjectProposal proposal) {
+        int proposalId = proposal.getProposalId();
+        String status = proposal.getStatus();
+        String[] fields = searchFields(proposal);
+        long submitted = submissionKey(proposal).getTime();
+        ConnectionContext.afterCommit(() -> {
+            SEARCH_INDEX.put(proposalId, status, fields);
+            TAG_INDEX.put(proposalId, status, submitted, fields[3]);
+        });
+    }
+    
+    /**
+     * Create a detached copy of a proposal and its student
+     * @param proposal Proposal to copy
+     * @return Copy, or null if proposal is null
+     */
+    public static ProjectProposal copyProposal(ProjectProposal proposal) {
+        if (proposal == null) {
+            return null;
+        }
+        ProjectProposal copy = new ProjectProposal(proposal.getProposalId(), proposal.getStudentId(), proposal.getTitle(),
+                proposal.getDescription(), proposal.getObjectives(), proposal.getTechnologies(), proposal.getStatus(),
+                proposal.getSubmissionDate(), proposal.getLastUpdated());
+        copy.setStudent(StudentDAO.copyStudent(proposal.getStudent()));
+        return copy;
+    }
+    
+    /**
+     * Get the page sort key of a proposal
+     * @param proposal Proposal
+     * @return Submission date, or NO_SUBMISSION_DATE if it has none
+     */
+    private static Timestamp submissionKey(ProjectProposal proposal) {
+        return proposal.getSubmissionDate() != null ? proposal.getSubmissionDate() : NO_SUBMISSION_DATE;
+    }
+    
+    // Field texts in the order of the SEARCH_INDEX weights
+    private static String[] searchFields(ProjectProposal proposal) {
+        return new String[] { proposal.getTitle(), proposal.getDescription(),
+                proposal.getObjectives(), proposal.getTechnologies() };
+    }
+    
+    /**
+     * Attach associated students to proposals using one batched lookup
+     * @param proposals ProjectProposal objects to populate
+     */
+    private void loadStudents(Collection<ProjectProposal> proposals) {
+        BatchLoader<Student> loader = new BatchLoader<>(studentDAO::getStudentsByIds);
+        for (ProjectProposal proposal : proposals) {
+            loader.request(proposal.getStudentId());
+        }
+        for (ProjectProposal proposal : proposals) {
+            proposal.setStudent(loader.get(proposal.getStudentId()));
+        }
+    }
+    
     /**
      * Map ResultSet to ProjectProposal object
      * @param rs ResultSet containing proposal data
@@ -256,19 +654,43 @@ public class ProjectProposalDAO {
      * @throws SQLException if a database access error occurs
      */
     private ProjectProposal mapProposal(ResultSet rs) throws SQLException {
+        return mapProposal(rs, "");
+    }
+    
+    /**
+     * Map prefixed ResultSet columns to ProjectProposal object, for joined queries
+     * @param rs ResultSet containing proposal data
+     * @param prefix Column alias prefix, e.g. "p_" for p_proposal_id
+     * @return ProjectProposal object, or null if the joined row is missing
+     * @throws SQLException if a database access error occurs
+     */
+    static ProjectProposal mapProposal(ResultSet rs, String prefix) throws SQLException {
+        if (rs.getObject(prefix + "proposal_id") == null) {
+            return null;
+        }
         ProjectProposal proposal = new ProjectProposal();
-        proposal.setProposalId(rs.getInt("proposal_id"));
-        proposal.setStudentId(rs.getInt("student_id"));
-        proposal.setTitle(rs.getString("title"));
-        proposal.setDescription(rs.getString("description"));
-        proposal.setObjectives(rs.getString("objectives"));
-        proposal.setTechnologies(rs.getString("technologies"));
-        proposal.setStatus(rs.getString("status"));
-        proposal.setSubmissionDate(rs.getTimestamp("submission_date"));
-        proposal.setLastUpdated(rs.getTimestamp("last_updated"));
+        proposal.setProposalId(rs.getInt(prefix + "proposal_id"));
+        proposal.setStudentId(rs.getInt(prefix + "student_id"));
+        proposal.setTitle(rs.getString(prefix + "title"));
+        proposal.setDescription(rs.getString(prefix + "description"));
+        proposal.setObjectives(rs.getString(prefix + "objectives"));
+        proposal.setTechnologies(rs.getString(prefix + "technologies"));
+        proposal.setStatus(rs.getString(prefix + "status"));
+        proposal.setSubmissionDate(rs.getTimestamp(prefix + "submission_date"));
+        proposal.setLastUpdated(rs.getTimestamp(prefix + "last_updated"));
         return proposal;
     }
     
+    /**
+     * Build an aliased select list of proposal columns for joined queries
+     * @param tableAlias Alias of the proposal table in the query
+     * @param prefix Column alias prefix read back by the prefixed mapper
+     * @return Select list such as "t.col AS prefix_col, ..."
+     */
+    static String selectColumns(String tableAlias, String prefix) {
+        return DaoSupport.selectColumns(COLUMNS, tableAlias, prefix);
+    }
+    
     /**
      * Close database resources
      * @param conn Connection object
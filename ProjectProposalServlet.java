@@ -9,11 +9,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Student;
 import model.ProjectProposal;
 import service.ProjectService;
 import dao.StudentDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling project proposal submission
@@ -69,7 +70,7 @@ public class ProjectProposalServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get student profile
         Student student = studentDAO.getStudentByUserId(user.getUserId());
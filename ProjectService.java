@@ -1,24 +1,55 @@
 package service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import dao.ProjectProposalDAO;
 import dao.MentorInterestDAO;
 import dao.MentorAssignmentDAO;
+import dao.MentorDAO;
 import dao.StudentDAO;
+import dao.UserDAO;
+import model.DashboardStats;
+import model.Mentor;
+import model.Page;
 import model.ProjectProposal;
+import model.ProposalSearchHit;
 import model.MentorInterest;
 import model.MentorAssignment;
+import model.SearchPage;
 import model.Student;
+import model.TagFacet;
+import util.ConnectionContext;
+import util.TagDictionary;
+import util.TagFilter;
+import util.TextIndex;
 
 /**
  * Service class for project proposal management
  */
 public class ProjectService {
+    // Shared by every ProjectService instance so that servlets coalesce with each other
+    private static final SingleFlight READS = new SingleFlight("project-service");
+    // Indexed words shown around the matches in a search result
+    private static final int SNIPPET_WORDS = 30;
+    // Technology tags listed next to browse and review pages
+    private static final int MAX_FACETS = 50;
+
     private ProjectProposalDAO proposalDAO;
     private MentorInterestDAO interestDAO;
     private MentorAssignmentDAO assignmentDAO;
     private StudentDAO studentDAO;
+    private UserDAO userDAO;
+    private MentorDAO mentorDAO;
+    private ProposalCatalog catalog;
+    private MentorRecommender recommender;
+    private MentorCapacity capacity;
 
     /**
      * Constructor
@@ -28,6 +59,11 @@ public class ProjectService {
         interestDAO = new MentorInterestDAO();
         assignmentDAO = new MentorAssignmentDAO();
         studentDAO = new StudentDAO();
+        userDAO = new UserDAO();
+        mentorDAO = new MentorDAO();
+        catalog = ProposalCatalog.getInstance();
+        recommender = MentorRecommender.getInstance();
+        capacity = MentorCapacity.getInstance();
     }
 
     /**
@@ -44,7 +80,7 @@ public class ProjectService {
      * @return List of all project proposals
      */
     public List<ProjectProposal> getAllProposals() {
-        return proposalDAO.getAllProposals();
+        return coalesce(() -> proposalDAO.getAllProposals(), ProjectProposalDAO::copyProposal, "getAllProposals");
     }
 
     /**
@@ -53,7 +89,8 @@ public class ProjectService {
      * @return List of project proposals for the student
      */
     public List<ProjectProposal> getProposalsByStudentId(int studentId) {
-        return proposalDAO.getProposalsByStudentId(studentId);
+        return coalesce(() -> proposalDAO.getProposalsByStudentId(studentId),
+                ProjectProposalDAO::copyProposal, "getProposalsByStudentId", studentId);
     }
 
     /**
@@ -64,7 +101,7 @@ public class ProjectService {
     public List<ProjectProposal> getProposalsByUserId(int userId) {
         Student student = studentDAO.getStudentByUserId(userId);
         if (student != null) {
-            return proposalDAO.getProposalsByStudentId(student.getStudentId());
+            return getProposalsByStudentId(student.getStudentId());
         }
         return null;
     }
@@ -75,7 +112,147 @@ public class ProjectService {
      * @return List of project proposals with the specified status
      */
     public List<ProjectProposal> getProposalsByStatus(String status) {
-        return proposalDAO.getProposalsByStatus(status);
+        return coalesce(() -> proposalDAO.getProposalsByStatus(status),
+                ProjectProposalDAO::copyProposal, "getProposalsByStatus", status);
+    }
+
+    /**
+     * Get one page of project proposals, newest first
+     * @param status Proposal status, or null for all proposals
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @return Page of project proposals
+     */
+    public Page<ProjectProposal> getProposalsPage(String status, String cursor, int pageSize) {
+        return proposalDAO.getProposalsPage(status, cursor, pageSize);
+    }
+
+    /**
+     * Get one page of project proposals with matching technology tags, newest first
+     * @param status Proposal status, or null for all proposals
+     * @param filter Tag filter
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @return Page of project proposals
+     */
+    public Page<ProjectProposal> getProposalsPage(String status, TagFilter filter, String cursor, int pageSize) {
+        return proposalDAO.getProposalsPage(status, filter, cursor, pageSize);
+    }
+
+    /**
+     * Count the technology tags of the proposals with a status that match a filter
+     * @param status Proposal status, or null for all proposals
+     * @param filter Tag filter
+     * @return Most common tags first, at most MAX_FACETS
+     */
+    public List<TagFacet> getTagFacets(String status, TagFilter filter) {
+        return toFacets(proposalDAO.countTags(status, filter));
+    }
+
+    /**
+     * Get one page of approved proposals from the in-memory catalog
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @return Page of approved proposals; the proposals must not be modified
+     */
+    public Page<ProjectProposal> getApprovedProposalsPage(String cursor, int pageSize) {
+        return catalog.current().getPage(cursor, pageSize);
+    }
+
+    /**
+     * Get one page of approved proposals with matching technology tags from the in-memory catalog
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @param filter Tag filter
+     * @return Page of approved proposals; the proposals must not be modified
+     */
+    public Page<ProjectProposal> getApprovedProposalsPage(String cursor, int pageSize, TagFilter filter) {
+        return catalog.current().getPage(cursor, pageSize, filter);
+    }
+
+    /**
+     * Count the technology tags of the approved proposals that match a filter
+     * @param filter Tag filter
+     * @return Most common tags first, at most MAX_FACETS
+     */
+    public List<TagFacet> getApprovedTagFacets(TagFilter filter) {
+        return toFacets(catalog.current().countTags(filter));
+    }
+
+    /**
+     * Get the current approved-proposal catalog snapshot
+     * @return Immutable catalog snapshot
+     */
+    public ProposalCatalog.Snapshot getApprovedCatalog() {
+        return catalog.current();
+    }
+
+    /**
+     * Turn tag counts into facets for display
+     * @param counts Count by tag ID
+     * @return Tags with a non-zero count, most common first, then by name
+     */
+    private static List<TagFacet> toFacets(int[] counts) {
+        TagDictionary dictionary = TagDictionary.getInstance();
+        List<TagFacet> facets = new ArrayList<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                facets.add(new TagFacet(dictionary.nameOf(id), counts[id]));
+            }
+        }
+        facets.sort(Comparator.comparingInt(TagFacet::getCount).reversed().thenComparing(TagFacet::getTag));
+        return facets.size() > MAX_FACETS ? new ArrayList<>(facets.subList(0, MAX_FACETS)) : facets;
+    }
+
+    /**
+     * Search proposal titles, descriptions, objectives and technologies
+     * @param query Words and "quoted phrases"
+     * @param statuses Statuses to include, or null for all
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @return Page of hits, best match first
+     */
+    public SearchPage<ProposalSearchHit> searchProposals(String query, Set<String> statuses, String cursor, int pageSize) {
+        int offset = SearchPage.parseCursor(cursor);
+        TextIndex.Result result = ProjectProposalDAO.getSearchIndex().search(query, statuses, offset, pageSize);
+
+        List<Integer> ids = new ArrayList<>(result.getHits().size());
+        for (TextIndex.Hit hit : result.getHits()) {
+            ids.add(hit.getId());
+        }
+        // The index only holds postings; load the text of this page for the snippets
+        Map<Integer, ProjectProposal> proposals = proposalDAO.getProposalsByIds(ids);
+
+        Set<String> terms = result.getTerms();
+        List<ProposalSearchHit> hits = new ArrayList<>(ids.size());
+        for (TextIndex.Hit hit : result.getHits()) {
+            ProjectProposal proposal = proposals.get(hit.getId());
+            if (proposal == null) {
+                // Deleted since the search ran
+                continue;
+            }
+            String snippetSource = TextIndex.countMatches(proposal.getObjectives(), terms)
+                    > TextIndex.countMatches(proposal.getDescription(), terms)
+                    ? proposal.getObjectives() : proposal.getDescription();
+            hits.add(new ProposalSearchHit(proposal, hit.getScore(),
+                    TextIndex.highlight(proposal.getTitle(), terms),
+                    TextIndex.snippet(snippetSource, terms, SNIPPET_WORDS),
+                    TextIndex.highlight(proposal.getTechnologies(), terms)));
+        }
+
+        int next = offset + result.getHits().size();
+        boolean more = !result.getHits().isEmpty() && next < Math.min(result.getTotal(), TextIndex.MAX_RESULTS);
+        return new SearchPage<>(hits, more ? String.valueOf(next) : null, query, result.getTotal(), offset);
+    }
+
+    /**
+     * Get one page of mentors, ordered by department
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size
+     * @return Page of mentors
+     */
+    public Page<Mentor> getMentorsPage(String cursor, int pageSize) {
+        return mentorDAO.getMentorsPage(cursor, pageSize);
     }
 
     /**
@@ -86,7 +263,9 @@ public class ProjectService {
     public ProjectProposal createProposal(ProjectProposal proposal) {
         // Set initial status to pending
         proposal.setStatus("pending");
-        return proposalDAO.createProposal(proposal);
+        ProjectProposal created = proposalDAO.createProposal(proposal);
+        forgetInFlightReads();
+        return created;
     }
 
     /**
@@ -95,7 +274,14 @@ public class ProjectService {
      * @return true if update was successful, false otherwise
      */
     public boolean updateProposal(ProjectProposal proposal) {
-        return proposalDAO.updateProposal(proposal);
+        boolean updated = proposalDAO.updateProposal(proposal);
+        refreshCatalog(proposal.getProposalId());
+        if ("approved".equals(proposal.getStatus())) {
+            recommender.indexProposal(proposal);
+        } else {
+            recommender.forgetProposal(proposal.getProposalId());
+        }
+        return updated;
     }
 
     /**
@@ -104,7 +290,10 @@ public class ProjectService {
      * @return true if deletion was successful, false otherwise
      */
     public boolean deleteProposal(int proposalId) {
-        return proposalDAO.deleteProposal(proposalId);
+        boolean deleted = proposalDAO.deleteProposal(proposalId);
+        refreshCatalog(proposalId);
+        recommender.forgetProposal(proposalId);
+        return deleted;
     }
 
     /**
@@ -116,7 +305,12 @@ public class ProjectService {
         ProjectProposal proposal = proposalDAO.getProposalById(proposalId);
         if (proposal != null) {
             proposal.setStatus("approved");
-            return proposalDAO.updateProposal(proposal);
+            boolean updated = proposalDAO.updateProposal(proposal);
+            refreshCatalog(proposalId);
+            if (updated) {
+                recommender.indexProposal(proposal);
+            }
+            return updated;
         }
         return false;
     }
@@ -130,7 +324,10 @@ public class ProjectService {
         ProjectProposal proposal = proposalDAO.getProposalById(proposalId);
         if (proposal != null) {
             proposal.setStatus("rejected");
-            return proposalDAO.updateProposal(proposal);
+            boolean updated = proposalDAO.updateProposal(proposal);
+            refreshCatalog(proposalId);
+            recommender.forgetProposal(proposalId);
+            return updated;
         }
         return false;
     }
@@ -152,6 +349,7 @@ public class ProjectService {
             existingInterest.setInterestLevel(interestLevel);
             existingInterest.setComments(comments);
             interestDAO.updateInterest(existingInterest);
+            forgetInFlightReads();
             return existingInterest;
         } else {
             // Create new interest
@@ -160,7 +358,9 @@ public class ProjectService {
             interest.setProposalId(proposalId);
             interest.setInterestLevel(interestLevel);
             interest.setComments(comments);
-            return interestDAO.createInterest(interest);
+            MentorInterest created = interestDAO.createInterest(interest);
+            forgetInFlightReads();
+            return created;
         }
     }
 
@@ -170,7 +370,8 @@ public class ProjectService {
      * @return List of mentor interests for the proposal
      */
     public List<MentorInterest> getInterestsForProposal(int proposalId) {
-        return interestDAO.getInterestsByProposalId(proposalId);
+        return coalesce(() -> interestDAO.getInterestsByProposalId(proposalId),
+                MentorInterestDAO::copyInterest, "getInterestsByProposalId", proposalId);
     }
 
     /**
@@ -179,7 +380,8 @@ public class ProjectService {
      * @return List of interests expressed by the mentor
      */
     public List<MentorInterest> getInterestsForMentor(int mentorId) {
-        return interestDAO.getInterestsByMentorId(mentorId);
+        return coalesce(() -> interestDAO.getInterestsByMentorId(mentorId),
+                MentorInterestDAO::copyInterest, "getInterestsByMentorId", mentorId);
     }
 
     /**
@@ -200,32 +402,78 @@ public class ProjectService {
      * @return Created MentorAssignment object
      */
     public MentorAssignment assignMentor(int mentorId, int studentId, int proposalId) {
-        // Check if assignment already exists
-        MentorAssignment existingAssignment = assignmentDAO.getAssignmentByProposalId(proposalId);
-
-        if (existingAssignment != null) {
-            // Update existing assignment
-            existingAssignment.setMentorId(mentorId);
-            existingAssignment.setStatus("pending");
-            assignmentDAO.updateAssignment(existingAssignment);
-            return existingAssignment;
-        } else {
-            // Create new assignment
-            MentorAssignment assignment = new MentorAssignment();
-            assignment.setMentorId(mentorId);
-            assignment.setStudentId(studentId);
-            assignment.setProposalId(proposalId);
-            assignment.setStatus("pending");
-
-            // Update proposal status
-            ProjectProposal proposal = proposalDAO.getProposalById(proposalId);
-            if (proposal != null) {
-                proposal.setStatus("in_progress");
-                proposalDAO.updateProposal(proposal);
+        Mentor mentor = mentorDAO.getMentorById(mentorId);
+        if (mentor == null) {
+            return null;
+        }
+
+        // Mentor whose place this call reserved, and mentor whose place it freed
+        int[] reserved = { -1 };
+        int[] freed = { -1 };
+        MentorAssignment result = ConnectionContext.inTransaction(() -> {
+            // Check if assignment already exists
+            MentorAssignment existingAssignment = assignmentDAO.getAssignmentByProposalId(proposalId);
+
+            boolean holdsPlace = existingAssignment != null && existingAssignment.getMentorId() == mentorId
+                    && MentorCapacity.isActive(existingAssignment.getStatus());
+            if (!holdsPlace) {
+                // Cheap in-memory check first, then the locking check in the database
+                if (!capacity.tryReserve(mentor)) {
+                    return null;
+                }
+                reserved[0] = mentorId;
+                if (!mentorDAO.claimCapacity(mentorId)) {
+                    ConnectionContext.setRollbackOnly();
+                    return null;
+                }
             }
 
-            return assignmentDAO.createAssignment(assignment);
+            if (existingAssignment != null) {
+                // Update existing assignment
+                if (!holdsPlace && MentorCapacity.isActive(existingAssignment.getStatus())) {
+                    freed[0] = existingAssignment.getMentorId();
+                }
+                existingAssignment.setMentorId(mentorId);
+                existingAssignment.setStatus("pending");
+                if (!assignmentDAO.updateAssignment(existingAssignment)) {
+                    ConnectionContext.setRollbackOnly();
+                    return null;
+                }
+                return existingAssignment;
+            } else {
+                // Create new assignment
+                MentorAssignment assignment = new MentorAssignment();
+                assignment.setMentorId(mentorId);
+                assignment.setStudentId(studentId);
+                assignment.setProposalId(proposalId);
+                assignment.setStatus("pending");
+
+                // Update proposal status
+                ProjectProposal proposal = proposalDAO.getProposalById(proposalId);
+                if (proposal != null) {
+                    proposal.setStatus("in_progress");
+                    proposalDAO.updateProposal(proposal);
+                }
+
+                MentorAssignment createdAssignment = assignmentDAO.createAssignment(assignment);
+                if (createdAssignment == null) {
+                    // Keep the proposal status unchanged if the assignment was not created
+                    ConnectionContext.setRollbackOnly();
+                }
+                return createdAssignment;
+            }
+        });
+
+        if (reserved[0] >= 0) {
+            capacity.settle(reserved[0], result != null);
+        }
+        if (result != null && freed[0] >= 0) {
+            capacity.release(freed[0]);
         }
+        // The proposal leaves the catalog once it is in progress
+        refreshCatalog(proposalId);
+        recommender.forgetProposal(proposalId);
+        return result;
     }
 
     /**
@@ -236,8 +484,14 @@ public class ProjectService {
     public boolean acceptAssignment(int assignmentId) {
         MentorAssignment assignment = assignmentDAO.getAssignmentById(assignmentId);
         if (assignment != null) {
+            String oldStatus = assignment.getStatus();
             assignment.setStatus("accepted");
-            return assignmentDAO.updateAssignment(assignment);
+            boolean updated = assignmentDAO.updateAssignment(assignment);
+            if (updated) {
+                capacity.onStatusChange(assignment.getMentorId(), oldStatus, "accepted");
+            }
+            forgetInFlightReads();
+            return updated;
         }
         return false;
     }
@@ -248,19 +502,107 @@ public class ProjectService {
      * @return true if completion was successful, false otherwise
      */
     public boolean completeProject(int assignmentId) {
-        MentorAssignment assignment = assignmentDAO.getAssignmentById(assignmentId);
-        if (assignment != null) {
-            assignment.setStatus("completed");
-            assignmentDAO.updateAssignment(assignment);
-
-            // Update proposal status
-            ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
-            if (proposal != null) {
-                proposal.setStatus("completed");
-                return proposalDAO.updateProposal(proposal);
+        // Assignment as it was before completion, to free the mentor's place afterwards
+        MentorAssignment[] before = { null };
+        Boolean completed = ConnectionContext.inTransaction(() -> {
+            MentorAssignment assignment = assignmentDAO.getAssignmentById(assignmentId);
+            if (assignment != null) {
+                before[0] = new MentorAssignment(assignment.getAssignmentId(), assignment.getMentorId(),
+                        assignment.getStudentId(), assignment.getProposalId(),
+                        assignment.getAssignedDate(), assignment.getStatus());
+                assignment.setStatus("completed");
+                assignmentDAO.updateAssignment(assignment);
+
+                // Update proposal status
+                ProjectProposal proposal = proposalDAO.getProposalById(assignment.getProposalId());
+                if (proposal != null) {
+                    proposal.setStatus("completed");
+                    if (proposalDAO.updateProposal(proposal)) {
+                        return true;
+                    }
+                }
             }
+            ConnectionContext.setRollbackOnly();
+            return false;
+        });
+        if (Boolean.TRUE.equals(completed)) {
+            capacity.onStatusChange(before[0].getMentorId(), before[0].getStatus(), "completed");
         }
-        return false;
+        forgetInFlightReads();
+        return Boolean.TRUE.equals(completed);
+    }
+
+    /**
+     * Recommend mentors for a proposal by skill match and free capacity
+     * @param proposal Proposal to find mentors for
+     * @param limit Maximum number of mentors to return
+     * @return Recommended mentors, best first
+     */
+    public List<MentorRecommender.Recommendation> recommendMentors(ProjectProposal proposal, int limit) {
+        return recommender.recommend(proposal, limit);
+    }
+
+    /**
+     * Compute an assignment plan for every approved, unassigned proposal without writing it
+     * @return Plan with its objective score
+     */
+    public AssignmentSolver.Plan planAutoAssignment() {
+        return new AssignmentSolver().plan();
+    }
+
+    /**
+     * Compute an assignment plan and write it in one transaction
+     * @return Applied plan, or null if proposals or mentor loads changed while planning and nothing was written
+     */
+    public AssignmentSolver.Plan autoAssign() {
+        // Plan against fresh counts, since the plan is about to be written
+        capacity.resync();
+        AssignmentSolver.Plan plan = planAutoAssignment();
+        if (plan.getMatches().isEmpty()) {
+            return plan;
+        }
+
+        List<MentorAssignment> assignments = plan.getAssignments();
+        List<Integer> proposalIds = new ArrayList<>(assignments.size());
+        for (MentorAssignment assignment : assignments) {
+            proposalIds.add(assignment.getProposalId());
+        }
+
+        // Places needed per mentor, in mentor ID order
+        Map<Integer, Integer> places = new TreeMap<>();
+        for (MentorAssignment assignment : assignments) {
+            places.merge(assignment.getMentorId(), 1, Integer::sum);
+        }
+
+        Boolean applied = ConnectionContext.inTransaction(() -> {
+            // Every planned proposal must still be approved, otherwise the plan is stale
+            if (proposalDAO.updateStatuses(proposalIds, "approved", "in_progress") != proposalIds.size()) {
+                ConnectionContext.setRollbackOnly();
+                return false;
+            }
+            // Lock each planned mentor, in ID order, and back out if a concurrent
+            // assignment took the places the plan counted on
+            for (Map.Entry<Integer, Integer> entry : places.entrySet()) {
+                if (!mentorDAO.claimCapacity(entry.getKey(), entry.getValue())) {
+                    ConnectionContext.setRollbackOnly();
+                    return false;
+                }
+            }
+            if (assignmentDAO.createAssignments(assignments) != assignments.size()) {
+                ConnectionContext.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+
+        // Too many proposals changed to patch the catalog one by one
+        catalog.rebuild();
+        for (Integer proposalId : proposalIds) {
+            recommender.forgetProposal(proposalId);
+        }
+        capacity.resync();
+        forgetInFlightReads();
+        return Boolean.TRUE.equals(applied) ? plan : null;
     }
 
     /**
@@ -269,7 +611,8 @@ public class ProjectService {
      * @return List of assignments for the mentor
      */
     public List<MentorAssignment> getAssignmentsByMentorId(int mentorId) {
-        return assignmentDAO.getAssignmentsByMentorId(mentorId);
+        return coalesce(() -> assignmentDAO.getAssignmentsByMentorId(mentorId),
+                MentorAssignmentDAO::copyAssignment, "getAssignmentsByMentorId", mentorId);
     }
 
     /**
@@ -278,7 +621,8 @@ public class ProjectService {
      * @return List of assignments for the student
      */
     public List<MentorAssignment> getAssignmentsByStudentId(int studentId) {
-        return assignmentDAO.getAssignmentsByStudentId(studentId);
+        return coalesce(() -> assignmentDAO.getAssignmentsByStudentId(studentId),
+                MentorAssignmentDAO::copyAssignment, "getAssignmentsByStudentId", studentId);
     }
 
     /**
@@ -287,6 +631,63 @@ public class ProjectService {
      * @return List of assignments with the specified status
      */
     public List<MentorAssignment> getAssignmentsByStatus(String status) {
-        return assignmentDAO.getAssignmentsByStatus(status);
+        return coalesce(() -> assignmentDAO.getAssignmentsByStatus(status),
+                MentorAssignmentDAO::copyAssignment, "getAssignmentsByStatus", status);
+    }
+
+    /**
+     * Get proposal, assignment and user counts for dashboards
+     * @return DashboardStats built from three grouped COUNT queries
+     */
+    public DashboardStats getDashboardStats() {
+        // Three quick COUNTs on the request's own connection; running them in
+        // parallel would take three more connections from the pool for little gain
+        Map<String, Integer> proposalCounts = proposalDAO.countProposalsByStatus();
+        Map<String, Integer> assignmentCounts = assignmentDAO.countAssignmentsByStatus();
+        Map<String, Integer> userCounts = userDAO.countUsersByRole();
+        return new DashboardStats(proposalCounts, assignmentCounts, userCounts);
+    }
+
+    /**
+     * Get the read coalescing statistics
+     * @return Single-flight layer shared by all ProjectService instances
+     */
+    public static SingleFlight getReadCoalescer() {
+        return READS;
+    }
+
+    /**
+     * Run a list read through the single-flight layer
+     * @param loader DAO read
+     * @param copier Deep copy of one list element
+     * @param method Name of the read
+     * @param args Arguments of the read
+     * @return List the caller may change, elements included, or null if the read returned null
+     */
+    private <T> List<T> coalesce(Supplier<List<T>> loader, UnaryOperator<T> copier, String method, Object... args) {
+        return READS.execute(loader, list -> {
+            List<T> copy = new ArrayList<>(list.size());
+            for (T element : list) {
+                copy.add(copier.apply(element));
+            }
+            return copy;
+        }, method, args);
+    }
+
+    /**
+     * Stop later reads from joining loads that started before a write, once
+     * the current transaction, if any, has ended
+     */
+    private void forgetInFlightReads() {
+        ConnectionContext.afterTransaction(READS::forgetAll);
+    }
+
+    /**
+     * Patch the approved catalog once the current transaction, if any, has ended
+     * @param proposalId ID of the proposal that changed
+     */
+    private void refreshCatalog(int proposalId) {
+        forgetInFlightReads();
+        ConnectionContext.afterTransaction(() -> catalog.refresh(proposalId));
     }
 }
@@ -0,0 +1,315 @@
+package service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dao.IdentityMap;
+import dao.ProjectProposalDAO;
+import model.Page;
+import model.ProjectProposal;
+import util.TagDictionary;
+import util.TagFilter;
+
+/**
+ * In-memory catalog of approved proposals, shown to mentors browsing for projects.
+ * Readers get the current immutable snapshot without locking. Writers build a
+ * new snapshot and publish it through a volatile field. Proposal changes patch
+ * the snapshot one proposal at a time. Once the snapshot is older than
+ * MAX_AGE_MILLIS, the first reader to notice rebuilds it inline on its own
+ * request thread while other readers keep using the old one, to pick up
+ * changes made outside ProjectService, such as student name edits.
+ * Proposals in a snapshot are shared between requests and must not be modified;
+ * they are loaded outside the request's identity map so the request never
+ * gets them back from a DAO lookup.
+ */
+public class ProposalCatalog {
+    private static final String STATUS = "approved";
+    private static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+    private static final ProposalCatalog INSTANCE = new ProposalCatalog(new ProjectProposalDAO());
+    
+    // Newest submission first, matching ProjectProposalDAO.getProposalsPage
+    private static final Comparator<ProjectProposal> ORDER = Comparator
+            .comparingLong(ProposalCatalog::submissionMillis).reversed()
+            .thenComparing(Comparator.comparingInt(ProjectProposal::getProposalId).reversed());
+    
+    private final ProjectProposalDAO proposalDAO;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Constructor
+     * @param proposalDAO DAO used to load proposals
+     */
+    ProposalCatalog(ProjectProposalDAO proposalDAO) {
+        this.proposalDAO = proposalDAO;
+    }
+    
+    /**
+     * Get the shared catalog
+     * @return Catalog instance
+     */
+    public static ProposalCatalog getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Get the current snapshot, building it on first use
+     * @return Immutable snapshot of approved proposals
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return initialize();
+        }
+        if (current.isOlderThan(MAX_AGE_MILLIS) && rebuilding.compareAndSet(false, true)) {
+            // One reader refreshes a stale snapshot; everyone else keeps reading the old one
+            try {
+                rebuild();
+            } finally {
+                rebuilding.set(false);
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Reload every approved proposal and publish a new snapshot
+     * @return New snapshot
+     */
+    public synchronized Snapshot rebuild() {
+        List<ProjectProposal> proposals;
+        IdentityMap detached = IdentityMap.detach();
+        try {
+            proposals = new ArrayList<>(proposalDAO.getProposalsByStatus(STATUS));
+        } finally {
+            detached.close();
+        }
+        long version = snapshot != null ? snapshot.version + 1 : 1;
+        snapshot = new Snapshot(version, proposals, null);
+        return snapshot;
+    }
+    
+    /**
+     * Build the first snapshot unless another thread already did
+     * @return Current snapshot
+     */
+    private synchronized Snapshot initialize() {
+        return snapshot != null ? snapshot : rebuild();
+    }
+    
+    /**
+     * Reload one proposal and add, replace or remove it in the catalog
+     * depending on its current status
+     * @param proposalId Proposal ID
+     */
+    public synchronized void refresh(int proposalId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Nothing built yet; the first reader loads the current state
+            return;
+        }
+        
+        ProjectProposal proposal;
+        IdentityMap detached = IdentityMap.detach();
+        try {
+            proposal = proposalDAO.getProposalById(proposalId);
+        } finally {
+            detached.close();
+        }
+        boolean listed = proposal != null && STATUS.equals(proposal.getStatus());
+        if (!listed && !current.byId.containsKey(proposalId)) {
+            return;
+        }
+        
+        List<ProjectProposal> proposals = new ArrayList<>(current.proposals.size() + 1);
+        for (ProjectProposal existing : current.proposals) {
+            if (existing.getProposalId() != proposalId) {
+                proposals.add(existing);
+            }
+        }
+        if (listed) {
+            proposals.add(proposal);
+        }
+        snapshot = new Snapshot(current.version + 1, proposals, current);
+    }
+    
+    private static long submissionMillis(ProjectProposal proposal) {
+        Timestamp submitted = proposal.getSubmissionDate();
+        return submitted != null ? submitted.getTime() : 0L;
+    }
+    
+    /**
+     * Immutable, versioned view of the approved proposals
+     */
+    public static class Snapshot {
+        private final long version;
+        private final long createdAt = System.currentTimeMillis();
+        private final List<ProjectProposal> proposals;
+        private final Map<Integer, ProjectProposal> byId;
+        // Technology tag bitset of each proposal, in list order
+        private final long[][] tags;
+        
+        /**
+         * Constructor
+         * @param version Snapshot version, incremented on every change
+         * @param proposals Approved proposals in any order
+         * @param previous Snapshot to reuse tag bitsets of unchanged proposals from, may be null
+         */
+        Snapshot(long version, List<ProjectProposal> proposals, Snapshot previous) {
+            proposals.sort(ORDER);
+            Map<Integer, ProjectProposal> index = new HashMap<>();
+            long[][] bits = new long[proposals.size()][];
+            TagDictionary dictionary = TagDictionary.getInstance();
+            for (int i = 0; i < bits.length; i++) {
+                ProjectProposal proposal = proposals.get(i);
+                index.put(proposal.getProposalId(), proposal);
+                int before = previous != null ? Collections.binarySearch(previous.proposals, proposal, ORDER) : -1;
+                bits[i] = before >= 0 && previous.proposals.get(before) == proposal
+                        ? previous.tags[before] : dictionary.encode(proposal.getTechnologies());
+            }
+            this.version = version;
+            this.proposals = Collections.unmodifiableList(proposals);
+            this.byId = Collections.unmodifiableMap(index);
+            this.tags = bits;
+        }
+        
+        /**
+         * Get the snapshot version
+         * @return Version number
+         */
+        public long getVersion() {
+            return version;
+        }
+        
+        /**
+         * Get every approved proposal, newest submission first
+         * @return Unmodifiable list of proposals
+         */
+        public List<ProjectProposal> getProposals() {
+            return proposals;
+        }
+        
+        /**
+         * Get an approved proposal by ID
+         * @param proposalId Proposal ID
+         * @return Proposal, or null if it is not in the catalog
+         */
+        public ProjectProposal getProposal(int proposalId) {
+            return byId.get(proposalId);
+        }
+        
+        /**
+         * Get the number of approved proposals
+         * @return Proposal count
+         */
+        public int size() {
+            return proposals.size();
+        }
+        
+        /**
+         * Get one page of the catalog. Cursors point at a (submission date, ID)
+         * position, so paging keeps working when the snapshot changes between pages.
+         * @param cursor Cursor from the previous page, or null for the first page
+         * @param pageSize Requested page size, capped at Page.MAX_SIZE
+         * @return Page of proposals with the cursor for the next page
+         */
+        public Page<ProjectProposal> getPage(String cursor, int pageSize) {
+            return getPage(cursor, pageSize, TagFilter.NONE);
+        }
+        
+        /**
+         * Get one page of the proposals whose technology tags match a filter
+         * @param cursor Cursor from the previous page, or null for the first page
+         * @param pageSize Requested page size, capped at Page.MAX_SIZE
+         * @param filter Tag filter
+         * @return Page of matching proposals with the cursor for the next page
+         */
+        public Page<ProjectProposal> getPage(String cursor, int pageSize, TagFilter filter) {
+            int limit = Page.clampSize(pageSize);
+            int from = 0;
+            ProjectProposal after = decodeCursor(cursor);
+            if (after != null) {
+                int index = Collections.binarySearch(proposals, after, ORDER);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            
+            if (filter.isEmpty()) {
+                int to = Math.min(proposals.size(), from + limit);
+                List<ProjectProposal> items = new ArrayList<>(proposals.subList(from, to));
+                String nextCursor = to < proposals.size() && !items.isEmpty()
+                        ? encodeCursor(items.get(items.size() - 1)) : null;
+                return new Page<>(items, nextCursor);
+            }
+            
+            // Collect one match more than the page holds, to know whether another page follows
+            List<ProjectProposal> items = new ArrayList<>();
+            for (int i = from; i < proposals.size() && items.size() <= limit; i++) {
+                if (filter.matches(tags[i])) {
+                    items.add(proposals.get(i));
+                }
+            }
+            String nextCursor = null;
+            if (items.size() > limit) {
+                items.remove(limit);
+                nextCursor = encodeCursor(items.get(limit - 1));
+            }
+            return new Page<>(items, nextCursor);
+        }
+        
+        /**
+         * Count the technology tags of the proposals that match a filter
+         * @param filter Tag filter
+         * @return Number of matching proposals by tag ID
+         */
+        public int[] countTags(TagFilter filter) {
+            int[] counts = new int[TagDictionary.getInstance().size()];
+            for (long[] bits : tags) {
+                if (filter.matches(bits)) {
+                    TagDictionary.count(bits, counts);
+                }
+            }
+            return counts;
+        }
+        
+        boolean isOlderThan(long maxAgeMillis) {
+            return System.currentTimeMillis() - createdAt > maxAgeMillis;
+        }
+        
+        private static String encodeCursor(ProjectProposal last) {
+            String raw = submissionMillis(last) + ":" + last.getProposalId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        /**
+         * Decode a cursor into a probe proposal holding only the sort position
+         * @param cursor Cursor string
+         * @return Probe proposal, or null if the cursor is missing or invalid
+         */
+        private static ProjectProposal decodeCursor(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf(':');
+                if (sep < 0) {
+                    return null;
+                }
+                ProjectProposal probe = new ProjectProposal();
+                probe.setSubmissionDate(new Timestamp(Long.parseLong(raw.substring(0, sep))));
+                probe.setProposalId(Integer.parseInt(raw.substring(sep + 1)));
+                return probe;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
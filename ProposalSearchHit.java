@@ -0,0 +1,57 @@
+package model;
+
+/**
+ * A project proposal found by a full-text search, with highlighted text for display.
+ * The HTML fields are already escaped and only contain mark tags around matching words.
+ */
+public class ProposalSearchHit {
+    private final ProjectProposal proposal;
+    private final float score;
+    private final String titleHtml;
+    private final String snippetHtml;
+    private final String technologiesHtml;
+    
+    // Constructor with fields
+    public ProposalSearchHit(ProjectProposal proposal, float score, String titleHtml,
+            String snippetHtml, String technologiesHtml) {
+        this.proposal = proposal;
+        this.score = score;
+        this.titleHtml = titleHtml;
+        this.snippetHtml = snippetHtml;
+        this.technologiesHtml = technologiesHtml;
+    }
+    
+    // Getters
+    public ProjectProposal getProposal() {
+        return proposal;
+    }
+    
+    /**
+     * BM25 relevance score; only meaningful relative to other hits of the same search
+     * @return Score
+     */
+    public float getScore() {
+        return score;
+    }
+    
+    public String getTitleHtml() {
+        return titleHtml;
+    }
+    
+    /**
+     * Part of the description or objectives with the most matching words
+     * @return HTML fragment
+     */
+    public String getSnippetHtml() {
+        return snippetHtml;
+    }
+    
+    public String getTechnologiesHtml() {
+        return technologiesHtml;
+    }
+    
+    @Override
+    public String toString() {
+        return "ProposalSearchHit [proposalId=" + proposal.getProposalId() + ", score=" + score + "]";
+    }
+}
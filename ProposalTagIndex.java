@@ -0,0 +1,125 @@
+package dao;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import util.TagDictionary;
+import util.TagFilter;
+
+/**
+ * Technology tags, status and submission time of every proposal, so tag-filtered
+ * proposal pages and tag counts need no LIKE scan of the technologies column.
+ * Filled and kept current by ProjectProposalDAO together with its search index.
+ */
+class ProposalTagIndex {
+    // Newest submission first, matching ProjectProposalDAO.getProposalsPage
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingLong((Entry entry) -> entry.submitted).reversed()
+            .thenComparing(Comparator.comparingInt((Entry entry) -> entry.proposalId).reversed());
+    
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * Add or replace a proposal
+     * @param proposalId Proposal ID
+     * @param status Proposal status
+     * @param submitted Page sort key in milliseconds: the stored submission date, or
+     *        ProjectProposalDAO's stand-in for proposals without one
+     * @param technologies Free-text technologies
+     */
+    void put(int proposalId, String status, long submitted, String technologies) {
+        entries.put(proposalId, new Entry(proposalId, status, submitted, TagDictionary.getInstance().encode(technologies)));
+    }
+    
+    /**
+     * Remove a proposal
+     * @param proposalId Proposal ID
+     */
+    void remove(int proposalId) {
+        entries.remove(proposalId);
+    }
+    
+    /**
+     * Change a proposal's status if it still has the expected one
+     * @param proposalId Proposal ID
+     * @param fromStatus Expected status
+     * @param toStatus New status
+     */
+    void setStatus(int proposalId, String fromStatus, String toStatus) {
+        entries.computeIfPresent(proposalId, (id, entry) -> fromStatus.equals(entry.status)
+                ? new Entry(entry.proposalId, toStatus, entry.submitted, entry.tags) : entry);
+    }
+    
+    /**
+     * Find one page of matching proposals
+     * @param status Status to filter by, or null for all proposals
+     * @param filter Tag filter
+     * @param after Position of the last proposal of the previous page, or null for the first page
+     * @param limit Number of proposal IDs to return
+     * @return Proposal IDs, newest submission first
+     * @throws IllegalArgumentException if the cursor does not hold a timestamp
+     */
+    List<Integer> findPage(String status, TagFilter filter, KeysetCursor after, int limit) {
+        Entry start = after != null
+                ? new Entry(after.getId(), null, Timestamp.valueOf(after.getSortKey()).getTime(), null) : null;
+        
+        // Keep the first `limit` matches in sort order; the head is the last of them
+        PriorityQueue<Entry> page = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (Entry entry : entries.values()) {
+            if ((status != null && !status.equals(entry.status)) || !filter.matches(entry.tags)
+                    || (start != null && ORDER.compare(entry, start) <= 0)) {
+                continue;
+            }
+            page.offer(entry);
+            if (page.size() > limit) {
+                page.poll();
+            }
+        }
+        
+        List<Entry> sorted = new ArrayList<>(page);
+        Collections.sort(sorted, ORDER);
+        List<Integer> ids = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            ids.add(entry.proposalId);
+        }
+        return ids;
+    }
+    
+    /**
+     * Count the tags of the proposals that match a filter
+     * @param status Status to filter by, or null for all proposals
+     * @param filter Tag filter
+     * @return Number of matching proposals by tag ID
+     */
+    int[] countTags(String status, TagFilter filter) {
+        int[] counts = new int[TagDictionary.getInstance().size()];
+        for (Entry entry : entries.values()) {
+            if ((status == null || status.equals(entry.status)) && filter.matches(entry.tags)) {
+                TagDictionary.count(entry.tags, counts);
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Immutable index entry of one proposal
+     */
+    private static class Entry {
+        private final int proposalId;
+        private final String status;
+        private final long submitted;
+        private final long[] tags;
+        
+        Entry(int proposalId, String status, long submitted, long[] tags) {
+            this.proposalId = proposalId;
+            this.status = status;
+            this.submitted = submitted;
+            this.tags = tags;
+        }
+    }
+}
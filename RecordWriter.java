@@ -0,0 +1,220 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes tabular export records as CSV or newline-delimited JSON.
+ * Records are written straight to the underlying writer and flushed every
+ * few hundred rows, so memory use does not depend on the number of rows.
+ */
+public abstract class RecordWriter implements Closeable {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    
+    private static final int FLUSH_EVERY = 500;
+    
+    protected final Writer out;
+    protected String[] columns = new String[0];
+    private long recordCount;
+    
+    /**
+     * Constructor
+     * @param out Writer to write records to
+     */
+    protected RecordWriter(Writer out) {
+        this.out = out;
+    }
+    
+    /**
+     * Create a writer for the given format
+     * @param format "csv" or "ndjson"
+     * @param out Writer to write records to
+     * @return RecordWriter, or null if the format is not supported
+     */
+    public static RecordWriter create(String format, Writer out) {
+        if (FORMAT_CSV.equalsIgnoreCase(format)) {
+            return new CsvWriter(out);
+        }
+        if (FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            return new NdjsonWriter(out);
+        }
+        return null;
+    }
+    
+    /**
+     * Get the content type for the given format
+     * @param format "csv" or "ndjson"
+     * @return MIME type
+     */
+    public static String contentType(String format) {
+        return FORMAT_NDJSON.equalsIgnoreCase(format) ? "application/x-ndjson" : "text/csv";
+    }
+    
+    /**
+     * Set the column names; must be called before the first record
+     * @param columns Column names
+     * @throws IOException if writing fails
+     */
+    public void writeHeader(String... columns) throws IOException {
+        this.columns = columns;
+    }
+    
+    /**
+     * Write one record, flushing periodically
+     * @param values Column values in header order
+     * @throws IOException if writing fails
+     */
+    public void writeRecord(Object... values) throws IOException {
+        write(values);
+        if (++recordCount % FLUSH_EVERY == 0) {
+            out.flush();
+        }
+    }
+    
+    /**
+     * Get the number of records written
+     * @return Record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Flush and close the underlying writer
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Write one record in the concrete format
+     * @param values Column values in header order
+     * @throws IOException if writing fails
+     */
+    protected abstract void write(Object[] values) throws IOException;
+    
+    /**
+     * CSV writer following RFC 4180 quoting. Text starting with =, +, -, @,
+     * tab or carriage return is prefixed with ' against formula injection.
+     */
+    private static class CsvWriter extends RecordWriter {
+        CsvWriter(Writer out) {
+            super(out);
+        }
+        
+        @Override
+        public void writeHeader(String... columns) throws IOException {
+            super.writeHeader(columns);
+            write(columns);
+        }
+        
+        @Override
+        protected void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (values[i] instanceof Number) {
+                    writeField(values[i].toString());
+                } else if (values[i] != null) {
+                    writeField(neutralize(values[i].toString()));
+                }
+            }
+            out.write("\r\n");
+        }
+        
+        /**
+         * Prefix text that a spreadsheet would evaluate as a formula
+         * @param value Text value
+         * @return Value safe to open in a spreadsheet
+         */
+        private static String neutralize(String value) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+                return "'" + value;
+            }
+            return value;
+        }
+        
+        private void writeField(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+    
+    /**
+     * Newline-delimited JSON writer, one object per record
+     */
+    private static class NdjsonWriter extends RecordWriter {
+        NdjsonWriter(Writer out) {
+            super(out);
+        }
+        
+        @Override
+        protected void write(Object[] values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < values.length && i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeString(columns[i]);
+                out.write(':');
+                Object value = values[i];
+                if (value == null) {
+                    out.write("null");
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    out.write(value.toString());
+                } else {
+                    writeString(value.toString());
+                }
+            }
+            out.write("}\n");
+        }
+        
+        private void writeString(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                        break;
+                }
+            }
+            out.write('"');
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package servlet;
 
 import java.io.IOException;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -10,8 +9,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import model.Page;
 import model.ProjectProposal;
 import service.ProjectService;
+import dao.ProjectProposalDAO;
+import util.TagFilter;
 
 /**
  * Servlet for handling proposal review by admin
@@ -35,22 +37,37 @@ public class ReviewProposalsServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
-        // Get status filter from request
+        // Get status filter and paging parameters from request
         String status = request.getParameter("status");
-        
-        List<ProjectProposal> proposals;
+        String cursor = request.getParameter("cursor");
+        int pageSize = Page.parseSize(request.getParameter("size"));
         
         if (status != null && !status.trim().isEmpty()) {
             // Filter by status
-            proposals = projectService.getProposalsByStatus(status);
             request.setAttribute("currentStatus", status);
         } else {
             // Show all proposals
-            proposals = projectService.getAllProposals();
+            status = null;
+        }
+        
+        // Narrow to all of "tags" and any of "anyTags" (comma-separated) once the tag index is loaded
+        TagFilter tagFilter = TagFilter.parse(request.getParameter("tags"), request.getParameter("anyTags"));
+        if (!ProjectProposalDAO.isIndexReady()) {
+            if (!tagFilter.isEmpty()) {
+                request.setAttribute("error", "Technology filters are still starting up. Showing all proposals.");
+            }
+            tagFilter = TagFilter.NONE;
+        } else {
+            request.setAttribute("facets", projectService.getTagFacets(status, tagFilter));
         }
         
+        Page<ProjectProposal> page = projectService.getProposalsPage(status, tagFilter, cursor, pageSize);
+        
         // Set attributes for the view
-        request.setAttribute("proposals", proposals);
+        request.setAttribute("proposals", page.getItems());
+        request.setAttribute("page", page);
+        request.setAttribute("nextCursor", page.getNextCursor());
+        request.setAttribute("tagFilter", tagFilter);
         
         // Forward to proposals page
         request.getRequestDispatcher("/WEB-INF/views/admin/review-proposals.jsp").forward(request, response);
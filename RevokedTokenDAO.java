@@ -0,0 +1,113 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import util.DBUtil;
+
+/**
+ * Data Access Object for revoked authentication tokens.
+ * Table: revoked_tokens (token_id VARCHAR(32) PRIMARY KEY, expires_at TIMESTAMP NOT NULL)
+ */
+public class RevokedTokenDAO {
+    
+    /**
+     * Record a revoked token
+     * @param tokenId Token ID
+     * @param expiresAt Time after which the token is invalid anyway
+     * @return true if the revocation was stored, false otherwise
+     */
+    public boolean revokeToken(String tokenId, Timestamp expiresAt) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "INSERT INTO revoked_tokens (token_id, expires_at) VALUES (?, ?)";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, tokenId);
+            stmt.setTimestamp(2, expiresAt);
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
+    /**
+     * Get every revoked token that has not expired yet
+     * @return Map of token ID to expiry time in milliseconds
+     */
+    public Map<String, Long> getActiveRevocations() {
+        Map<String, Long> revoked = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "SELECT token_id, expires_at FROM revoked_tokens WHERE expires_at > ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                revoked.put(rs.getString("token_id"), rs.getTimestamp("expires_at").getTime());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return revoked;
+    }
+    
+    /**
+     * Delete revocations of tokens that have expired
+     * @return Number of rows deleted
+     */
+    public int deleteExpired() {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "DELETE FROM revoked_tokens WHERE expires_at <= ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
+    /**
+     * Close database resources
+     * @param conn Connection object
+     * @param stmt Statement object
+     * @param rs ResultSet object
+     */
+    private void closeResources(Connection conn, Statement stmt, ResultSet rs) {
+        try {
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package model;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results. Unlike a keyset page, the cursor is the
+ * rank of the first result on the next page.
+ * @param <T> Item type
+ */
+public class SearchPage<T> extends Page<T> {
+    private final String query;
+    private final int totalHits;
+    private final int offset;
+    
+    // Constructor with fields
+    public SearchPage(List<T> items, String nextCursor, String query, int totalHits, int offset) {
+        super(items, nextCursor);
+        this.query = query;
+        this.totalHits = totalHits;
+        this.offset = offset;
+    }
+    
+    // Getters
+    public String getQuery() {
+        return query;
+    }
+    
+    /**
+     * Number of matching items, including those beyond the last reachable page
+     * @return Total hits
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+    
+    /**
+     * Rank of the first item on this page, starting at 0
+     * @return Offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Parse a search page cursor
+     * @param cursor Cursor from a previous page, may be null
+     * @return Offset of the requested page, 0 if the cursor is missing or invalid
+     */
+    public static int parseCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(cursor.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "SearchPage [query=" + query + ", totalHits=" + totalHits + ", offset=" + offset
+                + ", size=" + getSize() + ", nextCursor=" + getNextCursor() + "]";
+    }
+}
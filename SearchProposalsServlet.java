@@ -0,0 +1,101 @@
+package servlet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import model.SessionPrincipal;
+import model.Mentor;
+import model.Page;
+import model.ProposalSearchHit;
+import model.SearchPage;
+import service.ProjectService;
+import dao.MentorDAO;
+import dao.ProjectProposalDAO;
+import util.AuthUtil;
+
+/**
+ * Servlet for full-text search over project proposals.
+ * Usage: /mentor/search-proposals?q=...[&amp;status=approved|in_progress|completed|all][&amp;cursor=...][&amp;size=...]
+ * Mentors only see proposals that passed review; pending and rejected proposals are never searched.
+ */
+@WebServlet("/mentor/search-proposals")
+public class SearchProposalsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final Set<String> VISIBLE_STATUSES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("approved", "in_progress", "completed")));
+    private ProjectService projectService;
+    private MentorDAO mentorDAO;
+    
+    /**
+     * Initialize the servlet
+     */
+    @Override
+    public void init() throws ServletException {
+        projectService = new ProjectService();
+        mentorDAO = new MentorDAO();
+    }
+    
+    /**
+     * Handle GET requests - display one page of search results
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        // Get current user
+        HttpSession session = request.getSession();
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
+        
+        // Get mentor profile
+        Mentor mentor = mentorDAO.getMentorByUserId(user.getUserId());
+        
+        if (mentor == null) {
+            // Mentor profile not found
+            session.setAttribute("error", "Mentor profile not found");
+            response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/mentor/dashboard"));
+            return;
+        }
+        
+        String query = request.getParameter("q");
+        query = query != null ? query.trim() : "";
+        if (query.length() > MAX_QUERY_LENGTH) {
+            query = query.substring(0, MAX_QUERY_LENGTH);
+        }
+        String status = request.getParameter("status");
+        if (!"all".equals(status) && !VISIBLE_STATUSES.contains(status)) {
+            status = "approved";
+        }
+        
+        request.setAttribute("mentor", mentor);
+        request.setAttribute("query", query);
+        request.setAttribute("status", status);
+        
+        if (!ProjectProposalDAO.getSearchIndex().isReady()) {
+            request.setAttribute("error", "Search is still starting up. Please try again in a minute.");
+        } else if (!query.isEmpty()) {
+            // Search the requested page
+            Set<String> statuses = "all".equals(status) ? VISIBLE_STATUSES : Collections.singleton(status);
+            int pageSize = Page.parseSize(request.getParameter("size"));
+            SearchPage<ProposalSearchHit> page = projectService.searchProposals(
+                    query, statuses, request.getParameter("cursor"), pageSize);
+            
+            request.setAttribute("hits", page.getItems());
+            request.setAttribute("page", page);
+            request.setAttribute("totalHits", page.getTotalHits());
+            request.setAttribute("nextCursor", page.getNextCursor());
+        }
+        
+        // Forward to search page
+        request.getRequestDispatcher("/WEB-INF/views/mentor/search-proposals.jsp").forward(request, response);
+    }
+}
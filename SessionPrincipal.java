@@ -0,0 +1,213 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+
+/**
+ * Compact, immutable identity of a logged-in user, stored in the HTTP session
+ * instead of the full User (which carries the password hash and profile data).
+ * Anything richer is loaded through the cached DAOs when a page needs it.
+ * The version is the user's last-modified time. AuthenticationFilter compares
+ * it with the stored user, so role and name changes apply to existing sessions.
+ */
+public final class SessionPrincipal implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final int userId;
+    private final String username;
+    private final String role;
+    private final String displayName;
+    private final long version;
+    
+    // Constructor with fields
+    public SessionPrincipal(int userId, String username, String role, String displayName, long version) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.displayName = displayName;
+        this.version = version;
+    }
+    
+    /**
+     * Create a principal for a user
+     * @param user User that logged in
+     * @return SessionPrincipal for the user
+     */
+    public static SessionPrincipal of(User user) {
+        return new SessionPrincipal(user.getUserId(), user.getUsername(), user.getRole(),
+                user.getFullName(), versionOf(user));
+    }
+    
+    /**
+     * Get the version stamp of a user row
+     * @param user User object
+     * @return Last-modified time in milliseconds, or 0 if unknown
+     */
+    public static long versionOf(User user) {
+        if (user.getUpdatedAt() != null) {
+            return user.getUpdatedAt().getTime();
+        }
+        return user.getCreatedAt() != null ? user.getCreatedAt().getTime() : 0L;
+    }
+    
+    // Getters
+    public int getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * Same as getDisplayName(), so views written against User keep working
+     * @return Display name
+     */
+    public String getFullName() {
+        return displayName;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Check whether the principal has a role
+     * @param role Role name
+     * @return true if the principal has the role, false otherwise
+     */
+    public boolean hasRole(String role) {
+        return this.role != null && this.role.equals(role);
+    }
+    
+    /**
+     * Encode the principal in its compact binary form
+     * @return Encoded bytes
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out);
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decode a principal written by toBytes()
+     * @param data Encoded bytes
+     * @return SessionPrincipal, or null if the data is not a valid principal
+     */
+    public static SessionPrincipal fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SessionPrincipal)) {
+            return false;
+        }
+        SessionPrincipal other = (SessionPrincipal) o;
+        return userId == other.userId && version == other.version;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * userId + Long.hashCode(version);
+    }
+    
+    @Override
+    public String toString() {
+        return "SessionPrincipal [userId=" + userId + ", username=" + username + ", role=" + role
+                + ", version=" + version + "]";
+    }
+    
+    private void write(DataOutput out) throws IOException {
+        out.writeByte(SerializedForm.FORMAT);
+        out.writeInt(userId);
+        out.writeUTF(username != null ? username : "");
+        out.writeUTF(role != null ? role : "");
+        out.writeUTF(displayName != null ? displayName : "");
+        out.writeLong(version);
+    }
+    
+    private static SessionPrincipal read(DataInput in) throws IOException {
+        if (in.readByte() != SerializedForm.FORMAT) {
+            throw new InvalidObjectException("Unknown session principal format");
+        }
+        return new SessionPrincipal(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong());
+    }
+    
+    /**
+     * Serialize through the compact form instead of default field serialization
+     * @return Serialization proxy
+     */
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+    
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("SessionPrincipal must be read through its serialized form");
+    }
+    
+    /**
+     * Serialization proxy that writes the principal as a few primitive fields
+     * with no class descriptors for the fields
+     */
+    private static final class SerializedForm implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private static final byte FORMAT = 1;
+        
+        private SessionPrincipal principal;
+        
+        // Required by Externalizable
+        public SerializedForm() {
+        }
+        
+        SerializedForm(SessionPrincipal principal) {
+            this.principal = principal;
+        }
+        
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            principal.write(out);
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            principal = read(in);
+        }
+        
+        private Object readResolve() {
+            return principal;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import util.ConnectionContext;
+
+/**
+ * Collapses concurrent identical reads into one database fetch.
+ * The first caller for a key runs the load. Callers that arrive while it is
+ * running wait for it and get their own copy of its result, or the same
+ * exception, so no caller can see another one's changes to the result.
+ * Nothing is cached after the load finishes.
+ * Calls made inside a transaction always run on their own, because they may
+ * need to see the transaction's uncommitted writes.
+ */
+public class SingleFlight {
+    private final String name;
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param name Name used in statistics output
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Run a load, or join an identical one that is already running
+     * @param loader Load to run
+     * @param copier Deep copy of a result, applied before it is handed to a coalesced caller
+     * @param method Name of the read being coalesced
+     * @param args Arguments of the read; together with method they form the key
+     * @return Result of the load; coalesced callers get a copy
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Supplier<T> loader, UnaryOperator<T> copier, String method, Object... args) {
+        calls.increment();
+        if (ConnectionContext.isTransactionActive()) {
+            executions.increment();
+            return loader.get();
+        }
+        
+        Object[] key = new Object[args.length + 1];
+        key[0] = method;
+        System.arraycopy(args, 0, key, 1, args.length);
+        List<Object> flightKey = Arrays.asList(key);
+        
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            coalesced.increment();
+            T shared = (T) await(existing);
+            return shared != null ? copier.apply(shared) : null;
+        }
+        
+        executions.increment();
+        try {
+            T result = loader.get();
+            // Share a pristine copy, so the caller may change its result while others still copy
+            flight.complete(result != null ? copier.apply(result) : null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+    
+    /**
+     * Stop later callers from joining loads that started before a write
+     */
+    public void forgetAll() {
+        inFlight.clear();
+    }
+    
+    /**
+     * Get the number of reads requested
+     * @return Call count
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+    
+    /**
+     * Get the number of reads that actually ran
+     * @return Execution count
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+    
+    /**
+     * Get the number of reads served by joining a load already running
+     * @return Coalesced call count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+    
+    /**
+     * Get the number of loads currently running
+     * @return In-flight count
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    @Override
+    public String toString() {
+        return "SingleFlight[" + name + ", calls=" + getCallCount() + ", executions=" + getExecutionCount()
+                + ", coalesced=" + getCoalescedCount() + ", inFlight=" + getInFlightCount() + "]";
+    }
+    
+    /**
+     * Wait for another caller's load
+     * @param flight Running load
+     * @return Its result
+     */
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a shared load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package util;
+
+/**
+ * Porter stemmer (M.F. Porter, "An algorithm for suffix stripping", 1980).
+ * Reduces English words to a common stem so that "testing", "tested" and
+ * "tests" all match "test". Stems are not always real words, e.g.
+ * "recommendation" becomes "recommend" but "library" becomes "librari".
+ * Only lower-case ASCII words are stemmed; anything else is returned as is.
+ */
+public final class Stemmer {
+    private final char[] b;
+    // Index of the last character of the current word
+    private int k;
+    // General offset into the word, set by ends()
+    private int j;
+
+    private Stemmer(String word) {
+        // One spare character, since step 1b can lengthen the word by one
+        b = new char[word.length() + 1];
+        word.getChars(0, word.length(), b, 0);
+        k = word.length() - 1;
+    }
+
+    /**
+     * Stem a lower-case word
+     * @param word Word to stem
+     * @return Stem, or the word itself if it is too short or not plain ASCII letters
+     */
+    public static String stem(String word) {
+        if (word.length() <= 2) {
+            return word;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return word;
+            }
+        }
+        Stemmer stemmer = new Stemmer(word);
+        stemmer.step1ab();
+        if (stemmer.k > 0) {
+            stemmer.step1c();
+            stemmer.step2();
+            stemmer.step3();
+            stemmer.step4();
+            stemmer.step5();
+        }
+        return new String(stemmer.b, 0, stemmer.k + 1);
+    }
+
+    // True if b[i] is a consonant; y is a consonant unless it follows one
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    // Number of vowel-consonant sequences in b[0..j], the "m" of the paper
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) {
+                return n;
+            }
+            if (!cons(i)) {
+                break;
+            }
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (!cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+        }
+    }
+
+    // True if b[0..j] contains a vowel
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // True if b[i-1..i] is a double consonant
+    private boolean doubleConsonant(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    // True if b[i-2..i] is consonant-vowel-consonant and the last is not w, x or y,
+    // which marks a short word such as hop, where a removed e is put back
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+            return false;
+        }
+        char c = b[i];
+        return c != 'w' && c != 'x' && c != 'y';
+    }
+
+    // True if the word ends with s; sets j to the index before the suffix
+    private boolean ends(String s) {
+        int length = s.length();
+        int start = k - length + 1;
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        j = k - length;
+        return true;
+    }
+
+    // Replace b[j+1..k] with s
+    private void setTo(String s) {
+        s.getChars(0, s.length(), b, j + 1);
+        k = j + s.length();
+    }
+
+    // Replace the suffix found by ends() if the remaining stem has m() > 0
+    private void replace(String s) {
+        if (m() > 0) {
+            setTo(s);
+        }
+    }
+
+    // Plurals and -ed or -ing: caresses -> caress, ponies -> poni, agreed -> agree, hopping -> hop
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) {
+                k -= 2;
+            } else if (ends("ies")) {
+                setTo("i");
+            } else if (k >= 1 && b[k - 1] != 's') {
+                k--;
+            }
+        }
+        if (ends("eed")) {
+            if (m() > 0) {
+                k--;
+            }
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) {
+                setTo("ate");
+            } else if (ends("bl")) {
+                setTo("ble");
+            } else if (ends("iz")) {
+                setTo("ize");
+            } else if (doubleConsonant(k)) {
+                char c = b[k];
+                if (c != 'l' && c != 's' && c != 'z') {
+                    k--;
+                }
+            } else {
+                j = k;
+                if (m() == 1 && cvc(k)) {
+                    setTo("e");
+                }
+            }
+        }
+    }
+
+    // Terminal y to i when there is another vowel: happy -> happi
+    private void step1c() {
+        if (ends("y") && vowelInStem()) {
+            b[k] = 'i';
+        }
+    }
+
+    // Double suffixes to single ones: relational -> relate, digitizer -> digitize
+    private void step2() {
+        if (k < 1) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) { replace("ate"); break; }
+                if (ends("tional")) { replace("tion"); break; }
+                break;
+            case 'c':
+                if (ends("enci")) { replace("ence"); break; }
+                if (ends("anci")) { replace("ance"); break; }
+                break;
+            case 'e':
+                if (ends("izer")) { replace("ize"); break; }
+                break;
+            case 'l':
+                if (ends("bli")) { replace("ble"); break; }
+                if (ends("alli")) { replace("al"); break; }
+                if (ends("entli")) { replace("ent"); break; }
+                if (ends("eli")) { replace("e"); break; }
+                if (ends("ousli")) { replace("ous"); break; }
+                break;
+            case 'o':
+                if (ends("ization")) { replace("ize"); break; }
+                if (ends("ation")) { replace("ate"); break; }
+                if (ends("ator")) { replace("ate"); break; }
+                break;
+            case 's':
+                if (ends("alism")) { replace("al"); break; }
+                if (ends("iveness")) { replace("ive"); break; }
+                if (ends("fulness")) { replace("ful"); break; }
+                if (ends("ousness")) { replace("ous"); break; }
+                break;
+            case 't':
+                if (ends("aliti")) { replace("al"); break; }
+                if (ends("iviti")) { replace("ive"); break; }
+                if (ends("biliti")) { replace("ble"); break; }
+                break;
+            case 'g':
+                if (ends("logi")) { replace("log"); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -ic-, -full, -ness and similar: triplicate -> triplic, hopeful -> hope
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) { replace("ic"); break; }
+                if (ends("ative")) { replace(""); break; }
+                if (ends("alize")) { replace("al"); break; }
+                break;
+            case 'i':
+                if (ends("iciti")) { replace("ic"); break; }
+                break;
+            case 'l':
+                if (ends("ical")) { replace("ic"); break; }
+                if (ends("ful")) { replace(""); break; }
+                break;
+            case 's':
+                if (ends("ness")) { replace(""); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -ant, -ence and similar on longer stems: revival -> reviv, adoption -> adopt
+    private void step4() {
+        if (k < 1) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("al")) break;
+                return;
+            case 'c':
+                if (ends("ance")) break;
+                if (ends("ence")) break;
+                return;
+            case 'e':
+                if (ends("er")) break;
+                return;
+            case 'i':
+                if (ends("ic")) break;
+                return;
+            case 'l':
+                if (ends("able")) break;
+                if (ends("ible")) break;
+                return;
+            case 'n':
+                if (ends("ant")) break;
+                if (ends("ement")) break;
+                if (ends("ment")) break;
+                if (ends("ent")) break;
+                return;
+            case 'o':
+                if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+                if (ends("ou")) break;
+                return;
+            case 's':
+                if (ends("ism")) break;
+                return;
+            case 't':
+                if (ends("ate")) break;
+                if (ends("iti")) break;
+                return;
+            case 'u':
+                if (ends("ous")) break;
+                return;
+            case 'v':
+                if (ends("ive")) break;
+                return;
+            case 'z':
+                if (ends("ize")) break;
+                return;
+            default:
+                return;
+        }
+        if (m() > 1) {
+            k = j;
+        }
+    }
+
+    // Final -e and double l: probate -> probat, controll -> control
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int measure = m();
+            if (measure > 1 || (measure == 1 && !cvc(k - 1))) {
+                k--;
+            }
+        }
+        if (b[k] == 'l' && doubleConsonant(k) && m() > 1) {
+            k--;
+        }
+    }
+}
@@ -6,16 +6,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import model.Student;
 import model.User;
+import model.Page;
 import util.DBUtil;
 
 /**
  * Data Access Object for Student entity
  */
 public class StudentDAO {
+    // Columns of the student table, used to build aliased select lists for joins
+    private static final String[] COLUMNS = {"student_id", "user_id", "student_number", "major", "graduation_year"};
+    // Students by user ID
+    private static final EntityCache<Integer, Student> STUDENT_CACHE =
+            new EntityCache<>("students", 2000, 5 * 60 * 1000L, StudentDAO::copyStudent);
     private UserDAO userDAO = new UserDAO();
     
     /**
@@ -24,6 +33,11 @@ public class StudentDAO {
      * @return Student object or null if not found
      */
     public Student getStudentById(int studentId) {
+        Student cached = IdentityMap.find(Student.class, studentId);
+        if (cached != null) {
+            return cached;
+        }
+        
         Student student = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -48,15 +62,24 @@ public class StudentDAO {
             closeResources(conn, stmt, rs);
         }
         
-        return student;
+        return IdentityMap.intern(Student.class, studentId, student);
     }
     
     /**
-     * Get student by user ID
+     * Get student by user ID, served from the entity cache when possible
      * @param userId User ID
      * @return Student object or null if not found
      */
     public Student getStudentByUserId(int userId) {
+        return internStudent(STUDENT_CACHE.get(userId, this::loadStudentByUserId));
+    }
+    
+    /**
+     * Read student by user ID
+     * @param userId User ID
+     * @return Student object or null if not found
+     */
+    private Student loadStudentByUserId(Integer userId) {
         Student student = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -134,11 +157,7 @@ public class StudentDAO {
             rs = stmt.executeQuery(sql);
             
             while (rs.next()) {
-                Student student = mapStudent(rs);
-                // Load associated user
-                User user = userDAO.getUserById(student.getUserId());
-                student.setUser(user);
-                students.add(student);
+                students.add(mapStudent(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -146,13 +165,86 @@ public class StudentDAO {
             closeResources(conn, stmt, rs);
         }
         
+        // Load associated users in one batch
+        loadUsers(students);
+        
         return students;
     }
     
+    /**
+     * Get students by IDs, chunking very large ID sets
+     * @param studentIds Student IDs
+     * @return Map of student ID to Student; IDs that were not found are absent
+     */
+    public Map<Integer, Student> getStudentsByIds(Collection<Integer> studentIds) {
+        Map<Integer, Student> result = DaoSupport.selectByIds("students", "student_id", studentIds, Student.class, this::mapStudent);
+        
+        // Load associated users in one batch
+        loadUsers(result.values());
+        
+        return result;
+    }
+    
+    /**
+     * Get one page of students using keyset pagination, ordered by student number
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size, capped at Page.MAX_SIZE
+     * @return Page of students with the cursor for the next page
+     */
+    public Page<Student> getStudentsPage(String cursor, int pageSize) {
+        int limit = Page.clampSize(pageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Student> students = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1 = 1");
+            if (after != null) {
+                sql.append(" AND (student_number > ? OR (student_number = ? AND student_id > ?))");
+            }
+            sql.append(" ORDER BY student_number, student_id LIMIT ?");
+            stmt = conn.prepareStatement(sql.toString());
+            
+            int index = 1;
+            if (after != null) {
+                stmt.setString(index++, after.getSortKey());
+                stmt.setString(index++, after.getSortKey());
+                stmt.setInt(index++, after.getId());
+            }
+            // Fetch one extra row to know whether another page follows
+            stmt.setInt(index, limit + 1);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                students.add(mapStudent(rs));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        String nextCursor = null;
+        if (students.size() > limit) {
+            students.remove(limit);
+            Student last = students.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getStudentNumber(), last.getStudentId()).encode();
+        }
+        
+        // Load associated users in one batch
+        loadUsers(students);
+        
+        return new Page<>(students, nextCursor);
+    }
+    
     /**
      * Create a new student
      * @param student Student object to create
      * @return Created student with ID set, or null if creation failed
+     * @throws DuplicateValueException if the student number is already in use
      */
     public Student createStudent(Student student) {
         Connection conn = null;
@@ -181,6 +273,9 @@ public class StudentDAO {
                 return student;
             }
         } catch (SQLException e) {
+            if (DuplicateValueException.isDuplicate(e)) {
+                throw DuplicateValueException.of(e, "student_number", "user_id");
+            }
             e.printStackTrace();
         } finally {
             closeResources(conn, stmt, rs);
@@ -209,6 +304,8 @@ public class StudentDAO {
             stmt.setInt(4, student.getStudentId());
             
             int affectedRows = stmt.executeUpdate();
+            STUDENT_CACHE.invalidateIf(cached -> cached.getStudentId() == student.getStudentId());
+            IdentityMap.evict(Student.class, student.getStudentId());
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -234,6 +331,8 @@ public class StudentDAO {
             stmt.setInt(1, studentId);
             
             int affectedRows = stmt.executeUpdate();
+            STUDENT_CACHE.invalidateIf(cached -> cached.getStudentId() == studentId);
+            IdentityMap.evict(Student.class, studentId);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -243,6 +342,69 @@ public class StudentDAO {
         }
     }
     
+    /**
+     * Get the student cache, e.g. to read its statistics
+     * @return Student cache
+     */
+    public static EntityCache<Integer, Student> getStudentCache() {
+        return STUDENT_CACHE;
+    }
+    
+    /**
+     * Drop the student of a user from the cache
+     * @param userId User ID
+     */
+    static void invalidateUser(int userId) {
+        STUDENT_CACHE.invalidate(userId);
+        // Loaded students hold on to the old user instance
+        IdentityMap.evictAll(Student.class);
+    }
+    
+    /**
+     * Replace a student and its user with the instances already loaded in this request, if any
+     * @param student Freshly mapped student, may be null
+     * @return Canonical instance
+     */
+    static Student internStudent(Student student) {
+        if (student == null) {
+            return null;
+        }
+        Student canonical = IdentityMap.intern(Student.class, student.getStudentId(), student);
+        if (canonical == student) {
+            student.setUser(UserDAO.internUser(student.getUser()));
+        }
+        return canonical;
+    }
+    
+    /**
+     * Create a detached copy of a student and its user
+     * @param student Student to copy
+     * @return Copy, or null if student is null
+     */
+    static Student copyStudent(Student student) {
+        if (student == null) {
+            return null;
+        }
+        Student copy = new Student(student.getStudentId(), student.getUserId(), student.getStudentNumber(), student.getMajor(),
+                student.getGraduationYear());
+        copy.setUser(UserDAO.copyUser(student.getUser()));
+        return copy;
+    }
+    
+    /**
+     * Attach associated users to students using one batched lookup
+     * @param students Student objects to populate
+     */
+    private void loadUsers(Collection<Student> students) {
+        BatchLoader<User> loader = new BatchLoader<>(userDAO::getUsersByIds);
+        for (Student student : students) {
+            loader.request(student.getUserId());
+        }
+        for (Student student : students) {
+            student.setUser(loader.get(student.getUserId()));
+        }
+    }
+    
     /**
      * Map ResultSet to Student object
      * @param rs ResultSet containing student data
@@ -250,15 +412,39 @@ public class StudentDAO {
      * @throws SQLException if a database access error occurs
      */
     private Student mapStudent(ResultSet rs) throws SQLException {
+        return mapStudent(rs, "");
+    }
+    
+    /**
+     * Map prefixed ResultSet columns to Student object, for joined queries
+     * @param rs ResultSet containing student data
+     * @param prefix Column alias prefix, e.g. "s_" for s_student_id
+     * @return Student object, or null if the joined row is missing
+     * @throws SQLException if a database access error occurs
+     */
+    static Student mapStudent(ResultSet rs, String prefix) throws SQLException {
+        if (rs.getObject(prefix + "student_id") == null) {
+            return null;
+        }
         Student student = new Student();
-        student.setStudentId(rs.getInt("student_id"));
-        student.setUserId(rs.getInt("user_id"));
-        student.setStudentNumber(rs.getString("student_number"));
-        student.setMajor(rs.getString("major"));
-        student.setGraduationYear(rs.getInt("graduation_year"));
+        student.setStudentId(rs.getInt(prefix + "student_id"));
+        student.setUserId(rs.getInt(prefix + "user_id"));
+        student.setStudentNumber(rs.getString(prefix + "student_number"));
+        student.setMajor(rs.getString(prefix + "major"));
+        student.setGraduationYear(rs.getInt(prefix + "graduation_year"));
         return student;
     }
     
+    /**
+     * Build an aliased select list of student columns for joined queries
+     * @param tableAlias Alias of the student table in the query
+     * @param prefix Column alias prefix read back by the prefixed mapper
+     * @return Select list such as "t.col AS prefix_col, ..."
+     */
+    static String selectColumns(String tableAlias, String prefix) {
+        return DaoSupport.selectColumns(COLUMNS, tableAlias, prefix);
+    }
+    
     /**
      * Close database resources
      * @param conn Connection object
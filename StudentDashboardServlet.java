@@ -10,12 +10,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import model.User;
+import model.SessionPrincipal;
 import model.Student;
 import model.ProjectProposal;
 import model.MentorAssignment;
+import service.ParallelLoader;
 import service.ProjectService;
 import dao.StudentDAO;
+import util.AuthUtil;
 
 /**
  * Servlet for handling student dashboard
@@ -43,22 +45,26 @@ public class StudentDashboardServlet extends HttpServlet {
             throws ServletException, IOException {
         // Get current user
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionPrincipal user = AuthUtil.getPrincipal(request);
         
         // Get student profile
         Student student = studentDAO.getStudentByUserId(user.getUserId());
         
         if (student != null) {
-            // Get student's project proposals
-            List<ProjectProposal> proposals = projectService.getProposalsByStudentId(student.getStudentId());
+            int studentId = student.getStudentId();
             
-            // Get student's mentor assignments
-            List<MentorAssignment> assignments = projectService.getAssignmentsByStudentId(student.getStudentId());
+            // Get student's project proposals and mentor assignments in parallel
+            ParallelLoader loader = new ParallelLoader();
+            ParallelLoader.Branch<List<ProjectProposal>> proposals =
+                    loader.fork("proposals", () -> projectService.getProposalsByStudentId(studentId));
+            ParallelLoader.Branch<List<MentorAssignment>> assignments =
+                    loader.fork("assignments", () -> projectService.getAssignmentsByStudentId(studentId));
+            loader.join();
             
             // Set attributes for the view
             request.setAttribute("student", student);
-            request.setAttribute("proposals", proposals);
-            request.setAttribute("assignments", assignments);
+            request.setAttribute("proposals", proposals.get());
+            request.setAttribute("assignments", assignments.get());
         }
         
         // Forward to dashboard page
@@ -9,8 +9,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import dao.DuplicateValueException;
+import model.SessionPrincipal;
 import model.User;
 import service.AuthService;
+import util.AuthUtil;
+import util.PasswordHasher;
 
 /**
  * Servlet for handling student registration
@@ -121,20 +125,30 @@ public class StudentRegistrationServlet extends HttpServlet {
         }
         
         // Register student
-        User user = authService.registerStudent(username, password, email, firstName, lastName, 
+        String failure = "Registration failed. Username or email may already be in use.";
+        User user;
+        try {
+            user = authService.registerStudent(username, password, email, firstName, lastName, 
                                                studentNumber, major, graduationYear);
+        } catch (DuplicateValueException e) {
+            user = null;
+            failure = duplicateMessage(e.getColumn(), failure);
+        } catch (PasswordHasher.HashingBusyException e) {
+            user = null;
+            failure = "The server is busy, please try again in a moment.";
+        }
         
         if (user != null) {
             // Registration successful, create session and log in
+            AuthUtil.signIn(request, response, user);
             HttpSession session = request.getSession();
-            session.setAttribute("user", user);
             session.setAttribute("message", "Registration successful! Welcome to the Capstone Project Management System.");
             
             // Redirect to student dashboard
             response.sendRedirect(response.encodeRedirectURL(getServletContext().getContextPath() + "/student/dashboard"));
         } else {
             // Registration failed
-            request.setAttribute("error", "Registration failed. Username or email may already be in use.");
+            request.setAttribute("error", failure);
             
             // Preserve entered values
             request.setAttribute("username", username);
@@ -149,4 +163,26 @@ public class StudentRegistrationServlet extends HttpServlet {
             request.getRequestDispatcher("/WEB-INF/views/student-registration.jsp").forward(request, response);
         }
     }
+    
+    /**
+     * Describe which unique value made the registration fail
+     * @param column Column reported by the database, may be null
+     * @param fallback Message to use when the column is unknown
+     * @return Error message for the form
+     */
+    private String duplicateMessage(String column, String fallback) {
+        if (column == null) {
+            return fallback;
+        }
+        switch (column) {
+            case "username":
+                return "That username is already taken.";
+            case "email":
+                return "An account with that email address already exists.";
+            case "student_number":
+                return "That student number is already registered.";
+            default:
+                return fallback;
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Interned dictionary of technology tags.
+ * Free-text technology lists such as "Java 17, Spring Boot; MySQL" are split
+ * and normalized to tags ("java", "spring boot", "mysql"), and every distinct
+ * tag gets a small integer ID for good. A set of tags is then a bitset of a few
+ * longs, so filtering and counting tags are bitwise operations instead of
+ * string scans. IDs are never removed or reused.
+ */
+public class TagDictionary {
+    // Tags past this limit are dropped, so junk input cannot grow the dictionary without bound
+    private static final int MAX_TAGS = 1 << 16;
+    private static final int MAX_TAG_LENGTH = 50;
+    private static final long[] NO_TAGS = new long[0];
+    private static final Pattern SEPARATORS = Pattern.compile("[,;/|\\n\\r]+|\\s+and\\s+|\\s*&\\s*");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    // Trailing version numbers: "python 3", "java 17", "angular v15"
+    private static final Pattern VERSION = Pattern.compile("\\s+v?\\d+(\\.\\d+)*$");
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    static {
+        String[][] aliases = {
+            {"js", "javascript"}, {"ts", "typescript"}, {"py", "python"},
+            {"node", "node.js"}, {"nodejs", "node.js"}, {"node js", "node.js"},
+            {"reactjs", "react"}, {"react.js", "react"}, {"vuejs", "vue"}, {"vue.js", "vue"},
+            {"postgres", "postgresql"}, {"mongo", "mongodb"}, {"golang", "go"}, {"k8s", "kubernetes"},
+            {"cpp", "c++"}, {"csharp", "c#"}, {"c sharp", "c#"}, {"springboot", "spring boot"},
+            {"html5", "html"}, {"css3", "css"}, {"ml", "machine learning"}
+        };
+        for (String[] alias : aliases) {
+            ALIASES.put(alias[0], alias[1]);
+        }
+    }
+    private static final TagDictionary INSTANCE = new TagDictionary();
+    
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Display name by tag ID; replaced with a larger copy when full
+    private volatile String[] names = new String[64];
+    private int size;
+    
+    /**
+     * Get the shared dictionary
+     * @return TagDictionary instance
+     */
+    public static TagDictionary getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Split a technologies string into normalized tags
+     * @param technologies Free-text list, may be null
+     * @return Distinct tags in order of appearance
+     */
+    public static List<String> split(String technologies) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (technologies != null) {
+            for (String raw : SEPARATORS.split(technologies)) {
+                String tag = normalize(raw);
+                if (tag != null) {
+                    tags.add(tag);
+                }
+            }
+        }
+        return new ArrayList<>(tags);
+    }
+    
+    /**
+     * Normalize one tag: lower case, single spaces, no version number, known aliases resolved
+     * @param raw Tag as typed
+     * @return Normalized tag, or null if nothing usable is left
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String tag = SPACES.matcher(raw.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        String unversioned = VERSION.matcher(tag).replaceAll("");
+        if (!unversioned.isEmpty()) {
+            tag = unversioned;
+        }
+        tag = ALIASES.getOrDefault(tag, tag);
+        if (tag.isEmpty() || tag.length() > MAX_TAG_LENGTH) {
+            return null;
+        }
+        return tag;
+    }
+    
+    /**
+     * Get the ID of a normalized tag, adding it if it is new
+     * @param tag Normalized tag
+     * @return Tag ID, or -1 if the dictionary is full
+     */
+    public int intern(String tag) {
+        Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(tag);
+            if (id != null) {
+                return id;
+            }
+            if (size == MAX_TAGS) {
+                return -1;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = tag;
+            // Publish the name before the ID, so anyone who sees the ID can resolve it
+            names = current;
+            ids.put(tag, size);
+            return size++;
+        }
+    }
+    
+    /**
+     * Look up a tag without adding it
+     * @param tag Tag in any spelling, e.g. from a request parameter
+     * @return Tag ID, or -1 if no proposal ever had the tag
+     */
+    public int idOf(String tag) {
+        String normalized = normalize(tag);
+        Integer id = normalized != null ? ids.get(normalized) : null;
+        return id != null ? id : -1;
+    }
+    
+    /**
+     * Get the name of a tag
+     * @param id Tag ID
+     * @return Normalized tag name
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+    
+    /**
+     * Get the number of tags
+     * @return Highest tag ID plus one
+     */
+    public int size() {
+        return ids.size();
+    }
+    
+    /**
+     * Turn a technologies string into a tag bitset, adding new tags
+     * @param technologies Free-text list, may be null
+     * @return Bitset with bit i set for tag ID i; only as long as the highest set bit needs
+     */
+    public long[] encode(String technologies) {
+        List<String> tags = split(technologies);
+        if (tags.isEmpty()) {
+            return NO_TAGS;
+        }
+        int[] tagIds = new int[tags.size()];
+        int highest = -1;
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = intern(tags.get(i));
+            highest = Math.max(highest, tagIds[i]);
+        }
+        if (highest < 0) {
+            return NO_TAGS;
+        }
+        long[] bits = new long[highest / 64 + 1];
+        for (int id : tagIds) {
+            if (id >= 0) {
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+        return bits;
+    }
+    
+    /**
+     * Turn a tag bitset back into tag names
+     * @param bits Bitset from encode()
+     * @return Tag names in ID order
+     */
+    public List<String> decode(long[] bits) {
+        List<String> tags = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                tags.add(nameOf(word * 64 + Long.numberOfTrailingZeros(remaining)));
+                remaining &= remaining - 1;
+            }
+        }
+        return tags;
+    }
+    
+    /**
+     * Add one to the count of every tag in a bitset
+     * @param bits Tag bitset
+     * @param counts Count by tag ID; tags added after the array was sized are skipped
+     */
+    public static void count(long[] bits, int[] counts) {
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int id = word * 64 + Long.numberOfTrailingZeros(remaining);
+                if (id < counts.length) {
+                    counts[id]++;
+                }
+                remaining &= remaining - 1;
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "TagDictionary[tags=" + size() + "]";
+    }
+}
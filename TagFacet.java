@@ -0,0 +1,29 @@
+package model;
+
+/**
+ * Number of listed proposals that have one technology tag
+ */
+public class TagFacet {
+    private final String tag;
+    private final int count;
+    
+    // Constructor with fields
+    public TagFacet(String tag, int count) {
+        this.tag = tag;
+        this.count = count;
+    }
+    
+    // Getters
+    public String getTag() {
+        return tag;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    @Override
+    public String toString() {
+        return "TagFacet [tag=" + tag + ", count=" + count + "]";
+    }
+}
@@ -0,0 +1,150 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AND/OR filter over tag bitsets from TagDictionary. A tag set matches when it
+ * has every "all of" tag and, if any "any of" tags are given, at least one of
+ * them. Both checks are a few bitwise operations per proposal.
+ */
+public class TagFilter {
+    public static final TagFilter NONE = new TagFilter(new long[0], new long[0], false,
+            Collections.<String>emptyList(), Collections.<String>emptyList());
+    
+    private final long[] allOf;
+    private final long[] anyOf;
+    // True when a required tag is unknown, so nothing can match
+    private final boolean impossible;
+    private final List<String> allOfNames;
+    private final List<String> anyOfNames;
+    
+    private TagFilter(long[] allOf, long[] anyOf, boolean impossible, List<String> allOfNames, List<String> anyOfNames) {
+        this.allOf = allOf;
+        this.anyOf = anyOf;
+        this.impossible = impossible;
+        this.allOfNames = Collections.unmodifiableList(allOfNames);
+        this.anyOfNames = Collections.unmodifiableList(anyOfNames);
+    }
+    
+    /**
+     * Parse comma-separated tag lists, e.g. from request parameters
+     * @param allOf Tags that must all be present, may be null
+     * @param anyOf Tags of which one must be present, may be null
+     * @return Filter, or NONE if both lists are empty
+     */
+    public static TagFilter parse(String allOf, String anyOf) {
+        return of(TagDictionary.split(allOf), TagDictionary.split(anyOf));
+    }
+    
+    /**
+     * Build a filter from tag names
+     * @param allOf Tags that must all be present
+     * @param anyOf Tags of which one must be present
+     * @return Filter, or NONE if both collections are empty
+     */
+    public static TagFilter of(Collection<String> allOf, Collection<String> anyOf) {
+        if (allOf.isEmpty() && anyOf.isEmpty()) {
+            return NONE;
+        }
+        TagDictionary dictionary = TagDictionary.getInstance();
+        List<Integer> allIds = new ArrayList<>();
+        List<Integer> anyIds = new ArrayList<>();
+        boolean impossible = false;
+        for (String tag : allOf) {
+            int id = dictionary.idOf(tag);
+            if (id < 0) {
+                impossible = true;
+            } else {
+                allIds.add(id);
+            }
+        }
+        for (String tag : anyOf) {
+            int id = dictionary.idOf(tag);
+            if (id >= 0) {
+                anyIds.add(id);
+            }
+        }
+        // Every "any of" tag is unknown
+        if (!anyOf.isEmpty() && anyIds.isEmpty()) {
+            impossible = true;
+        }
+        return new TagFilter(toBits(allIds), toBits(anyIds), impossible, names(allOf), names(anyOf));
+    }
+    
+    /**
+     * Check a tag bitset against the filter
+     * @param tags Tag bitset from TagDictionary.encode()
+     * @return true if the tags match
+     */
+    public boolean matches(long[] tags) {
+        if (impossible) {
+            return false;
+        }
+        for (int i = 0; i < allOf.length; i++) {
+            long word = i < tags.length ? tags[i] : 0L;
+            if ((word & allOf[i]) != allOf[i]) {
+                return false;
+            }
+        }
+        if (anyOf.length == 0) {
+            return true;
+        }
+        int words = Math.min(anyOf.length, tags.length);
+        for (int i = 0; i < words; i++) {
+            if ((tags[i] & anyOf[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Check whether the filter lets everything through
+     * @return true if no tags were given
+     */
+    public boolean isEmpty() {
+        return this == NONE;
+    }
+    
+    public List<String> getAllOf() {
+        return allOfNames;
+    }
+    
+    public List<String> getAnyOf() {
+        return anyOfNames;
+    }
+    
+    private static long[] toBits(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new long[0];
+        }
+        int highest = -1;
+        for (int id : ids) {
+            highest = Math.max(highest, id);
+        }
+        long[] bits = new long[highest / 64 + 1];
+        for (int id : ids) {
+            bits[id >>> 6] |= 1L << id;
+        }
+        return bits;
+    }
+    
+    private static List<String> names(Collection<String> tags) {
+        List<String> names = new ArrayList<>();
+        for (String tag : tags) {
+            String normalized = TagDictionary.normalize(tag);
+            if (normalized != null && !names.contains(normalized)) {
+                names.add(normalized);
+            }
+        }
+        return names;
+    }
+    
+    @Override
+    public String toString() {
+        return "TagFilter [allOf=" + allOfNames + ", anyOf=" + anyOfNames + "]";
+    }
+}
@@ -0,0 +1,856 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index with positional postings and BM25 ranking.
+ * Each document has an integer ID, a tag to filter on (such as a status) and a
+ * fixed list of text fields, each with its own weight. Text is split into
+ * lower-case words, stop words are dropped and the rest are reduced with the
+ * Porter stemmer, so a search for "testing" also finds "tested".
+ * A query is a mix of words, which are ranked by BM25 and need not all match,
+ * and "quoted phrases", which must appear in that order within one field.
+ * Replacing or removing a document only marks its old postings dead; dead
+ * postings are purged once they make up a large share of the index.
+ * Searches share a read lock and writes take the write lock: copying the
+ * postings of 50k+ documents on every change would cost far more than the
+ * short write lock.
+ */
+public class TextIndex {
+    // Deepest result a search can page to
+    public static final int MAX_RESULTS = 1000;
+    // Usual BM25 parameters: term frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Positions in field i start at i * FIELD_STRIDE, so phrases never span two fields
+    private static final int FIELD_STRIDE = 1 << 20;
+    private static final int MAX_TERM_LENGTH = 40;
+    // Purge dead postings once at least this many documents, and this share of them, are dead
+    private static final int PURGE_MIN_DEAD = 1024;
+    private static final double PURGE_RATIO = 0.25;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in",
+            "into", "is", "it", "its", "of", "on", "or", "that", "the", "this", "to", "was",
+            "which", "will", "with"));
+    // Single-character terms that are real technology names
+    private static final Set<String> SHORT_TERMS = new HashSet<>(Arrays.asList("c", "r"));
+
+    private final String name;
+    private final int[] fieldWeights;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // Document number by ID; -1 marks an ID that was removed
+    private final Map<Integer, Integer> docsById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    // Until the index is ready: {fromTag, toTag} of retags that arrived before their document
+    private final Map<Integer, String[]> pendingRetags = new HashMap<>();
+    private int[] docIds = new int[1024];
+    private int[] docLengths = new int[1024];
+    private String[] docTags = new String[1024];
+    // Document numbers handed out so far; a replaced document gets a new number
+    private int docCount;
+    private int liveCount;
+    private long totalLength;
+    private volatile boolean ready;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /**
+     * Constructor
+     * @param name Index name, used in statistics
+     * @param fieldWeights Weight of each field, in the order fields are passed to put()
+     */
+    public TextIndex(String name, int... fieldWeights) {
+        this.name = name;
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Add a document, replacing any earlier version with the same ID
+     * @param id Document ID
+     * @param tag Tag to filter on, may be null
+     * @param fields Field texts in constructor order; null fields are skipped
+     */
+    public void put(int id, String tag, String... fields) {
+        Document document = analyzeDocument(fields);
+        lock.writeLock().lock();
+        try {
+            pendingRetags.remove(id);
+            removeLocked(id);
+            addLocked(id, tag, document);
+            purgeIfMostlyDead();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a document unless the ID was already added or removed, e.g. while a
+     * bulk load races with live updates that must win. A retag that arrived
+     * for the ID before it was added is applied if the document still has the
+     * tag the retag expected.
+     * @param id Document ID
+     * @param tag Tag to filter on, may be null
+     * @param fields Field texts in constructor order; null fields are skipped
+     * @return true if the document was added
+     */
+    public boolean putIfAbsent(int id, String tag, String... fields) {
+        Document document = analyzeDocument(fields);
+        lock.writeLock().lock();
+        try {
+            if (docsById.containsKey(id)) {
+                return false;
+            }
+            String[] retag = pendingRetags.remove(id);
+            addLocked(id, retag != null && Objects.equals(retag[0], tag) ? retag[1] : tag, document);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document
+     * @param id Document ID
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            pendingRetags.remove(id);
+            removeLocked(id);
+            docsById.put(id, -1);
+            purgeIfMostlyDead();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Change the tag of a document without reindexing its text.
+     * Before the index is ready, a retag of an ID that has not been added yet
+     * is kept for putIfAbsent(), since the bulk load may still add it with the old tag.
+     * @param id Document ID
+     * @param fromTag Tag the document must still have
+     * @param toTag New tag
+     * @return true if the tag was changed
+     */
+    public boolean retag(int id, String fromTag, String toTag) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsById.get(id);
+            if (doc == null && !ready) {
+                String[] pending = pendingRetags.get(id);
+                if (pending == null) {
+                    pendingRetags.put(id, new String[] { fromTag, toTag });
+                } else if (Objects.equals(pending[1], fromTag)) {
+                    pending[1] = toTag;
+                }
+                return false;
+            }
+            if (doc == null || doc < 0 || !live.get(doc) || !Objects.equals(docTags[doc], fromTag)) {
+                return false;
+            }
+            docTags[doc] = toTag;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the tag of a document
+     * @param id Document ID
+     * @return Tag, or null if the document is not in the index
+     */
+    public String getTag(int id) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docsById.get(id);
+            return doc != null && doc >= 0 && live.get(doc) ? docTags[doc] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the index as fully loaded
+     */
+    public void markReady() {
+        lock.writeLock().lock();
+        try {
+            ready = true;
+            // Anything the load did not add is gone, so its retags no longer apply
+            pendingRetags.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether the index has been fully loaded
+     * @return true once markReady() was called
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Get the number of documents in the index
+     * @return Number of live documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents that best match a query
+     * @param query Words and "quoted phrases"
+     * @param tags Tags a document must have one of, or null for any tag
+     * @param offset Number of top results to skip
+     * @param limit Maximum number of results to return
+     * @return Matching documents, best first
+     */
+    public Result search(String query, Set<String> tags, int offset, int limit) {
+        long started = System.nanoTime();
+        Query parsed = Query.parse(query);
+        int window = Math.min(MAX_RESULTS, offset + limit);
+        if (parsed.isEmpty() || offset < 0 || limit <= 0 || offset >= window) {
+            return new Result(Collections.<Hit>emptyList(), 0, parsed.allTerms);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return new Result(Collections.<Hit>emptyList(), 0, parsed.allTerms);
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / liveCount);
+            // A document matches once its score is positive; every BM25 contribution is
+            float[] scores = new float[docCount];
+
+            for (String term : parsed.terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = idf(list.size);
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    if (accepts(doc, tags)) {
+                        scores[doc] += bm25(idf, list.freqs[i], docLengths[doc], averageLength);
+                    }
+                }
+            }
+
+            // Every phrase must match; count the phrases each document matched
+            int[] phraseHits = parsed.phrases.isEmpty() ? null : new int[docCount];
+            for (Phrase phrase : parsed.phrases) {
+                if (!scorePhrase(phrase, tags, averageLength, scores, phraseHits)) {
+                    return new Result(Collections.<Hit>emptyList(), 0, parsed.allTerms);
+                }
+            }
+
+            // Keep the best `window` documents in a min-heap; ties go to the newer document
+            PriorityQueue<Integer> best = new PriorityQueue<>(window + 1, (a, b) -> {
+                int byScore = Float.compare(scores[a], scores[b]);
+                return byScore != 0 ? byScore : Integer.compare(a, b);
+            });
+            int total = 0;
+            for (int doc = 0; doc < scores.length; doc++) {
+                if (scores[doc] > 0 && (phraseHits == null || phraseHits[doc] == parsed.phrases.size())) {
+                    total++;
+                    best.offer(doc);
+                    if (best.size() > window) {
+                        best.poll();
+                    }
+                }
+            }
+
+            Hit[] ranked = new Hit[best.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                int doc = best.poll();
+                ranked[i] = new Hit(docIds[doc], scores[doc]);
+            }
+            List<Hit> hits = offset < ranked.length
+                    ? Arrays.asList(Arrays.copyOfRange(ranked, offset, ranked.length))
+                    : Collections.<Hit>emptyList();
+            return new Result(hits, total, parsed.allTerms);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Score the documents containing a phrase
+     * @return false if no document can contain the phrase
+     */
+    private boolean scorePhrase(Phrase phrase, Set<String> tags, double averageLength,
+            float[] scores, int[] phraseHits) {
+        Postings[] lists = new Postings[phrase.terms.length];
+        double idf = 0;
+        for (int t = 0; t < lists.length; t++) {
+            lists[t] = postings.get(phrase.terms[t]);
+            if (lists[t] == null) {
+                return false;
+            }
+            idf += idf(lists[t].size);
+        }
+
+        // Walk the rarest term and look the others up in the few documents it is in
+        int rarest = 0;
+        for (int t = 1; t < lists.length; t++) {
+            if (lists[t].size < lists[rarest].size) {
+                rarest = t;
+            }
+        }
+        Postings lead = lists[rarest];
+        int[] found = new int[lists.length];
+        for (int i = 0; i < lead.size; i++) {
+            int doc = lead.docs[i];
+            if (!accepts(doc, tags)) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int t = 0; t < lists.length && inAll; t++) {
+                found[t] = t == rarest ? i : lists[t].find(doc);
+                inAll = found[t] >= 0;
+            }
+            if (!inAll) {
+                continue;
+            }
+
+            // Weighted number of places where the phrase starts
+            int frequency = 0;
+            for (int p = lead.posStarts[i]; p < lead.posStarts[i + 1]; p++) {
+                int start = lead.positions[p] - phrase.offsets[rarest];
+                boolean matches = start >= 0;
+                for (int t = 0; t < lists.length && matches; t++) {
+                    matches = t == rarest || lists[t].hasPosition(found[t], start + phrase.offsets[t]);
+                }
+                if (matches) {
+                    frequency += fieldWeights[start / FIELD_STRIDE];
+                }
+            }
+            if (frequency > 0) {
+                phraseHits[doc]++;
+                scores[doc] += bm25(idf, frequency, docLengths[doc], averageLength);
+            }
+        }
+        return true;
+    }
+
+    private boolean accepts(int doc, Set<String> tags) {
+        return live.get(doc) && (tags == null || tags.contains(docTags[doc]));
+    }
+
+    private double idf(int documentFrequency) {
+        // Dead postings still count until the next purge
+        double df = Math.min(documentFrequency, liveCount);
+        return Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+    }
+
+    private static float bm25(double idf, int frequency, int length, double averageLength) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return (float) (idf * frequency * (K1 + 1) / (frequency + norm));
+    }
+
+    private void addLocked(int id, String tag, Document document) {
+        int doc = docCount++;
+        if (doc == docIds.length) {
+            int capacity = docIds.length * 2;
+            docIds = Arrays.copyOf(docIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTags = Arrays.copyOf(docTags, capacity);
+        }
+        docIds[doc] = id;
+        docLengths[doc] = document.length;
+        docTags[doc] = tag;
+        live.set(doc);
+        liveCount++;
+        totalLength += document.length;
+        docsById.put(id, doc);
+
+        for (Map.Entry<String, TermEntry> entry : document.terms.entrySet()) {
+            TermEntry term = entry.getValue();
+            postings.computeIfAbsent(entry.getKey(), t -> new Postings())
+                    .add(doc, term.frequency, term.positions, term.count);
+        }
+    }
+
+    private void removeLocked(int id) {
+        Integer doc = docsById.get(id);
+        if (doc == null || doc < 0 || !live.get(doc)) {
+            return;
+        }
+        live.clear(doc);
+        liveCount--;
+        totalLength -= docLengths[doc];
+        docTags[doc] = null;
+    }
+
+    private void purgeIfMostlyDead() {
+        int dead = docCount - liveCount;
+        if (dead >= PURGE_MIN_DEAD && dead > docCount * PURGE_RATIO) {
+            purgeLocked();
+        }
+    }
+
+    /**
+     * Drop the postings of dead documents and renumber the live ones
+     */
+    private void purgeLocked() {
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (live.get(doc)) {
+                renumbered[doc] = next;
+                docIds[next] = docIds[doc];
+                docLengths[next] = docLengths[doc];
+                docTags[next] = docTags[doc];
+                docsById.put(docIds[next], next);
+                next++;
+            } else {
+                renumbered[doc] = -1;
+            }
+        }
+        Arrays.fill(docTags, next, docCount, null);
+        docCount = next;
+        live.clear();
+        live.set(0, next);
+
+        Iterator<Postings> lists = postings.values().iterator();
+        while (lists.hasNext()) {
+            Postings list = lists.next();
+            list.purge(renumbered);
+            if (list.size == 0) {
+                lists.remove();
+            }
+        }
+    }
+
+    private Document analyzeDocument(String[] fields) {
+        Document document = new Document();
+        for (int field = 0; field < fields.length && field < fieldWeights.length; field++) {
+            int weight = fieldWeights[field];
+            int base = field * FIELD_STRIDE;
+            analyze(fields[field], (term, index, start, end) -> {
+                if (index >= FIELD_STRIDE) {
+                    return;
+                }
+                TermEntry entry = document.terms.computeIfAbsent(term, t -> new TermEntry());
+                entry.add(base + index, weight);
+                document.length += weight;
+            });
+        }
+        return document;
+    }
+
+    /**
+     * Count the words of a text that match any of the given terms
+     * @param text Text to check, may be null
+     * @param terms Stemmed terms, as returned by Result.getTerms()
+     * @return Number of matching words
+     */
+    public static int countMatches(String text, Set<String> terms) {
+        int[] count = { 0 };
+        analyze(text, (term, index, start, end) -> {
+            if (terms.contains(term)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Escape a whole text for HTML and wrap the words matching any of the terms in mark tags
+     * @param text Text to highlight, may be null
+     * @param terms Stemmed terms, as returned by Result.getTerms()
+     * @return HTML fragment
+     */
+    public static String highlight(String text, Set<String> terms) {
+        return snippet(text, terms, 0);
+    }
+
+    /**
+     * Cut the part of a text with the most matching words, escape it for HTML
+     * and wrap the matching words in mark tags
+     * @param text Text to cut, may be null
+     * @param terms Stemmed terms, as returned by Result.getTerms()
+     * @param maxWords Number of indexed words to keep, or 0 to keep the whole text
+     * @return HTML fragment, with an ellipsis where text was cut
+     */
+    public static String snippet(String text, Set<String> terms, int maxWords) {
+        if (text == null) {
+            return "";
+        }
+        // Start offset, end offset and match flag of every indexed word
+        List<int[]> words = new ArrayList<>();
+        analyze(text, (term, index, start, end) ->
+                words.add(new int[] { start, end, terms.contains(term) ? 1 : 0 }));
+
+        int first = 0;
+        int last = words.size() - 1;
+        if (maxWords > 0 && words.size() > maxWords) {
+            // Slide a window of maxWords words and keep the first one with the most matches
+            int matches = 0;
+            for (int i = 0; i < maxWords; i++) {
+                matches += words.get(i)[2];
+            }
+            int bestMatches = matches;
+            for (int i = maxWords; i < words.size(); i++) {
+                matches += words.get(i)[2] - words.get(i - maxWords)[2];
+                if (matches > bestMatches) {
+                    bestMatches = matches;
+                    first = i - maxWords + 1;
+                }
+            }
+            last = first + maxWords - 1;
+        }
+
+        int from = first == 0 ? 0 : words.get(first)[0];
+        int to = words.isEmpty() || last == words.size() - 1 ? text.length() : words.get(last)[1];
+        StringBuilder html = new StringBuilder(to - from + 32);
+        if (from > 0) {
+            html.append("&hellip; ");
+        }
+        int copied = from;
+        for (int i = first; i <= last && i < words.size(); i++) {
+            int[] word = words.get(i);
+            if (word[2] == 1) {
+                escapeHtml(html, text, copied, word[0]);
+                html.append("<mark>");
+                escapeHtml(html, text, word[0], word[1]);
+                html.append("</mark>");
+                copied = word[1];
+            }
+        }
+        escapeHtml(html, text, copied, to);
+        if (to < text.length()) {
+            html.append(" &hellip;");
+        }
+        return html.toString();
+    }
+
+    private static void escapeHtml(StringBuilder html, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '"':
+                    html.append("&quot;");
+                    break;
+                case '\'':
+                    html.append("&#39;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+    }
+
+    /**
+     * Split text into stemmed terms.
+     * Word indexes count stop words too, so phrases keep their gaps. Names such
+     * as c++, c# and node.js stay whole.
+     * @param text Text to split, may be null
+     * @param handler Callback for every indexed word
+     */
+    private static void analyze(String text, TokenHandler handler) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int index = 0;
+        int i = 0;
+        while (i < length) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)
+                        || (c == '.' && i + 1 < length && Character.isLetterOrDigit(text.charAt(i + 1)))) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            while (i < length && (text.charAt(i) == '+' || text.charAt(i) == '#')) {
+                i++;
+            }
+
+            String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+            int position = index++;
+            if (word.length() > MAX_TERM_LENGTH || STOP_WORDS.contains(word)
+                    || (word.length() == 1 && !SHORT_TERMS.contains(word))) {
+                continue;
+            }
+            handler.token(Stemmer.stem(word), position, start, i);
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            long count = searches.sum();
+            return "TextIndex[" + name + ": documents=" + liveCount
+                    + ", dead=" + (docCount - liveCount)
+                    + ", terms=" + postings.size()
+                    + ", searches=" + count
+                    + ", avgSearchMicros=" + (count == 0 ? 0 : searchNanos.sum() / count / 1000) + "]";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Callback for the words found by analyze()
+     */
+    private interface TokenHandler {
+        void token(String term, int index, int start, int end);
+    }
+
+    /**
+     * Analyzed document waiting to be added
+     */
+    private static class Document {
+        private final Map<String, TermEntry> terms = new HashMap<>();
+        private int length;
+    }
+
+    /**
+     * Occurrences of one term in one document
+     */
+    private static class TermEntry {
+        private int frequency;
+        private int count;
+        private int[] positions = new int[2];
+
+        void add(int position, int weight) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = position;
+            frequency += weight;
+        }
+    }
+
+    /**
+     * Documents containing one term, in increasing document number, with the
+     * weighted frequency and sorted positions of the term in each
+     */
+    private static class Postings {
+        private int size;
+        private int[] docs = new int[2];
+        private int[] freqs = new int[2];
+        // Positions for entry i are positions[posStarts[i]] up to positions[posStarts[i + 1]]
+        private int[] posStarts = new int[3];
+        private int[] positions = new int[4];
+
+        void add(int doc, int frequency, int[] termPositions, int count) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+                posStarts = Arrays.copyOf(posStarts, size * 2 + 1);
+            }
+            int start = posStarts[size];
+            if (start + count > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, start + count));
+            }
+            System.arraycopy(termPositions, 0, positions, start, count);
+            docs[size] = doc;
+            freqs[size] = frequency;
+            posStarts[size + 1] = start + count;
+            size++;
+        }
+
+        /**
+         * Find the entry of a document
+         * @return Entry index, or a negative number if the document does not contain the term
+         */
+        int find(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc);
+        }
+
+        boolean hasPosition(int entry, int position) {
+            return Arrays.binarySearch(positions, posStarts[entry], posStarts[entry + 1], position) >= 0;
+        }
+
+        /**
+         * Drop dead entries and renumber the rest
+         * @param renumbered New document number by old one, -1 for dead documents
+         */
+        void purge(int[] renumbered) {
+            int kept = 0;
+            int keptPositions = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc < 0) {
+                    continue;
+                }
+                int start = posStarts[i];
+                int count = posStarts[i + 1] - start;
+                System.arraycopy(positions, start, positions, keptPositions, count);
+                docs[kept] = doc;
+                freqs[kept] = freqs[i];
+                posStarts[kept] = keptPositions;
+                keptPositions += count;
+                kept++;
+                posStarts[kept] = keptPositions;
+            }
+            size = kept;
+            if (docs.length > 2 * Math.max(2, kept)) {
+                docs = Arrays.copyOf(docs, Math.max(2, kept));
+                freqs = Arrays.copyOf(freqs, Math.max(2, kept));
+                posStarts = Arrays.copyOf(posStarts, Math.max(2, kept) + 1);
+                positions = Arrays.copyOf(positions, Math.max(4, keptPositions));
+            }
+        }
+    }
+
+    /**
+     * Parsed query: loose words and quoted phrases, both as stemmed terms
+     */
+    private static class Query {
+        private final List<String> terms = new ArrayList<>();
+        private final List<Phrase> phrases = new ArrayList<>();
+        // Every term of the query, for highlighting
+        private final Set<String> allTerms = new LinkedHashSet<>();
+
+        static Query parse(String text) {
+            Query query = new Query();
+            if (text == null) {
+                return query;
+            }
+            // Text between quotes is a phrase; an unclosed quote runs to the end
+            String[] parts = text.split("\"", -1);
+            for (int i = 0; i < parts.length; i++) {
+                List<String> words = new ArrayList<>();
+                List<Integer> indexes = new ArrayList<>();
+                analyze(parts[i], (term, index, start, end) -> {
+                    words.add(term);
+                    indexes.add(index);
+                });
+                query.allTerms.addAll(words);
+                if (i % 2 == 1 && words.size() > 1) {
+                    query.phrases.add(new Phrase(words, indexes));
+                } else {
+                    for (String word : words) {
+                        if (!query.terms.contains(word)) {
+                            query.terms.add(word);
+                        }
+                    }
+                }
+            }
+            return query;
+        }
+
+        boolean isEmpty() {
+            return terms.isEmpty() && phrases.isEmpty();
+        }
+    }
+
+    /**
+     * Phrase terms with each term's distance from the first
+     */
+    private static class Phrase {
+        private final String[] terms;
+        private final int[] offsets;
+
+        Phrase(List<String> words, List<Integer> indexes) {
+            terms = words.toArray(new String[0]);
+            offsets = new int[terms.length];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = indexes.get(i) - indexes.get(0);
+            }
+        }
+    }
+
+    /**
+     * One matching document
+     */
+    public static class Hit {
+        private final int id;
+        private final float score;
+
+        Hit(int id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * One page of search results
+     */
+    public static class Result {
+        private final List<Hit> hits;
+        private final int total;
+        private final Set<String> terms;
+
+        Result(List<Hit> hits, int total, Set<String> terms) {
+            this.hits = Collections.unmodifiableList(hits);
+            this.total = total;
+            this.terms = Collections.unmodifiableSet(terms);
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        /**
+         * Get the number of matching documents, which may exceed MAX_RESULTS
+         * @return Total matches
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Get the stemmed query terms, for highlighting
+         * @return Terms
+         */
+        public Set<String> getTerms() {
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package service;
+
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.RevokedTokenDAO;
+import model.SessionPrincipal;
+import util.DBUtil;
+import util.TokenSigner;
+
+/**
+ * Service class for stateless token authentication.
+ * When auth.stateless=true in database.properties, logins get an HMAC-signed,
+ * expiring token cookie instead of an HTTP session, so any node can
+ * authenticate any request without a session or database lookup.
+ * Settings:
+ * auth.token.keys - comma-separated keyId:base64Key pairs; the first signs new
+ * tokens and the rest only verify, which is how keys are rotated across nodes.
+ * auth.token.ttlMinutes, auth.token.cookieName, auth.token.secureCookie and
+ * auth.token.revocationSyncSeconds.
+ * auth.token.maxLifetimeHours - renewals never extend a token past this long
+ * after the login it descends from.
+ * Logged-out tokens are stored in the revoked_tokens table. Each node keeps an
+ * in-memory copy of that table and re-reads it every few seconds.
+ */
+public class TokenService {
+    private static final TokenService INSTANCE = new TokenService();
+    
+    private final boolean enabled;
+    private final TokenSigner signer;
+    private final long ttlMillis;
+    private final long maxLifetimeMillis;
+    private final String cookieName;
+    private final boolean secureCookie;
+    private final RevokedTokenDAO revokedTokenDAO;
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService revocationSync;
+    
+    /**
+     * Constructor, reads settings from database.properties
+     */
+    private TokenService() {
+        this.enabled = Boolean.parseBoolean(DBUtil.getProperty("auth.stateless", "false"));
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(DBUtil.getIntProperty("auth.token.ttlMinutes", 60));
+        this.maxLifetimeMillis = Math.max(ttlMillis,
+                TimeUnit.HOURS.toMillis(DBUtil.getIntProperty("auth.token.maxLifetimeHours", 12)));
+        this.cookieName = DBUtil.getProperty("auth.token.cookieName", "CPM_AUTH");
+        this.secureCookie = Boolean.parseBoolean(DBUtil.getProperty("auth.token.secureCookie", "false"));
+        this.revokedTokenDAO = new RevokedTokenDAO();
+        this.signer = enabled ? createSigner(DBUtil.getProperty("auth.token.keys", "")) : null;
+        
+        if (enabled) {
+            int syncSeconds = Math.max(1, DBUtil.getIntProperty("auth.token.revocationSyncSeconds", 15));
+            revocationSync = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "token-revocation-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            revocationSync.scheduleWithFixedDelay(this::syncRevocations, 0, syncSeconds, TimeUnit.SECONDS);
+            System.out.println("Stateless token sessions enabled, signing key: " + signer.getActiveKeyId());
+        } else {
+            revocationSync = null;
+        }
+    }
+    
+    /**
+     * Constructor for a service with a given signer and no revocation sync, e.g. for tests
+     * @param signer Token signer
+     * @param ttlMillis Token lifetime
+     * @param maxLifetimeMillis Longest time a login can be renewed for
+     * @param revokedTokenDAO Store for revocations
+     */
+    TokenService(TokenSigner signer, long ttlMillis, long maxLifetimeMillis, RevokedTokenDAO revokedTokenDAO) {
+        this.enabled = true;
+        this.signer = signer;
+        this.ttlMillis = ttlMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.cookieName = "CPM_AUTH";
+        this.secureCookie = false;
+        this.revokedTokenDAO = revokedTokenDAO;
+        this.revocationSync = null;
+    }
+    
+    /**
+     * Get the shared token service
+     * @return TokenService instance
+     */
+    public static TokenService getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Check whether stateless token sessions are enabled
+     * @return true if logins use token cookies, false if they use HTTP sessions
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Issue a signed token for a principal
+     * @param principal Logged-in user
+     * @return Token string
+     */
+    public String issue(SessionPrincipal principal) {
+        return signer.sign(principal, ttlMillis);
+    }
+    
+    /**
+     * Reissue a token for the same login
+     * @param token Verified token being renewed
+     * @param principal Principal for the new token, reloaded from the user row
+     * @return New token string, or null if the login has reached its maximum
+     *         lifetime and the current token must simply run out
+     */
+    public String renew(TokenSigner.Token token, SessionPrincipal principal) {
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, token.getLoginAt() + maxLifetimeMillis);
+        if (expiresAt <= token.getExpiresAt()) {
+            return null;
+        }
+        return signer.sign(principal, token.getLoginAt(), expiresAt);
+    }
+    
+    /**
+     * Verify a token
+     * @param token Token string, may be null
+     * @return Verified token, or null if it is invalid, expired, too old or revoked
+     */
+    public TokenSigner.Token verify(String token) {
+        if (!enabled || token == null) {
+            return null;
+        }
+        TokenSigner.Token verified = signer.verify(token);
+        if (verified == null || revoked.containsKey(verified.getTokenId())
+                || verified.getLoginAt() + maxLifetimeMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return verified;
+    }
+    
+    /**
+     * Revoke a token so that no node accepts it again
+     * @param token Token string, may be null
+     */
+    public void revoke(String token) {
+        TokenSigner.Token verified = verify(token);
+        if (verified == null) {
+            return;
+        }
+        revoked.put(verified.getTokenId(), verified.getExpiresAt());
+        revokedTokenDAO.revokeToken(verified.getTokenId(), new Timestamp(verified.getExpiresAt()));
+    }
+    
+    /**
+     * Start signing with a new key; tokens signed with earlier keys stay valid until they expire
+     * @param keyId ID of the new key
+     * @param secret New key, at least 32 bytes
+     */
+    public void rotateKey(String keyId, byte[] secret) {
+        signer.rotate(keyId, secret);
+        System.out.println("Token signing key rotated to: " + keyId);
+    }
+    
+    /**
+     * Get the name of the token cookie
+     * @return Cookie name
+     */
+    public String getCookieName() {
+        return cookieName;
+    }
+    
+    /**
+     * Get the token lifetime
+     * @return Lifetime in seconds
+     */
+    public int getTtlSeconds() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(ttlMillis);
+    }
+    
+    /**
+     * Check whether the token cookie is only sent over HTTPS
+     * @return true if the cookie is marked Secure
+     */
+    public boolean isSecureCookie() {
+        return secureCookie;
+    }
+    
+    /**
+     * Stop the revocation sync, e.g. on application shutdown
+     */
+    public void shutdown() {
+        if (revocationSync != null) {
+            revocationSync.shutdownNow();
+        }
+    }
+    
+    /**
+     * Reload revocations made on other nodes and drop expired ones
+     */
+    private void syncRevocations() {
+        try {
+            revoked.putAll(revokedTokenDAO.getActiveRevocations());
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Long>> it = revoked.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue() <= now) {
+                    it.remove();
+                }
+            }
+            revokedTokenDAO.deleteExpired();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Build the signer from the configured keys
+     * @param keyList Comma-separated keyId:base64Key pairs, first one active
+     * @return TokenSigner
+     */
+    private static TokenSigner createSigner(String keyList) {
+        TokenSigner tokenSigner = null;
+        for (String entry : keyList.split(",")) {
+            int sep = entry.indexOf(':');
+            if (sep <= 0) {
+                continue;
+            }
+            String keyId = entry.substring(0, sep).trim();
+            byte[] secret = Base64.getDecoder().decode(entry.substring(sep + 1).trim());
+            if (tokenSigner == null) {
+                tokenSigner = new TokenSigner(keyId, secret);
+            } else {
+                tokenSigner.addVerificationKey(keyId, secret);
+            }
+        }
+        
+        if (tokenSigner == null) {
+            // Tokens from other nodes will not verify; only suitable for a single node
+            System.err.println("auth.token.keys is not set; using a random signing key for this node only");
+            tokenSigner = new TokenSigner("local", TokenSigner.generateSecret());
+        }
+        return tokenSigner;
+    }
+}
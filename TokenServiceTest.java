@@ -0,0 +1,161 @@
+package service;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import dao.RevokedTokenDAO;
+import model.SessionPrincipal;
+import util.TokenSigner;
+
+/**
+ * Test class for token signing, verification, key rotation and revocation.
+ * Needs no database; revocations are kept in memory.
+ */
+public class TokenServiceTest {
+    private static final long TTL = TimeUnit.MINUTES.toMillis(60);
+    private static final long MAX_LIFETIME = TimeUnit.HOURS.toMillis(12);
+    private static final SessionPrincipal PRINCIPAL = new SessionPrincipal(42, "jdoe", "student", "Jane Doe", 1000L);
+    
+    private static int failures;
+    
+    public static void main(String[] args) {
+        testRoundTrip();
+        testTamperedPayload();
+        testTamperedSignature();
+        testExpired();
+        testUnknownKey();
+        testRotation();
+        testRetiredKey();
+        testRevoked();
+        testRenewal();
+        
+        if (failures == 0) {
+            System.out.println("All token checks passed");
+        } else {
+            System.out.println(failures + " token checks failed");
+            System.exit(1);
+        }
+    }
+    
+    private static void testRoundTrip() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        TokenSigner.Token token = signer.verify(signer.sign(PRINCIPAL, TTL));
+        check("valid token verifies", token != null);
+        check("principal survives the round trip", token != null && PRINCIPAL.equals(token.getPrincipal())
+                && "Jane Doe".equals(token.getPrincipal().getDisplayName()));
+        check("login time is the issue time", token != null && token.getLoginAt() == token.getIssuedAt());
+    }
+    
+    private static void testTamperedPayload() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        String token = signer.sign(PRINCIPAL, TTL);
+        int firstDot = token.indexOf('.');
+        // Change a character of the payload, not of the key ID or the signature
+        int position = firstDot + 10;
+        char replaced = token.charAt(position) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, position) + replaced + token.substring(position + 1);
+        check("tampered payload is rejected", signer.verify(tampered) == null);
+    }
+    
+    private static void testTamperedSignature() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        String token = signer.sign(PRINCIPAL, TTL);
+        int position = token.lastIndexOf('.') + 1;
+        char replaced = token.charAt(position) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, position) + replaced + token.substring(position + 1);
+        check("tampered signature is rejected", signer.verify(tampered) == null);
+        check("missing signature is rejected", signer.verify(token.substring(0, position - 1)) == null);
+    }
+    
+    private static void testExpired() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        long now = System.currentTimeMillis();
+        check("expired token is rejected", signer.verify(signer.sign(PRINCIPAL, now - TTL, now - 1)) == null);
+    }
+    
+    private static void testUnknownKey() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        TokenSigner other = new TokenSigner("k9", TokenSigner.generateSecret());
+        check("token from an unknown key ID is rejected", signer.verify(other.sign(PRINCIPAL, TTL)) == null);
+        // Same key ID, different secret
+        TokenSigner impostor = new TokenSigner("k1", TokenSigner.generateSecret());
+        check("token signed with a different secret is rejected", signer.verify(impostor.sign(PRINCIPAL, TTL)) == null);
+    }
+    
+    private static void testRotation() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        String before = signer.sign(PRINCIPAL, TTL);
+        signer.rotate("k2", TokenSigner.generateSecret());
+        String after = signer.sign(PRINCIPAL, TTL);
+        check("new tokens use the new key", after.startsWith("k2."));
+        check("token signed before the rotation still verifies", signer.verify(before) != null);
+        check("token signed after the rotation verifies", signer.verify(after) != null);
+    }
+    
+    private static void testRetiredKey() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        String old = signer.sign(PRINCIPAL, TTL);
+        signer.rotate("k2", TokenSigner.generateSecret());
+        signer.retire("k1");
+        check("token signed with a retired key is rejected", signer.verify(old) == null);
+        
+        boolean refused = false;
+        try {
+            signer.retire("k2");
+        } catch (IllegalArgumentException e) {
+            refused = true;
+        }
+        check("active key cannot be retired", refused);
+    }
+    
+    private static void testRevoked() {
+        TokenService service = newService();
+        String token = service.issue(PRINCIPAL);
+        String other = service.issue(PRINCIPAL);
+        check("issued token verifies", service.verify(token) != null);
+        service.revoke(token);
+        check("revoked token is rejected", service.verify(token) == null);
+        check("other tokens of the same user still verify", service.verify(other) != null);
+    }
+    
+    private static void testRenewal() {
+        TokenSigner signer = new TokenSigner("k1", TokenSigner.generateSecret());
+        TokenService service = new TokenService(signer, TTL, MAX_LIFETIME, new MemoryRevocations());
+        long now = System.currentTimeMillis();
+        
+        // Logged in eleven and a half hours ago, token issued 40 minutes ago
+        TokenSigner.Token old = service.verify(signer.sign(PRINCIPAL, now - MAX_LIFETIME + TTL / 2, now + TTL / 3));
+        check("token within the maximum lifetime verifies", old != null);
+        TokenSigner.Token renewed = old != null ? service.verify(service.renew(old, PRINCIPAL)) : null;
+        check("renewal keeps the login time", renewed != null && renewed.getLoginAt() == old.getLoginAt());
+        check("renewal stops at the maximum lifetime",
+                renewed != null && renewed.getExpiresAt() <= old.getLoginAt() + MAX_LIFETIME);
+        check("no renewal once the maximum lifetime is reached",
+                renewed != null && service.renew(renewed, PRINCIPAL) == null);
+        
+        String tooOld = signer.sign(PRINCIPAL, now - MAX_LIFETIME - 1, now + TTL);
+        check("token past the maximum lifetime is rejected", service.verify(tooOld) == null);
+    }
+    
+    private static TokenService newService() {
+        return new TokenService(new TokenSigner("k1", TokenSigner.generateSecret()), TTL, MAX_LIFETIME,
+                new MemoryRevocations());
+    }
+    
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+    
+    /**
+     * Revocation store that keeps nothing, so the test needs no database
+     */
+    private static class MemoryRevocations extends RevokedTokenDAO {
+        @Override
+        public boolean revokeToken(String tokenId, Timestamp expiresAt) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package util;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import model.SessionPrincipal;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed, expiring authentication tokens.
+ * A token is "keyId.payload.signature", each part base64url-encoded. The
+ * payload holds a random token ID, the time of the login the token descends
+ * from, the issue and expiry times and the SessionPrincipal in its compact
+ * binary form.
+ * Several keys can be loaded at once: the active key signs new tokens, and
+ * the others still verify tokens issued before a rotation.
+ */
+public class TokenSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte FORMAT = 2;
+    private static final int TOKEN_ID_BYTES = 12;
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    
+    // Replaced wholesale on rotation so verification never needs a lock
+    private volatile KeySet keys;
+    
+    /**
+     * Constructor
+     * @param keyId ID of the initial signing key
+     * @param secret Initial signing key, at least 32 bytes
+     */
+    public TokenSigner(String keyId, byte[] secret) {
+        checkKey(keyId, secret);
+        Map<String, byte[]> initial = new LinkedHashMap<>();
+        initial.put(keyId, secret.clone());
+        this.keys = new KeySet(keyId, initial);
+    }
+    
+    /**
+     * Generate a random key suitable for signing
+     * @return 32 random bytes
+     */
+    public static byte[] generateSecret() {
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        return secret;
+    }
+    
+    /**
+     * Add a key and make it the signing key; existing keys keep verifying old tokens
+     * @param keyId ID of the new key, must not contain '.'
+     * @param secret New key, at least 32 bytes
+     */
+    public synchronized void rotate(String keyId, byte[] secret) {
+        checkKey(keyId, secret);
+        Map<String, byte[]> next = new LinkedHashMap<>(keys.secrets);
+        next.put(keyId, secret.clone());
+        keys = new KeySet(keyId, next);
+    }
+    
+    /**
+     * Add a key that only verifies tokens, e.g. the previous key after a restart
+     * @param keyId Key ID
+     * @param secret Key bytes
+     */
+    public synchronized void addVerificationKey(String keyId, byte[] secret) {
+        checkKey(keyId, secret);
+        Map<String, byte[]> next = new LinkedHashMap<>(keys.secrets);
+        next.put(keyId, secret.clone());
+        keys = new KeySet(keys.activeKeyId, next);
+    }
+    
+    /**
+     * Stop accepting tokens signed with a key
+     * @param keyId Key ID; the active key cannot be retired
+     */
+    public synchronized void retire(String keyId) {
+        if (keyId.equals(keys.activeKeyId)) {
+            throw new IllegalArgumentException("Cannot retire the active signing key");
+        }
+        Map<String, byte[]> next = new LinkedHashMap<>(keys.secrets);
+        next.remove(keyId);
+        keys = new KeySet(keys.activeKeyId, next);
+    }
+    
+    /**
+     * Get the ID of the key that signs new tokens
+     * @return Active key ID
+     */
+    public String getActiveKeyId() {
+        return keys.activeKeyId;
+    }
+    
+    /**
+     * Issue a token for a principal
+     * @param principal Logged-in user
+     * @param ttlMillis Lifetime of the token
+     * @return Signed token string
+     */
+    public String sign(SessionPrincipal principal, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return sign(principal, now, now + ttlMillis);
+    }
+    
+    /**
+     * Issue a token that continues an earlier login, e.g. on renewal
+     * @param principal Logged-in user
+     * @param loginAt Time of the original login in milliseconds
+     * @param expiresAt Expiry time in milliseconds
+     * @return Signed token string
+     */
+    public String sign(SessionPrincipal principal, long loginAt, long expiresAt) {
+        byte[] tokenId = new byte[TOKEN_ID_BYTES];
+        RANDOM.nextBytes(tokenId);
+        long now = System.currentTimeMillis();
+        byte[] body = principal.toBytes();
+        
+        ByteBuffer payload = ByteBuffer.allocate(1 + TOKEN_ID_BYTES + 24 + body.length);
+        payload.put(FORMAT).put(tokenId).putLong(loginAt).putLong(now).putLong(expiresAt).put(body);
+        
+        KeySet current = keys;
+        String signed = current.activeKeyId + "." + ENCODER.encodeToString(payload.array());
+        return signed + "." + ENCODER.encodeToString(hmac(current.secrets.get(current.activeKeyId), signed));
+    }
+    
+    /**
+     * Verify a token's signature and expiry
+     * @param token Token string
+     * @return Decoded token, or null if it is malformed, forged, signed with an unknown key or expired
+     */
+    public Token verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) {
+            return null;
+        }
+        
+        byte[] secret = keys.secrets.get(token.substring(0, firstDot));
+        if (secret == null) {
+            return null;
+        }
+        
+        try {
+            String signed = token.substring(0, lastDot);
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, hmac(secret, signed))) {
+                return null;
+            }
+            
+            ByteBuffer payload = ByteBuffer.wrap(DECODER.decode(token.substring(firstDot + 1, lastDot)));
+            if (payload.get() != FORMAT) {
+                return null;
+            }
+            byte[] tokenId = new byte[TOKEN_ID_BYTES];
+            payload.get(tokenId);
+            long loginAt = payload.getLong();
+            long issuedAt = payload.getLong();
+            long expiresAt = payload.getLong();
+            if (expiresAt <= System.currentTimeMillis()) {
+                return null;
+            }
+            byte[] body = new byte[payload.remaining()];
+            payload.get(body);
+            SessionPrincipal principal = SessionPrincipal.fromBytes(body);
+            if (principal == null) {
+                return null;
+            }
+            return new Token(ENCODER.encodeToString(tokenId), principal, loginAt, issuedAt, expiresAt);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+    
+    private static void checkKey(String keyId, byte[] secret) {
+        if (keyId == null || keyId.isEmpty() || keyId.indexOf('.') >= 0) {
+            throw new IllegalArgumentException("Key IDs must be non-empty and must not contain '.'");
+        }
+        if (secret == null || secret.length < 32) {
+            throw new IllegalArgumentException("Signing keys need at least 32 bytes");
+        }
+    }
+    
+    private static byte[] hmac(byte[] secret, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Immutable set of keys with the one used for signing
+     */
+    private static class KeySet {
+        private final String activeKeyId;
+        private final Map<String, byte[]> secrets;
+        
+        KeySet(String activeKeyId, Map<String, byte[]> secrets) {
+            this.activeKeyId = activeKeyId;
+            this.secrets = Collections.unmodifiableMap(secrets);
+        }
+    }
+    
+    /**
+     * A verified token
+     */
+    public static class Token {
+        private final String tokenId;
+        private final SessionPrincipal principal;
+        private final long loginAt;
+        private final long issuedAt;
+        private final long expiresAt;
+        
+        Token(String tokenId, SessionPrincipal principal, long loginAt, long issuedAt, long expiresAt) {
+            this.tokenId = tokenId;
+            this.principal = principal;
+            this.loginAt = loginAt;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+        
+        public String getTokenId() {
+            return tokenId;
+        }
+        
+        public SessionPrincipal getPrincipal() {
+            return principal;
+        }
+        
+        /**
+         * Get the time of the login this token was issued or renewed from
+         * @return Login time in milliseconds
+         */
+        public long getLoginAt() {
+            return loginAt;
+        }
+        
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+        
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+        
+        /**
+         * Check whether more than half of the token's lifetime has passed
+         * @return true if the token should be reissued, false otherwise
+         */
+        public boolean isPastHalfLife() {
+            return System.currentTimeMillis() > issuedAt + (expiresAt - issuedAt) / 2;
+        }
+    }
+}
@@ -6,22 +6,53 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import model.User;
+import model.Page;
+import util.BloomFilter;
 import util.DBUtil;
 
 /**
  * Data Access Object for User entity
  */
 public class UserDAO {
+    // Columns of the user table, used to build aliased select lists for joins
+    private static final String[] COLUMNS = {"user_id", "username", "password", "email", "first_name", "last_name", "role", "created_at", "updated_at"};
+    // Users by user ID
+    private static final EntityCache<Integer, User> USER_CACHE =
+            new EntityCache<>("users", 5000, 5 * 60 * 1000L, UserDAO::copyUser);
+    // Usernames and emails in use; null until the startup scan has finished
+    private static volatile BloomFilter takenNames;
+    // Filter being filled by a running scan, so concurrent inserts are not missed
+    private static volatile BloomFilter buildingNames;
+    private static final LongAdder PROBES_SKIPPED = new LongAdder();
+    private static final LongAdder PROBES_RUN = new LongAdder();
     
     /**
-     * Get user by ID
+     * Get user by ID, served from the request's identity map or the entity cache when possible
      * @param userId User ID
      * @return User object or null if not found
      */
     public User getUserById(int userId) {
+        User user = IdentityMap.find(User.class, userId);
+        if (user != null) {
+            return user;
+        }
+        return IdentityMap.intern(User.class, userId, USER_CACHE.get(userId, this::loadUserById));
+    }
+    
+    /**
+     * Read user by ID
+     * @param userId User ID
+     * @return User object or null if not found
+     */
+    private User loadUserById(Integer userId) {
         User user = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -164,10 +195,311 @@ public class UserDAO {
         return users;
     }
     
+    /**
+     * Get users by IDs, chunking very large ID sets
+     * @param userIds User IDs
+     * @return Map of user ID to User; IDs that were not found are absent
+     */
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+        return DaoSupport.selectByIds("users", "user_id", userIds, User.class, this::mapUser);
+    }
+    
+    /**
+     * Count users grouped by role
+     * @return Map of role to number of users
+     */
+    public Map<String, Integer> countUsersByRole() {
+        Map<String, Integer> counts = new HashMap<>();
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "SELECT role, COUNT(*) AS total FROM users GROUP BY role";
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery(sql);
+            
+            while (rs.next()) {
+                counts.put(rs.getString("role"), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return counts;
+    }
+    
+    /**
+     * Get one page of users using keyset pagination, ordered by username
+     * @param role Role to filter by, or null for all users
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param pageSize Requested page size, capped at Page.MAX_SIZE
+     * @return Page of users with the cursor for the next page
+     */
+    public Page<User> getUsersPage(String role, String cursor, int pageSize) {
+        int limit = Page.clampSize(pageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<User> users = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE 1 = 1");
+            if (role != null) {
+                sql.append(" AND role = ?");
+            }
+            if (after != null) {
+                sql.append(" AND (username > ? OR (username = ? AND user_id > ?))");
+            }
+            sql.append(" ORDER BY username, user_id LIMIT ?");
+            stmt = conn.prepareStatement(sql.toString());
+            
+            int index = 1;
+            if (role != null) {
+                stmt.setString(index++, role);
+            }
+            if (after != null) {
+                stmt.setString(index++, after.getSortKey());
+                stmt.setString(index++, after.getSortKey());
+                stmt.setInt(index++, after.getId());
+            }
+            // Fetch one extra row to know whether another page follows
+            stmt.setInt(index, limit + 1);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                users.add(mapUser(rs));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        String nextCursor = null;
+        if (users.size() > limit) {
+            users.remove(limit);
+            User last = users.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getUsername(), last.getUserId()).encode();
+        }
+        
+        return new Page<>(users, nextCursor);
+    }
+    
+    /**
+     * Stream users to a consumer one row at a time without buffering them in a list.
+     * Uses a forward-only, read-only cursor on a dedicated connection; the consumer may
+     * call other DAO methods.
+     * @param role User role, or null for all users
+     * @param consumer Callback invoked for each user
+     * @return Number of rows visited
+     * @throws SQLException if the query fails, possibly after some rows were passed to the consumer
+     */
+    public long forEachUser(String role, Consumer<User> consumer) throws SQLException {
+        long count = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getStreamingConnection();
+            String sql = "SELECT * FROM users"
+                       + (role != null ? " WHERE role = ?" : "")
+                       + " ORDER BY user_id";
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(DBUtil.getStreamingFetchSize());
+            if (role != null) {
+                stmt.setObject(1, role);
+            }
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                User user = mapUser(rs);
+                consumer.accept(user);
+                count++;
+            }
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Check whether a username is in use.
+     * Names the existence filter has never seen are answered without a query.
+     * @param username Username
+     * @return true if the username is taken, or if the check failed
+     */
+    public boolean isUsernameTaken(String username) {
+        return isTaken("username", username, usernameKey(username));
+    }
+    
+    /**
+     * Check whether an email address is in use.
+     * Addresses the existence filter has never seen are answered without a query.
+     * @param email Email address
+     * @return true if the email is taken, or if the check failed
+     */
+    public boolean isEmailTaken(String email) {
+        return isTaken("email", email, emailKey(email));
+    }
+    
+    /**
+     * Fill the username/email existence filter with a streaming scan of the users table.
+     * Until this finishes, isUsernameTaken() and isEmailTaken() always query the database.
+     * The filter is published only after the scan and a catch-up read of the users
+     * added since it started both succeed.
+     * @return Number of users scanned
+     * @throws SQLException if the scan fails; the partial filter is discarded
+     */
+    public long buildExistenceFilter() throws SQLException {
+        long expected = 0;
+        for (Integer count : countUsersByRole().values()) {
+            expected += count;
+        }
+        // Leave room for growth; the false positive rate rises once the filter overfills
+        BloomFilter filter = new BloomFilter(Math.max(10000, expected * 2), 0.01);
+        buildingNames = filter;
+        try {
+            int[] highestId = { 0 };
+            long scanned = forEachUser(null, user -> {
+                filter.add(usernameKey(user.getUsername()));
+                filter.add(emailKey(user.getEmail()));
+                highestId[0] = Math.max(highestId[0], user.getUserId());
+            });
+            // Inserts that began before buildingNames was set only reach the filter
+            // through the table, and may have committed after the scan's snapshot
+            scanned += addNamesAfter(filter, highestId[0]);
+            takenNames = filter;
+            return scanned;
+        } finally {
+            buildingNames = null;
+        }
+    }
+    
+    /**
+     * Add the usernames and emails of users above an ID to an existence filter
+     * @param filter Filter being built
+     * @param afterUserId Highest user ID already added
+     * @return Number of users added
+     * @throws SQLException if the query fails
+     */
+    private long addNamesAfter(BloomFilter filter, int afterUserId) throws SQLException {
+        long count = 0;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            stmt = conn.prepareStatement("SELECT username, email FROM users WHERE user_id > ?");
+            stmt.setInt(1, afterUserId);
+            rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                filter.add(usernameKey(rs.getString("username")));
+                filter.add(emailKey(rs.getString("email")));
+                count++;
+            }
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Get the username/email existence filter, e.g. to read its statistics
+     * @return Filter, or null if it has not been built yet
+     */
+    public static BloomFilter getExistenceFilter() {
+        return takenNames;
+    }
+    
+    /**
+     * Get the number of existence checks answered by the filter alone
+     * @return Number of skipped queries
+     */
+    public static long getSkippedProbeCount() {
+        return PROBES_SKIPPED.sum();
+    }
+    
+    /**
+     * Get the number of existence checks that had to query the database
+     * @return Number of queries run
+     */
+    public static long getProbeCount() {
+        return PROBES_RUN.sum();
+    }
+    
+    /**
+     * Check a column for a value, consulting the existence filter first
+     * @param column Column name, "username" or "email"
+     * @param value Value to look for
+     * @param key Normalized filter key for the value
+     * @return true if the value is in use, or if the check failed
+     */
+    private boolean isTaken(String column, String value, String key) {
+        BloomFilter filter = takenNames;
+        if (filter != null && !filter.mightContain(key)) {
+            PROBES_SKIPPED.increment();
+            return false;
+        }
+        PROBES_RUN.increment();
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "SELECT 1 FROM users WHERE " + column + " = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, value);
+            rs = stmt.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // Report the value as taken rather than risk a duplicate
+            return true;
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    /**
+     * Add a user's username and email to the existence filters
+     * @param user User being written
+     */
+    private static void rememberTakenNames(User user) {
+        for (BloomFilter filter : new BloomFilter[] { takenNames, buildingNames }) {
+            if (filter != null) {
+                filter.add(usernameKey(user.getUsername()));
+                filter.add(emailKey(user.getEmail()));
+            }
+        }
+    }
+    
+    // Keys are lower-cased so the filter also covers case-insensitive collations
+    private static String usernameKey(String username) {
+        return "u:" + (username == null ? "" : username.trim().toLowerCase());
+    }
+    
+    private static String emailKey(String email) {
+        return "e:" + (email == null ? "" : email.trim().toLowerCase());
+    }
+    
     /**
      * Create a new user
      * @param user User object to create
      * @return Created user with ID set, or null if creation failed
+     * @throws DuplicateValueException if the username or email is already in use
      */
     public User createUser(User user) {
         Connection conn = null;
@@ -192,12 +524,17 @@ public class UserDAO {
                 return null;
             }
             
+            rememberTakenNames(user);
+            
             rs = stmt.getGeneratedKeys();
             if (rs.next()) {
                 user.setUserId(rs.getInt(1));
                 return user;
             }
         } catch (SQLException e) {
+            if (DuplicateValueException.isDuplicate(e)) {
+                throw DuplicateValueException.of(e, "username", "email");
+            }
             e.printStackTrace();
         } finally {
             closeResources(conn, stmt, rs);
@@ -229,6 +566,38 @@ public class UserDAO {
             stmt.setInt(7, user.getUserId());
             
             int affectedRows = stmt.executeUpdate();
+            invalidateUser(user.getUserId());
+            rememberTakenNames(user);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
+    /**
+     * Replace a stored password, but only if it has not changed since it was read
+     * @param userId User ID
+     * @param expectedPassword Stored password the new value replaces
+     * @param newPassword New stored password
+     * @return true if the password was replaced, false otherwise
+     */
+    public boolean updatePasswordHash(int userId, String expectedPassword, String newPassword) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            String sql = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, newPassword);
+            stmt.setInt(2, userId);
+            stmt.setString(3, expectedPassword);
+            
+            int affectedRows = stmt.executeUpdate();
+            invalidateUser(userId);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -254,6 +623,7 @@ public class UserDAO {
             stmt.setInt(1, userId);
             
             int affectedRows = stmt.executeUpdate();
+            invalidateUser(userId);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -263,6 +633,47 @@ public class UserDAO {
         }
     }
     
+    /**
+     * Get the user cache, e.g. to read its statistics
+     * @return User cache
+     */
+    public static EntityCache<Integer, User> getUserCache() {
+        return USER_CACHE;
+    }
+    
+    /**
+     * Drop a user from every entity cache that embeds it
+     * @param userId User ID
+     */
+    static void invalidateUser(int userId) {
+        USER_CACHE.invalidate(userId);
+        IdentityMap.evict(User.class, userId);
+        StudentDAO.invalidateUser(userId);
+        MentorDAO.invalidateUser(userId);
+    }
+    
+    /**
+     * Replace a user with the instance already loaded in this request, if any
+     * @param user Freshly mapped user, may be null
+     * @return Canonical instance
+     */
+    static User internUser(User user) {
+        return user != null ? IdentityMap.intern(User.class, user.getUserId(), user) : null;
+    }
+    
+    /**
+     * Create a detached copy of a user
+     * @param user User to copy
+     * @return Copy, or null if user is null
+     */
+    static User copyUser(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new User(user.getUserId(), user.getUsername(), user.getPassword(), user.getEmail(),
+                user.getFirstName(), user.getLastName(), user.getRole(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+    
     /**
      * Map ResultSet to User object
      * @param rs ResultSet containing user data
@@ -270,19 +681,43 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     private User mapUser(ResultSet rs) throws SQLException {
+        return mapUser(rs, "");
+    }
+    
+    /**
+     * Map prefixed ResultSet columns to User object, for joined queries
+     * @param rs ResultSet containing user data
+     * @param prefix Column alias prefix, e.g. "u_" for u_user_id
+     * @return User object, or null if the joined row is missing
+     * @throws SQLException if a database access error occurs
+     */
+    static User mapUser(ResultSet rs, String prefix) throws SQLException {
+        if (rs.getObject(prefix + "user_id") == null) {
+            return null;
+        }
         User user = new User();
-        user.setUserId(rs.getInt("user_id"));
-        user.setUsername(rs.getString("username"));
-        user.setPassword(rs.getString("password"));
-        user.setEmail(rs.getString("email"));
-        user.setFirstName(rs.getString("first_name"));
-        user.setLastName(rs.getString("last_name"));
-        user.setRole(rs.getString("role"));
-        user.setCreatedAt(rs.getTimestamp("created_at"));
-        user.setUpdatedAt(rs.getTimestamp("updated_at"));
+        user.setUserId(rs.getInt(prefix + "user_id"));
+        user.setUsername(rs.getString(prefix + "username"));
+        user.setPassword(rs.getString(prefix + "password"));
+        user.setEmail(rs.getString(prefix + "email"));
+        user.setFirstName(rs.getString(prefix + "first_name"));
+        user.setLastName(rs.getString(prefix + "last_name"));
+        user.setRole(rs.getString(prefix + "role"));
+        user.setCreatedAt(rs.getTimestamp(prefix + "created_at"));
+        user.setUpdatedAt(rs.getTimestamp(prefix + "updated_at"));
         return user;
     }
     
+    /**
+     * Build an aliased select list of user columns for joined queries
+     * @param tableAlias Alias of the user table in the query
+     * @param prefix Column alias prefix read back by the prefixed mapper
+     * @return Select list such as "t.col AS prefix_col, ..."
+     */
+    static String selectColumns(String tableAlias, String prefix) {
+        return DaoSupport.selectColumns(COLUMNS, tableAlias, prefix);
+    }
+    
     /**
      * Close database resources
      * @param conn Connection object
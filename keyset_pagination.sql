@@ -0,0 +1,17 @@
+-- Schema changes for keyset pagination (ProjectProposalDAO.getProposalsPage,
+-- MentorDAO.getMentorsPage). Both pages seek with (sort_key, id) row
+-- comparisons on the raw columns, so the columns must be NOT NULL and backed
+-- by a composite index; otherwise every page is a full scan plus filesort.
+
+UPDATE project_proposals SET submission_date = COALESCE(last_updated, CURRENT_TIMESTAMP)
+    WHERE submission_date IS NULL;
+ALTER TABLE project_proposals
+    MODIFY submission_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ADD INDEX idx_proposals_submitted (submission_date, proposal_id),
+    ADD INDEX idx_proposals_status_submitted (status, submission_date, proposal_id);
+
+-- Keep the column's existing length
+UPDATE mentors SET department = '' WHERE department IS NULL;
+ALTER TABLE mentors
+    MODIFY department VARCHAR(100) NOT NULL DEFAULT '',
+    ADD INDEX idx_mentors_department (department, mentor_id);